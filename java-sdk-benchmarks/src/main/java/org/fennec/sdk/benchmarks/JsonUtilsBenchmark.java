@@ -0,0 +1,51 @@
+package org.fennec.sdk.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.fennec.sdk.utilities.data.JsonUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare {@link JsonUtils#readJSON(String, Class)}, using the reader cached per type of the shared mapper, with the
+ * former {@link ObjectMapper#readValue(String, Class)} path for a typical image manifest. Add the Blackbird module to
+ * the classpath to measure it
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonUtilsBenchmark {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private static final String JSON = "{\"name\":\"registry.example.com/team/api\",\"tag\":\"1.4.2\","
+            + "\"digest\":\"sha256:9b2a7c1e5d3f4a6b8c0d2e4f6a8b0c2d4e6f8a0b2c4d6e8f0a2b4c6d8e0f2a4b\","
+            + "\"size\":48213475,\"layers\":[\"sha256:a1\",\"sha256:b2\",\"sha256:c3\",\"sha256:d4\"],"
+            + "\"labels\":{\"maintainer\":\"team\",\"version\":\"1.4.2\",\"commit\":\"5f3c2a1\"}}";
+
+    @Benchmark
+    public Image objectMapper() throws IOException {
+        return OBJECT_MAPPER.readValue(JSON, Image.class);
+    }
+
+    @Benchmark
+    public Image readJSON() {
+        return JsonUtils.readJSON(JSON, Image.class);
+    }
+
+    public static class Image {
+        public String name;
+        public String tag;
+        public String digest;
+        public long size;
+        public List<String> layers;
+        public Map<String, String> labels;
+    }
+}
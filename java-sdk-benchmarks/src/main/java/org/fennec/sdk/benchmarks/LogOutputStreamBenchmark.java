@@ -0,0 +1,96 @@
+package org.fennec.sdk.benchmarks;
+
+import org.fennec.sdk.exec.common.LogOutputStream;
+import org.fennec.sdk.exec.common.capture.OutputCapturePolicy;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.event.Level;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write build output to a {@link LogOutputStream} with 1 byte, 8 KB or random sized chunks.<br>
+ * TRACE lines are filtered by the default logback configuration: this measures the line splitting, not the logging.
+ * Only the head and tail of the output are captured so the heap stays small
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogOutputStreamBenchmark {
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    private static final int RANDOM_MAX_CHUNK = 16 * 1024;
+
+    private static final int CAPTURE_SIZE = 64 * 1024;
+
+    /**
+     * Total amount of output written per invocation
+     */
+    @Param("1073741824")
+    public long totalBytes;
+
+    /**
+     * Chunk size in bytes, or "random"
+     */
+    @Param({ "1", "8192", "random" })
+    public String chunk;
+
+    private byte[] block;
+
+    private int[] chunkSizes;
+
+    @Setup
+    public void setup() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(BLOCK_SIZE);
+        int i = 0;
+        while (output.size() < BLOCK_SIZE) {
+            byte[] line = String
+                    .format("[INFO] Downloaded from central: https://repo.maven.apache.org/maven2/org/example/artifact-%d/1.0/artifact-%d-1.0.jar (%d kB at 1.2 MB/s)%n",
+                            i,
+                            i,
+                            i % 500)
+                    .getBytes(StandardCharsets.UTF_8);
+            output.write(line, 0, line.length);
+            i++;
+        }
+        block = output.toByteArray();
+
+        Random random = new Random(42);
+        chunkSizes = new int[4096];
+        for (int j = 0; j < chunkSizes.length; j++) {
+            chunkSizes[j] = "random".equals(chunk) ? 1 + random.nextInt(RANDOM_MAX_CHUNK) : Integer.parseInt(chunk);
+        }
+    }
+
+    @Benchmark
+    public int write() {
+        LogOutputStream stream = new LogOutputStream(Level.TRACE,
+                Map.of(),
+                OutputCapturePolicy.headTail(CAPTURE_SIZE, CAPTURE_SIZE).create());
+        long written = 0;
+        int position = 0;
+        int chunkIndex = 0;
+        while (written < totalBytes) {
+            int size = Math.min(chunkSizes[chunkIndex++ & (chunkSizes.length - 1)], block.length - position);
+            if (size == 1) {
+                stream.write(block[position]);
+            } else {
+                stream.write(block, position, size);
+            }
+            position += size;
+            written += size;
+            if (position == block.length) {
+                position = 0;
+            }
+        }
+        stream.flush();
+        return stream.toString().length();
+    }
+}
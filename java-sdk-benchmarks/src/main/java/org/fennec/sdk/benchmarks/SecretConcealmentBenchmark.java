@@ -0,0 +1,78 @@
+package org.fennec.sdk.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.fennec.sdk.log.LogUtils;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compare {@link LogUtils#getFormattedMessage(ILoggingEvent)} with the former implementation (one replace loop per
+ * secret then a regular expression to remove the colors) for a colored build output line
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SecretConcealmentBenchmark {
+
+    @Param({ "1", "20" })
+    private int secretCount;
+
+    private LoggingEvent event;
+
+    private static String formerFormattedMessage(ILoggingEvent event) {
+        List<String> toConceal = event
+                .getMDCPropertyMap()
+                .entrySet()
+                .stream()
+                .filter(e -> e.getKey().startsWith(LogUtils.SECRET))
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+        String message = event.getFormattedMessage();
+        for (String conceal : toConceal) {
+            while (message.indexOf(conceal) != -1) {
+                message = message.replace(conceal, "******");
+            }
+        }
+        return message.replaceAll("\\u001b\\[.*?m", "");
+    }
+
+    @Setup
+    public void setup() {
+        Map<String, String> mdc = new HashMap<>();
+        mdc.put("stage", "Build");
+        for (int i = 0; i < secretCount; i++) {
+            mdc.put(LogUtils.SECRET + i, "s3cr3t-token-" + i);
+        }
+        event = new LoggingEvent(LogUtils.class.getName(),
+                (Logger) LoggerFactory.getLogger(SecretConcealmentBenchmark.class),
+                Level.INFO,
+                "\u001b[1;34m[INFO]\u001b[m Downloaded from central: https://repo.maven.apache.org/maven2/org/apache/"
+                        + "maven/plugins/maven-surefire-plugin/3.0.0-M5/maven-surefire-plugin-3.0.0-M5.jar "
+                        + "(41 kB at 1.2 MB/s) with s3cr3t-token-0",
+                null,
+                null);
+        event.setMDCPropertyMap(mdc);
+    }
+
+    @Benchmark
+    public String former() {
+        return formerFormattedMessage(event);
+    }
+
+    @Benchmark
+    public String concealer() {
+        return LogUtils.getFormattedMessage(event);
+    }
+}
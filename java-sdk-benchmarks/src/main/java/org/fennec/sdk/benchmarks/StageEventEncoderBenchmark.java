@@ -0,0 +1,61 @@
+package org.fennec.sdk.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.fennec.sdk.model.events.StageLogEvent;
+import org.fennec.sdk.pipeline.events.BinaryEventEncoder;
+import org.fennec.sdk.pipeline.events.EventBuffer;
+import org.fennec.sdk.pipeline.events.StageEventEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.event.Level;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the {@link StageEventEncoder} with the former {@link ObjectMapper#writeValueAsString(Object)} path and the
+ * {@link BinaryEventEncoder} for a typical build output line. Run with <code>-prof gc</code> to compare allocations
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StageEventEncoderBenchmark {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private StageLogEvent event;
+
+    private BinaryEventEncoder binaryEncoder;
+
+    @Setup
+    public void setup() {
+        event = new StageLogEvent(System.currentTimeMillis(),
+                "Build",
+                Level.INFO,
+                "[INFO] Tests run: 42, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.137 s - in org.fennec.sdk.pipeline.events.TestAsyncEventDispatcher");
+        binaryEncoder = new BinaryEventEncoder();
+    }
+
+    @Benchmark
+    public String objectMapper() throws IOException {
+        return OBJECT_MAPPER.writeValueAsString(event);
+    }
+
+    @Benchmark
+    public EventBuffer encoderBytes() throws IOException {
+        return StageEventEncoder.get().encode(event);
+    }
+
+    @Benchmark
+    public String encoderString() throws IOException {
+        return StageEventEncoder.get().encodeToString(event);
+    }
+
+    @Benchmark
+    public EventBuffer encoderBinary() throws IOException {
+        return binaryEncoder.encode(event);
+    }
+}
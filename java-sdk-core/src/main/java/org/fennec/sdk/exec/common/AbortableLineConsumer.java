@@ -0,0 +1,42 @@
+package org.fennec.sdk.exec.common;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.function.Consumer;
+
+/**
+ * Forward the output lines of a command to a consumer until it throws an exception: the command is then aborted and
+ * the following lines are not forwarded anymore.<br>
+ * Lines are forwarded on the thread reading the output: a slow consumer slows down the reading, and the command
+ * blocks once the pipe (or the websocket) buffer is full.
+ */
+@RequiredArgsConstructor
+public class AbortableLineConsumer implements Consumer<String> {
+
+    private final Consumer<String> delegate;
+
+    /**
+     * Called once, with the exception thrown by the consumer
+     */
+    private final Consumer<RuntimeException> onAbort;
+
+    /**
+     * The exception thrown by the consumer, null if the command has not been aborted
+     */
+    @Getter
+    private volatile RuntimeException failure;
+
+    @Override
+    public void accept(String line) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            delegate.accept(line);
+        } catch (RuntimeException e) {
+            failure = e;
+            onAbort.accept(e);
+        }
+    }
+}
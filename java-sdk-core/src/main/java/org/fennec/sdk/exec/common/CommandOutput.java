@@ -1,14 +1,55 @@
 package org.fennec.sdk.exec.common;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import org.fennec.sdk.exec.common.capture.OutputCapture;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
 
 @AllArgsConstructor
 @Getter
-public class CommandOutput {
+public class CommandOutput implements Closeable {
 
     private final int status;
 
+    /**
+     * The output. Depending on the capture policy it may only be a part of it
+     */
     private final String data;
 
+    @Getter(AccessLevel.NONE)
+    private final OutputCapture capture;
+
+    public CommandOutput(int status, String data) {
+        this(status, data, null);
+    }
+
+    /**
+     * @return the captured lines. Must be closed when the output has been spilled to disk
+     */
+    public Stream<String> lines() {
+        return capture == null ? data.lines() : capture.lines();
+    }
+
+    /**
+     * @return the captured output as UTF-8 bytes. Must be closed
+     */
+    public InputStream inputStream() {
+        return capture == null ? new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)) : capture.inputStream();
+    }
+
+    /**
+     * Release the captured output (such as temporary files)
+     */
+    @Override
+    public void close() {
+        if (capture != null) {
+            capture.close();
+        }
+    }
 }
@@ -1,5 +1,9 @@
 package org.fennec.sdk.exec.common;
 
+import org.fennec.sdk.exec.common.capture.OutputCapturePolicy;
+
+import java.util.function.Consumer;
+
 public interface ExecService {
 
     /**
@@ -21,4 +25,66 @@ public interface ExecService {
      */
     CommandOutput execCommand(String... cmd) throws ExecCommandException;
 
+    /**
+     * Exec a command, keeping the output according to the capture policy. By default the whole output is kept in
+     * memory, whatever the policy
+     *
+     * @param capturePolicy how to keep the output (in memory, head and tail only, on disk)
+     * @param timeoutSecond
+     * @param cmd
+     * @return
+     * @throws ExecCommandException
+     */
+    default CommandOutput execCommand(OutputCapturePolicy capturePolicy, long timeoutSecond,
+            String... cmd) throws ExecCommandException {
+        return execCommand(timeoutSecond, cmd);
+    }
+
+    /**
+     * Exec a command without timeout, keeping the output according to the capture policy. By default the whole output
+     * is kept in memory, whatever the policy
+     *
+     * @param capturePolicy how to keep the output (in memory, head and tail only, on disk)
+     * @param cmd
+     * @return
+     * @throws ExecCommandException
+     */
+    default CommandOutput execCommand(OutputCapturePolicy capturePolicy, String... cmd) throws ExecCommandException {
+        return execCommand(cmd);
+    }
+
+    /**
+     * Exec a command and forward each output line to the consumer while the command runs.<br>
+     * The consumer is called on the thread reading the output: the command is slowed down (blocked once the output
+     * buffer is full) while the consumer is busy. Throwing an exception from the consumer aborts the command.<br>
+     * Not supported by default: fails without running the command.
+     *
+     * @param capturePolicy how to keep the output (in memory, head and tail only, on disk)
+     * @param lineConsumer  called with each output line
+     * @param timeoutSecond
+     * @param cmd
+     * @return
+     * @throws ExecCommandException
+     */
+    default CommandOutput execCommand(OutputCapturePolicy capturePolicy, Consumer<String> lineConsumer,
+            long timeoutSecond, String... cmd) throws ExecCommandException {
+        throw new ExecCommandException(cmd, "line consumer not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Exec a command without timeout and forward each output line to the consumer while the command runs.<br>
+     * Throwing an exception from the consumer aborts the command.<br>
+     * Not supported by default: fails without running the command.
+     *
+     * @param capturePolicy how to keep the output (in memory, head and tail only, on disk)
+     * @param lineConsumer  called with each output line
+     * @param cmd
+     * @return
+     * @throws ExecCommandException
+     */
+    default CommandOutput execCommand(OutputCapturePolicy capturePolicy, Consumer<String> lineConsumer,
+            String... cmd) throws ExecCommandException {
+        throw new ExecCommandException(cmd, "line consumer not supported by " + getClass().getSimpleName());
+    }
+
 }
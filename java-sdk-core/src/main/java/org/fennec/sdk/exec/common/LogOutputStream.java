@@ -1,44 +1,121 @@
 package org.fennec.sdk.exec.common;
 
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.fennec.sdk.exec.common.capture.InMemoryOutputCapture;
+import org.fennec.sdk.exec.common.capture.OutputCapture;
 import org.slf4j.MDC;
 import org.slf4j.event.Level;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
+ * Split the written bytes in lines and log each line with the given level.<br>
+ * Bytes are accumulated in a growable buffer and only decoded (UTF-8) once a line is complete, so multibyte characters
+ * split across writes are preserved. Lines longer than the max line length are logged in several parts.<br>
+ * Logged lines are kept by an {@link OutputCapture} (the whole output in memory by default) and optionally forwarded
+ * to a line consumer.
+ *
  * @see <a href="https://stackoverflow.com/questions/6995946/log4j-how-do-i-redirect-an-outputstream-or-writer-to-loggers-writers">Thanks Arthur</a>
  */
 @Slf4j
 public class LogOutputStream extends OutputStream {
 
+    public static final int DEFAULT_MAX_LINE_LENGTH = 64 * 1024;
+
+    private static final int INITIAL_CAPACITY = 256;
+
     private final Level level;
 
     private final Map<String, String> mdcContext;
 
+    private final int maxLineLength;
+
+    /**
+     * The bytes of the current line
+     */
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+    private int count;
+
+    /**
+     * Keeps the logged lines
+     */
+    @Getter
+    private final OutputCapture capture;
+
     /**
-     * The internal memory for the written bytes.
+     * The number of bytes written
      */
-    private String localMemory = "";
+    @Getter
+    private long byteCount;
 
-    private StringBuilder allLogs = new StringBuilder();
+    /**
+     * Called with each logged line, may be null
+     */
+    private final Consumer<String> lineConsumer;
 
     public LogOutputStream(Level level, Map<String, String> mdcContext) {
+        this(level, mdcContext, DEFAULT_MAX_LINE_LENGTH, new InMemoryOutputCapture());
+    }
+
+    public LogOutputStream(Level level, Map<String, String> mdcContext, OutputCapture capture) {
+        this(level, mdcContext, DEFAULT_MAX_LINE_LENGTH, capture);
+    }
+
+    public LogOutputStream(Level level, Map<String, String> mdcContext, int maxLineLength) {
+        this(level, mdcContext, maxLineLength, new InMemoryOutputCapture());
+    }
+
+    public LogOutputStream(Level level, Map<String, String> mdcContext, OutputCapture capture,
+            Consumer<String> lineConsumer) {
+        this(level, mdcContext, DEFAULT_MAX_LINE_LENGTH, capture, lineConsumer);
+    }
+
+    public LogOutputStream(Level level, Map<String, String> mdcContext, int maxLineLength, OutputCapture capture) {
+        this(level, mdcContext, maxLineLength, capture, null);
+    }
+
+    public LogOutputStream(Level level, Map<String, String> mdcContext, int maxLineLength, OutputCapture capture,
+            Consumer<String> lineConsumer) {
+        if (maxLineLength < 4) {
+            throw new IllegalArgumentException("Max line length must be at least 4 bytes");
+        }
         this.level = level;
         this.mdcContext = mdcContext;
+        this.maxLineLength = maxLineLength;
+        this.capture = capture;
+        this.lineConsumer = lineConsumer;
     }
 
     @Override
     public void write(byte[] bytes) {
-        localMemory = localMemory + new String(bytes);
+        write(bytes, 0, bytes.length);
+    }
 
-        if (localMemory.endsWith("\n")) {
-            localMemory = localMemory.trim();
-            flush();
+    /**
+     * Writes bytes to the output stream. Each complete line is logged
+     */
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        byteCount += length;
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (bytes[i] == '\n') {
+                append(bytes, start, i - start);
+                logLine();
+                start = i + 1;
+            }
         }
+        append(bytes, start, end - start);
     }
 
     /**
@@ -46,53 +123,137 @@ public class LogOutputStream extends OutputStream {
      */
     @Override
     public void write(int b) {
-        byte[] bytes = new byte[1];
-        bytes[0] = (byte) (b & 0xff);
-        write(bytes);
+        byteCount++;
+        if (b == '\n') {
+            logLine();
+            return;
+        }
+        ensureCapacity(count + 1);
+        buffer[count++] = (byte) b;
+        if (count >= maxLineLength) {
+            logLinePart();
+        }
     }
 
     /**
-     * Flushes the output stream.
+     * Flushes the output stream: the current line is logged even if not terminated.
      */
     @Override
     public void flush() {
-        if (localMemory.isEmpty()) {
+        logLine();
+    }
+
+    /**
+     * @return the captured output
+     */
+    @Override
+    public String toString() {
+        return capture.getData().trim();
+    }
+
+    /**
+     * Log the pending line and complete the capture. The capture itself is not closed: it may outlive the stream
+     */
+    @Override
+    public void close() throws IOException {
+        if (buffer != null) {
+            flush();
+            capture.complete();
+        }
+        super.close();
+        buffer = null;
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            int toCopy = Math.min(length, maxLineLength - count);
+            ensureCapacity(count + toCopy);
+            System.arraycopy(bytes, offset, buffer, count, toCopy);
+            count += toCopy;
+            offset += toCopy;
+            length -= toCopy;
+            if (count >= maxLineLength) {
+                logLinePart();
+            }
+        }
+    }
+
+    /**
+     * Log the first part of a too long line, without splitting a UTF-8 character
+     */
+    private void logLinePart() {
+        // Find the first byte of the last character (continuation bytes are 10xxxxxx)
+        int lead = count - 1;
+        while (lead > 0 && count - lead < 4 && (buffer[lead] & 0xC0) == 0x80) {
+            lead--;
+        }
+        int first = buffer[lead] & 0xFF;
+        int characterLength = first >= 0xF0 ? 4 : first >= 0xE0 ? 3 : first >= 0xC0 ? 2 : 1;
+        // Keep an incomplete character for the next part
+        int cut = lead + characterLength <= count || lead == 0 ? count : lead;
+        log(0, cut);
+        System.arraycopy(buffer, cut, buffer, 0, count - cut);
+        count -= cut;
+    }
+
+    private void logLine() {
+        log(0, count);
+        count = 0;
+    }
+
+    private void log(int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        // Same as String.trim(): UTF-8 multibyte characters never contain bytes lower than space
+        while (start < end && (buffer[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
             return;
         }
-        // To stay in the same context set the context map
-        MDC.setContextMap(mdcContext);
+        String line = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        setMdcContext();
         switch (level) {
             case TRACE:
-                log.trace(localMemory);
+                log.trace(line);
                 break;
             case DEBUG:
-                log.debug(localMemory);
+                log.debug(line);
                 break;
             case INFO:
-                log.info(localMemory);
+                log.info(line);
                 break;
             case WARN:
-                log.warn(localMemory);
+                log.warn(line);
                 break;
             case ERROR:
-                log.error(localMemory);
+                log.error(line);
                 break;
             default:
                 break;
         }
-        allLogs.append(localMemory).append("\n");
-        localMemory = "";
+        capture.append(line);
+        if (lineConsumer != null) {
+            lineConsumer.accept(line);
+        }
     }
 
-    @Override
-    public String toString() {
-        return Optional.ofNullable(allLogs).map(StringBuilder::toString).map(String::trim).orElse("");
+    /**
+     * To stay in the same context set the context map. It is restored on every line: any other key of the thread MDC
+     * may have changed since the previous one
+     */
+    private void setMdcContext() {
+        if (mdcContext != null) {
+            MDC.setContextMap(mdcContext);
+        }
     }
 
-    @Override
-    public void close() throws IOException {
-        super.close();
-        localMemory = null;
-        allLogs = null;
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, Math.min(buffer.length << 1, maxLineLength)));
+        }
     }
 }
@@ -0,0 +1,99 @@
+package org.fennec.sdk.exec.common.capture;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Write the whole output in a temporary file. Only the last lines are kept in memory for {@link #getData()} (used in
+ * failure reasons). The file is deleted on {@link #close()} or at the latest when the JVM exits: the file of a failed
+ * command is only deleted on exit, as the failure reason names it
+ */
+public class FileOutputCapture implements OutputCapture {
+
+    @Getter
+    private final Path file;
+
+    private final BufferedWriter writer;
+
+    private final HeadTailOutputCapture tail;
+
+    private boolean completed;
+
+    public FileOutputCapture(int tailSize) {
+        try {
+            this.file = Files.createTempFile("fennec-output-", ".log");
+            this.file.toFile().deleteOnExit();
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.tail = new FileTailOutputCapture(tailSize);
+    }
+
+    @Override
+    @SneakyThrows
+    public void append(String line) {
+        writer.write(line);
+        writer.write('\n');
+        tail.append(line);
+    }
+
+    @Override
+    @SneakyThrows
+    public void complete() {
+        if (!completed) {
+            completed = true;
+            writer.close();
+        }
+    }
+
+    @Override
+    public String getData() {
+        return tail.getData();
+    }
+
+    @Override
+    @SneakyThrows
+    public Stream<String> lines() {
+        complete();
+        return Files.lines(file, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    @SneakyThrows
+    public InputStream inputStream() {
+        complete();
+        return Files.newInputStream(file);
+    }
+
+    @Override
+    @SneakyThrows
+    public void close() {
+        complete();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Tells where the omitted lines are
+     */
+    private class FileTailOutputCapture extends HeadTailOutputCapture {
+
+        FileTailOutputCapture(int tailSize) {
+            super(0, tailSize);
+        }
+
+        @Override
+        protected String omittedMessage() {
+            return String.format("... %d lines omitted, full output in %s ...", getOmittedLines(), file);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.fennec.sdk.exec.common.capture;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.stream.Stream;
+
+/**
+ * Keep the first and the last lines of the output. The lines in between are only counted
+ */
+public class HeadTailOutputCapture implements OutputCapture {
+
+    private final int headSize;
+
+    private final int tailSize;
+
+    private final StringBuilder head = new StringBuilder();
+
+    private final Deque<String> tail = new ArrayDeque<>();
+
+    private long tailLength;
+
+    private long omittedLines;
+
+    public HeadTailOutputCapture(int headSize, int tailSize) {
+        if (headSize < 0 || tailSize < 0) {
+            throw new IllegalArgumentException("Head and tail sizes must be positive");
+        }
+        this.headSize = headSize;
+        this.tailSize = tailSize;
+    }
+
+    @Override
+    public void append(String line) {
+        if (tail.isEmpty() && omittedLines == 0 && head.length() + line.length() + 1 <= headSize) {
+            head.append(line).append('\n');
+            return;
+        }
+        tail.addLast(line);
+        tailLength += line.length() + 1;
+        // Always keep the last line: it is usually the most meaningful one
+        while (tailLength > tailSize && tail.size() > 1) {
+            tailLength -= tail.removeFirst().length() + 1;
+            omittedLines++;
+        }
+    }
+
+    /**
+     * @return the number of lines that have not been kept
+     */
+    public long getOmittedLines() {
+        return omittedLines;
+    }
+
+    @Override
+    public String getData() {
+        StringBuilder data = new StringBuilder(head.length() + (int) tailLength + 64).append(head);
+        if (omittedLines > 0) {
+            data.append(omittedMessage()).append('\n');
+        }
+        tail.forEach(line -> data.append(line).append('\n'));
+        return data.toString();
+    }
+
+    @Override
+    public Stream<String> lines() {
+        return Stream.concat(head.toString().lines(), tail.stream());
+    }
+
+    @Override
+    public InputStream inputStream() {
+        return new ByteArrayInputStream(getData().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the message replacing the omitted lines
+     */
+    protected String omittedMessage() {
+        return String.format("... %d lines omitted ...", omittedLines);
+    }
+}
@@ -0,0 +1,34 @@
+package org.fennec.sdk.exec.common.capture;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+/**
+ * Keep the whole output in memory
+ */
+public class InMemoryOutputCapture implements OutputCapture {
+
+    private final StringBuilder data = new StringBuilder();
+
+    @Override
+    public void append(String line) {
+        data.append(line).append('\n');
+    }
+
+    @Override
+    public String getData() {
+        return data.toString();
+    }
+
+    @Override
+    public Stream<String> lines() {
+        return getData().lines();
+    }
+
+    @Override
+    public InputStream inputStream() {
+        return new ByteArrayInputStream(getData().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,44 @@
+package org.fennec.sdk.exec.common.capture;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.stream.Stream;
+
+/**
+ * Keep (part of) the output of a command
+ */
+public interface OutputCapture extends Closeable {
+
+    /**
+     * @param line a line of output (without line separator)
+     */
+    void append(String line);
+
+    /**
+     * Called once the command is over. No more lines are appended
+     */
+    default void complete() {
+    }
+
+    /**
+     * @return the captured output. Depending on the capture it may only be a part of it
+     */
+    String getData();
+
+    /**
+     * @return the captured lines. The stream must be closed when reading from disk
+     */
+    Stream<String> lines();
+
+    /**
+     * @return the captured output as UTF-8 bytes. Must be closed
+     */
+    InputStream inputStream();
+
+    /**
+     * Release the resources (such as temporary files)
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,43 @@
+package org.fennec.sdk.exec.common.capture;
+
+/**
+ * Create the {@link OutputCapture} of each command execution
+ */
+@FunctionalInterface
+public interface OutputCapturePolicy {
+
+    /**
+     * @return a new capture for a command
+     */
+    OutputCapture create();
+
+    /**
+     * Keep the whole output in memory (default)
+     *
+     * @return the policy
+     */
+    static OutputCapturePolicy inMemory() {
+        return InMemoryOutputCapture::new;
+    }
+
+    /**
+     * Keep only the beginning and the end of the output in memory
+     *
+     * @param headSize the number of characters to keep from the beginning
+     * @param tailSize the number of characters to keep from the end
+     * @return the policy
+     */
+    static OutputCapturePolicy headTail(int headSize, int tailSize) {
+        return () -> new HeadTailOutputCapture(headSize, tailSize);
+    }
+
+    /**
+     * Write the whole output in a temporary file and keep only the end in memory
+     *
+     * @param tailSize the number of characters to keep from the end in memory
+     * @return the policy
+     */
+    static OutputCapturePolicy spillToFile(int tailSize) {
+        return () -> new FileOutputCapture(tailSize);
+    }
+}
@@ -1,27 +1,37 @@
 package org.fennec.sdk.exec.local;
 
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import org.fennec.sdk.exec.common.*;
+import org.fennec.sdk.exec.common.capture.OutputCapture;
+import org.fennec.sdk.exec.common.capture.OutputCapturePolicy;
+import org.fennec.sdk.pipeline.PipelineConstants;
+import org.fennec.sdk.pipeline.metrics.StageMetricsRecorder;
+import org.fennec.sdk.utils.ThreadUtils;
 import org.fennec.sdk.utils.Utils;
 import org.slf4j.MDC;
 import org.slf4j.event.Level;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 /**
- * Execute actions locally (or on same container)
+ * Execute actions locally (or on same container).<br>
+ * The output of the commands is read on a dedicated executor (virtual threads on JDK 21+, else a bounded pool of
+ * daemon threads sized by the FENNEC_EXEC_MAX_THREADS env, 256 by default) and timeouts are handled by a scheduler:
+ * parallel commands never use the common pool. Once all the threads are busy, extra commands fail: a command whose
+ * output is not read would hang.
  */
 @RequiredArgsConstructor
 public class LocalExecService implements ExecService {
 
+    private static final ExecutorService MONITOR_EXECUTOR = ThreadUtils.newVirtualOrBoundedExecutor("fennec-exec",
+            Utils.positiveIntEnv("FENNEC_EXEC_MAX_THREADS", 256),
+            0);
+
+    private static final ScheduledExecutorService TIMEOUT_SCHEDULER = newTimeoutScheduler();
+
     private final String location;
 
     private final Level level;
@@ -31,6 +41,13 @@ public class LocalExecService implements ExecService {
         this.level = Level.INFO;
     }
 
+    private static ScheduledExecutorService newTimeoutScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                ThreadUtils.daemonThreadFactory("fennec-exec-timeout"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
     public static CommandOutput exec(String... cmd) throws ExecCommandException {
         return new LocalExecService().execCommand(cmd);
     }
@@ -41,85 +58,174 @@ public class LocalExecService implements ExecService {
 
     @Override
     public CommandOutput execCommand(long timeoutSecond, String... cmd) throws ExecCommandException {
-        return executeCommand(timeoutSecond, cmd);
+        return executeCommand(OutputCapturePolicy.inMemory(), null, timeoutSecond, cmd);
     }
 
     @Override
     public CommandOutput execCommand(String... cmd) throws ExecCommandException {
-        return executeCommand(null, cmd);
+        return executeCommand(OutputCapturePolicy.inMemory(), null, null, cmd);
+    }
+
+    @Override
+    public CommandOutput execCommand(OutputCapturePolicy capturePolicy, long timeoutSecond,
+            String... cmd) throws ExecCommandException {
+        return executeCommand(capturePolicy, null, timeoutSecond, cmd);
+    }
+
+    @Override
+    public CommandOutput execCommand(OutputCapturePolicy capturePolicy, String... cmd) throws ExecCommandException {
+        return executeCommand(capturePolicy, null, null, cmd);
+    }
+
+    @Override
+    public CommandOutput execCommand(OutputCapturePolicy capturePolicy, Consumer<String> lineConsumer,
+            long timeoutSecond, String... cmd) throws ExecCommandException {
+        return executeCommand(capturePolicy, lineConsumer, timeoutSecond, cmd);
+    }
+
+    @Override
+    public CommandOutput execCommand(OutputCapturePolicy capturePolicy, Consumer<String> lineConsumer,
+            String... cmd) throws ExecCommandException {
+        return executeCommand(capturePolicy, lineConsumer, null, cmd);
     }
 
-    private CommandOutput executeCommand(Long timeoutSecond, String... cmd) throws ExecCommandException {
+    private CommandOutput executeCommand(OutputCapturePolicy capturePolicy, Consumer<String> lineConsumer,
+            Long timeoutSecond, String... cmd) throws ExecCommandException {
+        Process process;
         try {
             ProcessBuilder builder = new ProcessBuilder();
             builder.command(cmd).redirectErrorStream(true).directory(new File(location));
-            Process process = builder.start();
-            if (timeoutSecond == null) {
-                return monitorProcess(process, cmd);
-            }
-            return monitorProcessWithTimeout(timeoutSecond, process, cmd);
+            process = builder.start();
         } catch (IOException e) {
             throw new ExecCommandException(cmd, e);
         }
-    }
 
-    private CommandOutput monitorProcessWithTimeout(Long timeoutSecond, Process process,
-            String[] cmd) throws ExecCommandException {
+        long startNanos = System.nanoTime();
+        String stageName = MDC.get(PipelineConstants.STAGE_NAME);
+        CompletableFuture<CommandOutput> result = new CompletableFuture<>();
+        OutputCapture capture = capturePolicy.create();
+        // Stop the process (and its children which may keep the output open) when the consumer fails
+        AbortableLineConsumer abortableLineConsumer = lineConsumer == null ? null : new AbortableLineConsumer(
+                lineConsumer,
+                e -> destroy(process));
+        // The MDC context is captured on the calling thread: the output is read on another one
+        LogOutputStream logOutputStream = new LogOutputStream(level,
+                MDC.getCopyOfContextMap(),
+                capture,
+                abortableLineConsumer);
+        result.whenComplete((output, e) -> StageMetricsRecorder.recordExec(stageName,
+                System.nanoTime() - startNanos,
+                logOutputStream.getByteCount()));
         try {
-            return CompletableFuture.supplyAsync(() -> {
-                try {
-                    return monitorProcess(process, cmd);
-                } catch (ExecCommandException e) {
-                    throw new ExecAsyncCommandException(e);
+            MONITOR_EXECUTOR.execute(() -> monitorProcess(process,
+                    logOutputStream,
+                    abortableLineConsumer,
+                    result,
+                    cmd));
+        } catch (RejectedExecutionException e) {
+            destroy(process);
+            ExecCommandException exception = new ExecCommandException(cmd,
+                    "too many running commands (FENNEC_EXEC_MAX_THREADS)",
+                    e);
+            capture.close();
+            result.completeExceptionally(exception);
+            throw exception;
+        }
+
+        ScheduledFuture<?> timeout = null;
+        if (timeoutSecond != null) {
+            timeout = TIMEOUT_SCHEDULER.schedule(() -> {
+                // In case of timeout destroy the process
+                if (result.completeExceptionally(new ExecCommandException(cmd,
+                        String.format("Timeout after %ds", timeoutSecond),
+                        new TimeoutException()))) {
+                    destroy(process);
                 }
-            }).get(timeoutSecond, TimeUnit.SECONDS);
+            }, timeoutSecond, TimeUnit.SECONDS);
+        }
+
+        try {
+            return result.get();
         } catch (ExecutionException e) {
-            if  (e.getCause() instanceof  ExecAsyncCommandException) {
-                throw ((ExecAsyncCommandException) e.getCause()).getExecCommandException();
+            if (e.getCause() instanceof ExecCommandException) {
+                throw (ExecCommandException) e.getCause();
             }
-            throw new ExecCommandException(cmd, e);
+            throw new ExecCommandException(cmd, e.getCause());
         } catch (InterruptedException e) {
+            // The output capture is released by the monitor once the output is closed
+            result.completeExceptionally(e);
+            destroy(process);
             Thread.currentThread().interrupt();
             throw new ExecCommandException(cmd, e);
-        } catch (TimeoutException e) {
-            // In case of timeout destroy the process
-            process.destroy();
-            throw new ExecCommandException(cmd, String.format("Timeout after %ds", timeoutSecond), e);
+        } finally {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
         }
     }
 
-    @SneakyThrows
-    private CommandOutput monitorProcess(Process process, String... cmd) throws ExecCommandException {
-        ProcessBuilder builder = new ProcessBuilder();
-        builder.command(cmd).redirectErrorStream(true).directory(new File(location));
-        try (LogOutputStream logOutputStream = new LogOutputStream(level, MDC.getCopyOfContextMap())){
-            InputStreamReader reader = new InputStreamReader(process.getInputStream());
-            BufferedReader br = new BufferedReader(reader);
-            String line;
-
-            while ((line = br.readLine()) != null) {
-                logOutputStream.write(line.getBytes());
-                logOutputStream.write("\n".getBytes());
+    /**
+     * Read the output until it is closed then complete the result once the process exits, without waiting for it
+     */
+    private void monitorProcess(Process process, LogOutputStream logOutputStream,
+            AbortableLineConsumer abortableLineConsumer, CompletableFuture<CommandOutput> result, String... cmd) {
+        try {
+            // The stream splits the output in lines: no need to decode it here
+            process.getInputStream().transferTo(logOutputStream);
+            logOutputStream.close();
+        } catch (IOException | RuntimeException e) {
+            // Destroying the process (timeout, interruption, consumer failure) closes its output
+            close(logOutputStream);
+            if (abortableLineConsumer != null && abortableLineConsumer.getFailure() != null) {
+                fail(result, logOutputStream, new ExecCommandException(cmd,
+                        "line consumer error",
+                        abortableLineConsumer.getFailure()));
+                return;
             }
+            fail(result, logOutputStream, new ExecCommandException(cmd, e));
+            return;
+        }
 
-            process.waitFor();
-
+        process.onExit().whenComplete((exited, e) -> {
+            if (abortableLineConsumer != null && abortableLineConsumer.getFailure() != null) {
+                fail(result, logOutputStream, new ExecCommandException(cmd,
+                        "line consumer error",
+                        abortableLineConsumer.getFailure()));
+                return;
+            }
             int exitCode = process.exitValue();
-
             if (exitCode != 0) {
-                ExecCommandException exception = new ExecCommandException(cmd, exitCode, logOutputStream.toString());
-                logOutputStream.close();
-                throw exception;
+                fail(result, logOutputStream, new ExecCommandException(cmd, exitCode, logOutputStream.toString()));
+                return;
             }
+            CommandOutput output = new CommandOutput(exitCode, logOutputStream.toString(), logOutputStream.getCapture());
+            if (!result.complete(output)) {
+                // Timed out or interrupted meanwhile
+                logOutputStream.getCapture().close();
+            }
+        });
+    }
 
-            CommandOutput commandOutput = new CommandOutput(exitCode, logOutputStream.toString());
+    private static void fail(CompletableFuture<CommandOutput> result, LogOutputStream logOutputStream,
+            ExecCommandException exception) {
+        if (result.completeExceptionally(exception)) {
+            // Kept until the JVM exits: the failure reason may name the file holding the full output
+            logOutputStream.getCapture().complete();
+        } else {
+            logOutputStream.getCapture().close();
+        }
+    }
+
+    private static void close(LogOutputStream logOutputStream) {
+        try {
             logOutputStream.close();
-            return commandOutput;
         } catch (IOException e) {
-            throw new ExecCommandException(cmd, e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new ExecCommandException(cmd, e);
+            // DO NOTHING
         }
     }
+
+    private static void destroy(Process process) {
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+    }
 }
@@ -2,69 +2,54 @@ package org.fennec.sdk.log;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.IThrowableProxy;
-import ch.qos.logback.classic.spi.StackTraceElementProxy;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.stream.Collectors;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class LogUtils {
 
     public static final String SECRET = "secret.";
-    private static final String CONCEALMENT = "******";
-
-    public static String getFormattedMessage(ILoggingEvent event) {
-        return appendStackTraceIfNeeded(concealMessage(event.getFormattedMessage(), event.getMDCPropertyMap()),
-                event.getThrowableProxy())
-                // Remove colorization
-                .replaceAll("\\u001b\\[.*?m", "");
-    }
 
     /**
-     * Reformat the logs as it does not provide direct link to {@link Throwable}
-     *
-     * @param throwableProxy
-     * @return the formatted stack trace
+     * The MDC map of an event is the same instance until the MDC changes: keep its concealer per thread
      */
-    private static String appendStackTraceIfNeeded(String message, IThrowableProxy throwableProxy) {
-        if (throwableProxy == null || throwableProxy.getClass() == null) {
-            return message;
-        }
-        return String.format("%s%n%s", message, getStackTraceString(throwableProxy));
-    }
+    private static final ThreadLocal<MdcConcealer> LAST_CONCEALER = new ThreadLocal<>();
 
-    private static String getStackTraceString(IThrowableProxy throwableProxy) {
+    public static String getFormattedMessage(ILoggingEvent event) {
+        SecretConcealer concealer = getConcealer(event.getMDCPropertyMap());
+        // Conceal the secrets and remove colorization in a single pass
+        String message = concealer.concealAndStripAnsi(event.getFormattedMessage());
+        IThrowableProxy throwableProxy = event.getThrowableProxy();
         if (throwableProxy == null) {
-            return "";
+            return message;
         }
-        return new StringBuilder()
-                .append(throwableProxy.getClassName())
-                .append(": ")
-                .append(throwableProxy.getMessage())
-                .append("\n")
-                .append(Arrays
-                        .asList(throwableProxy.getStackTraceElementProxyArray())
-                        .stream()
-                        .map(StackTraceElementProxy::getSTEAsString)
-                        .map(element -> "  " + element)
-                        .collect(Collectors.joining("\n")))
-                .append(getStackTraceString(throwableProxy.getCause()))
-                .toString();
+        // Reformat the stack trace as the event does not provide direct link to the Throwable
+        return message + "\n" + concealer.concealAndStripAnsi(StackTraceRenderer.getDefault().render(throwableProxy));
     }
 
-    private static String concealMessage(String message, Map<String, String> map) {
-        return concealMessage(message,
-                map
-                        .entrySet()
-                        .stream()
-                        .filter(e -> e.getKey().startsWith(SECRET))
-                        .map(Entry::getValue)
-                        .collect(Collectors.toList()));
+    private static SecretConcealer getConcealer(Map<String, String> map) {
+        if (map == null || map.isEmpty()) {
+            return SecretConcealer.none();
+        }
+        MdcConcealer last = LAST_CONCEALER.get();
+        if (last != null && last.map == map) {
+            return last.concealer;
+        }
+        List<String> secrets = new ArrayList<>();
+        for (Entry<String, String> entry : map.entrySet()) {
+            if (entry.getKey().startsWith(SECRET)) {
+                secrets.add(entry.getValue());
+            }
+        }
+        SecretConcealer concealer = SecretConcealer.of(secrets);
+        LAST_CONCEALER.set(new MdcConcealer(map, concealer));
+        return concealer;
     }
 
     /**
@@ -76,12 +61,14 @@ public class LogUtils {
         if (toConceal == null) {
             return message;
         }
-        for (String conceal : toConceal) {
-            while (message.indexOf(conceal) != -1) {
-                message = message.replace(conceal, CONCEALMENT);
-            }
-        }
-        return message;
+        return SecretConcealer.of(toConceal).conceal(message);
     }
 
+    @RequiredArgsConstructor
+    private static class MdcConcealer {
+
+        private final Map<String, String> map;
+
+        private final SecretConcealer concealer;
+    }
 }
@@ -0,0 +1,303 @@
+package org.fennec.sdk.log;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conceal a set of secrets in a single pass over a message, whatever the number of secrets (Aho-Corasick automaton).
+ * <br>
+ * The ANSI color codes can be removed in the same pass: a secret split by color codes is concealed as well.
+ * Overlapping secrets are concealed as a single block. Concealers are immutable and cached per set of secrets.
+ */
+public final class SecretConcealer {
+
+    public static final String CONCEALMENT = "******";
+
+    private static final SecretConcealer NONE = new SecretConcealer(Collections.emptyList());
+
+    private static final int MAX_CACHED = 256;
+
+    private static final Map<List<String>, SecretConcealer> CACHE = new ConcurrentHashMap<>();
+
+    private static final char ESCAPE = '\u001b';
+
+    private static final int ROOT = 0;
+
+    private static final int ASCII = 128;
+
+    /**
+     * The number of states with an ASCII table (128 ints each): the closest to the root, the most visited ones
+     */
+    private static final int MAX_DENSE_STATES = 256;
+
+    /**
+     * The sorted transitions characters of each state
+     */
+    private char[][] transitionChars;
+
+    /**
+     * The target states of each transition
+     */
+    private int[][] transitionTargets;
+
+    /**
+     * The state reached on the longest proper suffix of each state
+     */
+    private int[] failures;
+
+    /**
+     * The length of the longest secret ending on each state, 0 if none
+     */
+    private int[] matchLengths;
+
+    /**
+     * The row of each state in the ASCII table, -1 if it has none
+     */
+    private int[] asciiRows;
+
+    /**
+     * The next state of the states with a row for ASCII characters, failures included: <code>row * 128 + char</code>
+     */
+    private int[] asciiNextStates;
+
+    private SecretConcealer(Collection<String> secrets) {
+        build(secrets);
+    }
+
+    /**
+     * @param secrets the secrets to conceal, null and empty values are ignored
+     * @return the concealer of the secrets, cached for the same secrets
+     */
+    public static SecretConcealer of(Collection<String> secrets) {
+        if (secrets == null || secrets.isEmpty()) {
+            return NONE;
+        }
+        List<String> key = secrets instanceof List ? (List<String>) secrets : new ArrayList<>(secrets);
+        SecretConcealer concealer = CACHE.get(key);
+        if (concealer != null) {
+            return concealer;
+        }
+        if (CACHE.size() >= MAX_CACHED) {
+            // Secrets rarely change during a pipeline: no need for a finer eviction
+            CACHE.clear();
+        }
+        return CACHE.computeIfAbsent(Collections.unmodifiableList(new ArrayList<>(key)), SecretConcealer::new);
+    }
+
+    /**
+     * @return a concealer without secrets, only removing ANSI color codes
+     */
+    public static SecretConcealer none() {
+        return NONE;
+    }
+
+    /**
+     * @param message the message
+     * @return the message with secrets concealed
+     */
+    public String conceal(String message) {
+        return process(message, false);
+    }
+
+    /**
+     * @param message the message
+     * @return the message without ANSI color codes and with secrets concealed
+     */
+    public String concealAndStripAnsi(String message) {
+        return process(message, true);
+    }
+
+    private String process(String message, boolean stripAnsi) {
+        if (message == null || (matchLengths.length == 1 && (!stripAnsi || message.indexOf(ESCAPE) < 0))) {
+            return message;
+        }
+        int length = message.length();
+        StringBuilder visible = null;
+        // The concealed ranges [start, end) of the visible characters, merged and sorted
+        int[] ranges = null;
+        int rangeCount = 0;
+        int state = ROOT;
+        int visibleLength = 0;
+        // The visible characters are copied by runs, between the color codes
+        int runStart = 0;
+        int i = 0;
+        while (i < length) {
+            char c = message.charAt(i);
+            if (stripAnsi && c == ESCAPE) {
+                int end = ansiSequenceEnd(message, i);
+                if (end > 0) {
+                    if (visible == null) {
+                        visible = new StringBuilder(length);
+                    }
+                    visible.append(message, runStart, i);
+                    i = end;
+                    runStart = end;
+                    continue;
+                }
+            }
+            visibleLength++;
+            i++;
+            state = next(state, c);
+            int matchLength = matchLengths[state];
+            if (matchLength > 0) {
+                int start = visibleLength - matchLength;
+                // A longer secret may cover several previous ranges
+                while (rangeCount > 0 && start < ranges[2 * rangeCount - 1]) {
+                    start = Math.min(start, ranges[2 * rangeCount - 2]);
+                    rangeCount--;
+                }
+                if (ranges == null) {
+                    ranges = new int[8];
+                } else if (2 * rangeCount + 2 > ranges.length) {
+                    ranges = Arrays.copyOf(ranges, ranges.length * 2);
+                }
+                ranges[2 * rangeCount] = start;
+                ranges[2 * rangeCount + 1] = visibleLength;
+                rangeCount++;
+            }
+        }
+        if (visible != null) {
+            visible.append(message, runStart, length);
+        }
+        CharSequence text = visible == null ? message : visible;
+        if (rangeCount == 0) {
+            return text.toString();
+        }
+        StringBuilder concealed = new StringBuilder(visibleLength + rangeCount * CONCEALMENT.length());
+        int position = 0;
+        for (int range = 0; range < rangeCount; range++) {
+            concealed.append(text, position, ranges[2 * range]).append(CONCEALMENT);
+            position = ranges[2 * range + 1];
+        }
+        return concealed.append(text, position, visibleLength).toString();
+    }
+
+    /**
+     * Same as the former <code>ESC\[.*?m</code> regular expression: the sequence ends on the same line
+     *
+     * @return the index following the color code starting at index, -1 if none
+     */
+    private static int ansiSequenceEnd(String message, int index) {
+        if (index + 1 >= message.length() || message.charAt(index + 1) != '[') {
+            return -1;
+        }
+        for (int i = index + 2; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c == 'm') {
+                return i + 1;
+            }
+            if (isLineTerminator(c)) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private int next(int state, char c) {
+        if (c < ASCII && asciiNextStates != null) {
+            int row = asciiRows[state];
+            if (row >= 0) {
+                return asciiNextStates[row * ASCII + c];
+            }
+        }
+        while (true) {
+            int target = transition(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = failures[state];
+        }
+    }
+
+    private int transition(int state, char c) {
+        int index = Arrays.binarySearch(transitionChars[state], c);
+        return index >= 0 ? transitionTargets[state][index] : -1;
+    }
+
+    private void build(Collection<String> secrets) {
+        // Build the trie with sorted transitions
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        lengths.add(0);
+        for (String secret : secrets) {
+            if (secret == null || secret.isEmpty()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < secret.length(); i++) {
+                Integer target = trie.get(state).get(secret.charAt(i));
+                if (target == null) {
+                    target = trie.size();
+                    trie.add(new TreeMap<>());
+                    lengths.add(0);
+                    trie.get(state).put(secret.charAt(i), target);
+                }
+                state = target;
+            }
+            lengths.set(state, secret.length());
+        }
+
+        int size = trie.size();
+        transitionChars = new char[size][];
+        transitionTargets = new int[size][];
+        matchLengths = new int[size];
+        failures = new int[size];
+        for (int state = 0; state < size; state++) {
+            TreeMap<Character, Integer> transitions = trie.get(state);
+            transitionChars[state] = new char[transitions.size()];
+            transitionTargets[state] = new int[transitions.size()];
+            int index = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                transitionChars[state][index] = transition.getKey();
+                transitionTargets[state][index] = transition.getValue();
+                index++;
+            }
+            matchLengths[state] = lengths.get(state);
+        }
+
+        // Breadth first: the failure of a state is known before the states below it
+        int[] breadthFirst = new int[size];
+        int visited = 1;
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int target : transitionTargets[ROOT]) {
+            failures[target] = ROOT;
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            breadthFirst[visited++] = state;
+            for (int index = 0; index < transitionChars[state].length; index++) {
+                int target = transitionTargets[state][index];
+                int failure = next(failures[state], transitionChars[state][index]);
+                failures[target] = failure;
+                // The secrets ending here are suffixes of the longest one
+                matchLengths[target] = Math.max(matchLengths[target], matchLengths[failure]);
+                queue.add(target);
+            }
+        }
+
+        // Most of the output is ASCII: no failure to follow for those characters from the states closest to the root,
+        // the deeper ones use the sorted transitions not to grow the table with the number of secrets
+        int denseStates = Math.min(size, MAX_DENSE_STATES);
+        int[] rows = new int[size];
+        Arrays.fill(rows, -1);
+        int[] nextStates = new int[denseStates * ASCII];
+        for (int row = 0; row < denseStates; row++) {
+            int state = breadthFirst[row];
+            rows[state] = row;
+            for (char c = 0; c < ASCII; c++) {
+                nextStates[row * ASCII + c] = next(state, c);
+            }
+        }
+        asciiRows = rows;
+        asciiNextStates = nextStates;
+    }
+}
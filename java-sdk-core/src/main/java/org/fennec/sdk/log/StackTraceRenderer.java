@@ -0,0 +1,152 @@
+package org.fennec.sdk.log;
+
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.StackTraceElementProxy;
+import lombok.Getter;
+import org.fennec.sdk.utils.Utils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Render the stack trace of a log event into a reused buffer.<br>
+ * The frames shared with the enclosing trace are omitted (as logback does) and the number of frames per throwable and
+ * of nested causes are limited, by default by the FENNEC_STACK_TRACE_MAX_FRAMES (64) and FENNEC_STACK_TRACE_MAX_CAUSES
+ * (8) envs. The traces of the throwable proxies logged several times are only rendered once.
+ */
+public class StackTraceRenderer {
+
+    private static final int MAX_BUFFER_SIZE = 64 * 1024;
+
+    private static final String INDENT = "  ";
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private static volatile StackTraceRenderer defaultRenderer = new StackTraceRenderer(Utils.positiveIntEnv(
+            "FENNEC_STACK_TRACE_MAX_FRAMES",
+            64), Utils.positiveIntEnv("FENNEC_STACK_TRACE_MAX_CAUSES", 8));
+
+    /**
+     * The throwable proxies are compared by identity: a weak map lets them be collected with their event
+     */
+    private final Map<IThrowableProxy, String> rendered = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Getter
+    private final int maxFrames;
+
+    @Getter
+    private final int maxCauses;
+
+    /**
+     * @param maxFrames the maximum number of frames rendered per throwable
+     * @param maxCauses the maximum number of causes and suppressed throwables rendered
+     */
+    public StackTraceRenderer(int maxFrames, int maxCauses) {
+        if (maxFrames < 0 || maxCauses < 0) {
+            throw new IllegalArgumentException("The limits must be positive");
+        }
+        this.maxFrames = maxFrames;
+        this.maxCauses = maxCauses;
+    }
+
+    /**
+     * @return the renderer used by the log appenders
+     */
+    public static StackTraceRenderer getDefault() {
+        return defaultRenderer;
+    }
+
+    /**
+     * @param renderer the renderer to be used by the log appenders
+     */
+    public static void setDefault(StackTraceRenderer renderer) {
+        defaultRenderer = renderer;
+    }
+
+    /**
+     * @param throwableProxy the throwable to render
+     * @return the stack trace, empty if none
+     */
+    public String render(IThrowableProxy throwableProxy) {
+        if (throwableProxy == null) {
+            return "";
+        }
+        String trace = rendered.get(throwableProxy);
+        if (trace == null) {
+            StringBuilder buffer = BUFFER.get();
+            buffer.setLength(0);
+            append(buffer, throwableProxy, "", "", new int[] { maxCauses });
+            trace = buffer.toString();
+            if (buffer.capacity() > MAX_BUFFER_SIZE) {
+                // Do not keep a huge buffer per thread because of a single trace
+                BUFFER.remove();
+            }
+            rendered.put(throwableProxy, trace);
+        }
+        return trace;
+    }
+
+    /**
+     * @param remainingCauses the number of causes and suppressed throwables which can still be rendered
+     */
+    private void append(StringBuilder buffer, IThrowableProxy throwableProxy, String prefix, String indent,
+            int[] remainingCauses) {
+        buffer.append(indent).append(prefix).append(throwableProxy.getClassName());
+        if (throwableProxy.getMessage() != null) {
+            buffer.append(": ").append(throwableProxy.getMessage());
+        }
+
+        StackTraceElementProxy[] frames = throwableProxy.getStackTraceElementProxyArray();
+        int commonFrames = Math.min(Math.max(throwableProxy.getCommonFrames(), 0), frames.length);
+        int ownFrames = frames.length - commonFrames;
+        int renderedFrames = Math.min(ownFrames, maxFrames);
+        for (int i = 0; i < renderedFrames; i++) {
+            buffer.append('\n').append(indent).append(INDENT).append(frames[i].getSTEAsString());
+        }
+        if (renderedFrames < ownFrames) {
+            buffer
+                    .append('\n')
+                    .append(indent)
+                    .append(INDENT)
+                    .append("... ")
+                    .append(ownFrames - renderedFrames)
+                    .append(" frames truncated");
+        }
+        if (commonFrames > 0) {
+            buffer
+                    .append('\n')
+                    .append(indent)
+                    .append(INDENT)
+                    .append("... ")
+                    .append(commonFrames)
+                    .append(" common frames omitted");
+        }
+
+        IThrowableProxy[] suppressed = throwableProxy.getSuppressed();
+        if (suppressed != null) {
+            for (IThrowableProxy suppressedProxy : suppressed) {
+                appendNested(buffer, suppressedProxy, "Suppressed: ", indent + INDENT, remainingCauses);
+            }
+        }
+        if (throwableProxy.getCause() != null) {
+            appendNested(buffer, throwableProxy.getCause(), "Caused by: ", indent, remainingCauses);
+        }
+    }
+
+    private void appendNested(StringBuilder buffer, IThrowableProxy throwableProxy, String prefix, String indent,
+            int[] remainingCauses) {
+        if (remainingCauses[0] < 0) {
+            return;
+        }
+        if (remainingCauses[0] == 0) {
+            // Only said once
+            remainingCauses[0] = -1;
+            buffer.append('\n').append(indent).append(prefix).append("... more causes omitted");
+            return;
+        }
+        remainingCauses[0]--;
+        buffer.append('\n');
+        append(buffer, throwableProxy, prefix, indent, remainingCauses);
+    }
+}
@@ -0,0 +1,58 @@
+package org.fennec.sdk.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Submit at most maxConcurrency tasks at the same time to the delegate executor, the others wait in a queue
+ */
+class ConcurrencyLimitedExecutor implements Executor {
+
+    private final Executor delegate;
+
+    private final int maxConcurrency;
+
+    private final Queue<Runnable> queue = new ArrayDeque<>();
+
+    private int running;
+
+    ConcurrencyLimitedExecutor(Executor delegate, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be at least 1");
+        }
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        queue.add(task);
+        submitNext();
+    }
+
+    private synchronized void submitNext() {
+        while (running < maxConcurrency && !queue.isEmpty()) {
+            Runnable task = queue.poll();
+            running++;
+            try {
+                delegate.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        done();
+                    }
+                });
+            } catch (RuntimeException | Error e) {
+                // The task never ran, give its slot back
+                running--;
+                throw e;
+            }
+        }
+    }
+
+    private synchronized void done() {
+        running--;
+        submitNext();
+    }
+}
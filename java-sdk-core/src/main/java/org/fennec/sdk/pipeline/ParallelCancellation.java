@@ -0,0 +1,72 @@
+package org.fennec.sdk.pipeline;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fail-fast state of a parallel block: the first failing stage interrupts the threads of the running siblings and
+ * the stages not started yet are skipped. Interrupting a stage stops the commands it is waiting for.
+ */
+class ParallelCancellation {
+
+    /**
+     * The threads of the running stages, by stage name
+     */
+    private final Map<String, Thread> running = new HashMap<>();
+
+    private final Set<String> cancelled = new HashSet<>();
+
+    private String failedStage;
+
+    /**
+     * @param stageName the stage starting on the current thread
+     * @return false if the block has already failed: the stage must not run
+     */
+    synchronized boolean register(String stageName) {
+        if (failedStage != null) {
+            cancelled.add(stageName);
+            return false;
+        }
+        running.put(stageName, Thread.currentThread());
+        return true;
+    }
+
+    /**
+     * The stage is over: its thread is not interrupted anymore, a pending interruption is cleared
+     *
+     * @param stageName the stage over on the current thread
+     * @return true if the stage has been cancelled
+     */
+    synchronized boolean unregister(String stageName) {
+        running.remove(stageName);
+        if (cancelled.contains(stageName)) {
+            Thread.interrupted();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cancel the other stages, only the first failure is taken into account
+     *
+     * @param stageName the failed stage
+     */
+    synchronized void fail(String stageName) {
+        if (failedStage != null) {
+            return;
+        }
+        failedStage = stageName;
+        running.forEach((name, thread) -> {
+            if (!name.equals(stageName)) {
+                cancelled.add(name);
+                thread.interrupt();
+            }
+        });
+    }
+
+    synchronized String getFailedStage() {
+        return failedStage;
+    }
+}
@@ -7,12 +7,21 @@ import org.fennec.sdk.error.Fail;
 import org.fennec.sdk.model.commons.Deployment;
 import org.fennec.sdk.model.commons.DeploymentType;
 import org.fennec.sdk.model.commons.Link;
+import org.fennec.sdk.pipeline.events.AsyncEventDispatcher;
+import org.fennec.sdk.pipeline.events.LogCoalescer;
+import org.fennec.sdk.pipeline.events.LogRateLimiter;
+import org.fennec.sdk.pipeline.events.OverflowPolicy;
+import org.fennec.sdk.pipeline.events.transport.EventTransport;
+import org.fennec.sdk.pipeline.metrics.StageMetricsExporter;
+import org.fennec.sdk.pipeline.metrics.StageMetricsRecorder;
 import org.fennec.sdk.pipeline.model.ExecStage;
 import org.fennec.sdk.pipeline.model.SimpleStageHandler;
 import org.slf4j.MDC;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -31,6 +40,16 @@ public class Pipeline {
      */
     private final Runnable failPipeline;
 
+    /**
+     * Runs the stages of the parallel blocks
+     */
+    private StageExecutorStrategy stageExecutorStrategy = StageExecutorStrategy.threadPerStage();
+
+    /**
+     * Cancel the other stages of a parallel block as soon as one fails
+     */
+    private boolean failFast;
+
     public static final Pipeline pipeline() {
         if (PIPELINE == null) {
             PIPELINE = new Pipeline(() -> System.exit(1));
@@ -43,6 +62,126 @@ public class Pipeline {
         return PIPELINE;
     }
 
+    public static final Pipeline configure(Runnable failPipeline, StageExecutorStrategy stageExecutorStrategy) {
+        PIPELINE = new Pipeline(failPipeline).withStageExecutorStrategy(stageExecutorStrategy);
+        return PIPELINE;
+    }
+
+    /**
+     * Using static import choose how parallel stages are run (a thread per stage by default)
+     *
+     * <pre>
+     *
+     * parallelExecution(StageExecutorStrategy.maxConcurrency(4));
+     *
+     * </pre>
+     *
+     * @param stageExecutorStrategy the executor strategy of parallel blocks
+     */
+    public static void parallelExecution(StageExecutorStrategy stageExecutorStrategy) {
+        pipeline().withStageExecutorStrategy(stageExecutorStrategy);
+    }
+
+    /**
+     * Using static import cancel the other stages of a parallel block as soon as one fails. The threads of the
+     * cancelled stages are interrupted (stopping the commands they wait for) and rollbacks start once they are over
+     *
+     * <pre>
+     *
+     * failFast(true);
+     *
+     * </pre>
+     *
+     * @param enabled true to cancel the siblings of a failed stage
+     */
+    public static void failFast(boolean enabled) {
+        pipeline().withFailFast(enabled);
+    }
+
+    /**
+     * Using static import record the timings and resources of each stage. The metrics are attached to the end stage
+     * events and given to the exporters
+     *
+     * <pre>
+     *
+     * metrics(new PrometheusTextFileExporter(Path.of("metrics/pipeline.prom")));
+     *
+     * </pre>
+     *
+     * @param exporters receive the metrics of each stage once it is over
+     */
+    public static void metrics(StageMetricsExporter... exporters) {
+        StageMetricsRecorder.enable(exporters);
+    }
+
+    /**
+     * Using static import publish the consecutive logs of a stage with the same level together, within 50 ms and 64K
+     * characters. Reduces the number of events of verbose stages
+     *
+     * <pre>
+     *
+     * coalesceLogs();
+     *
+     * </pre>
+     */
+    public static void coalesceLogs() {
+        StageEventPublisher.enableCoalescing(LogCoalescer.DEFAULT_WINDOW_MS, LogCoalescer.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Using static import limit the logs of each stage: a runaway stage cannot flood the events collector. The
+     * suppressed lines are counted and reported every 5 seconds and when the stage ends
+     *
+     * <pre>
+     *
+     * rateLimitLogs(100, 1000, true);
+     *
+     * </pre>
+     *
+     * @param linesPerSecond   the number of lines a stage can log per second once its burst is consumed
+     * @param burst            the number of lines a stage can log at once
+     * @param keepWarnAndError true if WARN and ERROR logs are never suppressed
+     */
+    public static void rateLimitLogs(double linesPerSecond, int burst, boolean keepWarnAndError) {
+        StageEventPublisher.enableRateLimit(linesPerSecond,
+                burst,
+                keepWarnAndError,
+                LogRateLimiter.DEFAULT_SUMMARY_INTERVAL_MS);
+    }
+
+    /**
+     * Using static import send the events with another transport than the console, for instance directly to the
+     * sidecar
+     *
+     * <pre>
+     *
+     * eventTransport(EventTransports.unixSocket(Path.of("/var/run/fennec/events.sock")));
+     *
+     * </pre>
+     *
+     * @param transport the transport
+     */
+    public static void eventTransport(EventTransport transport) {
+        StageEventPublisher.setTransport(transport);
+    }
+
+    /**
+     * Using static import publish the events asynchronously. Stages never wait on the console output
+     *
+     * <pre>
+     *
+     * asyncEvents(OverflowPolicy.DROP_DEBUG_TRACE);
+     *
+     * </pre>
+     *
+     * @param overflowPolicy what to do when the events buffer is full
+     */
+    public static void asyncEvents(OverflowPolicy overflowPolicy) {
+        StageEventPublisher.enableAsync(AsyncEventDispatcher.DEFAULT_CAPACITY,
+                AsyncEventDispatcher.DEFAULT_BATCH_SIZE,
+                overflowPolicy);
+    }
+
     /**
      * Using static import rename the pipeline
      *
@@ -150,6 +289,32 @@ public class Pipeline {
         pipeline().execParallel(parallelName, parallelStages);
     }
 
+    /**
+     * Using static import run stages as soon as the stages they depend on succeeded. The stages are displayed as a
+     * parallel block named after the graph
+     *
+     * <pre>
+     *
+     * graph("Build and deploy", 4, (graph) -&gt; {
+     *    graph.stage("Build image", (context) -&gt; {
+     *    });
+     *    graph.stage("Integration tests", (context) -&gt; {
+     *    });
+     *    graph.stage("Deploy", (context) -&gt; {
+     *    }).dependsOn("Build image", "Integration tests");
+     * });
+     * </pre>
+     *
+     * @param graphName      the graph name
+     * @param maxConcurrency the max number of stages running at the same time
+     * @param definition     declares the stages of the graph
+     */
+    public static void graph(String graphName, int maxConcurrency, Consumer<StageGraph> definition) {
+        StageGraph graph = new StageGraph(graphName, maxConcurrency);
+        definition.accept(graph);
+        pipeline().execGraph(graph);
+    }
+
     /**
      * Wrap a deployment in a stage
      *
@@ -247,6 +412,28 @@ public class Pipeline {
         pipeline().execDeployment(target, indicator, parallelDeployments, parallelRollbacks);
     }
 
+    /**
+     * Choose how parallel stages are run
+     *
+     * @param stageExecutorStrategy the executor strategy of parallel blocks
+     * @return the pipeline
+     */
+    public Pipeline withStageExecutorStrategy(StageExecutorStrategy stageExecutorStrategy) {
+        this.stageExecutorStrategy = Objects.requireNonNull(stageExecutorStrategy);
+        return this;
+    }
+
+    /**
+     * Cancel the other stages of a parallel block as soon as one fails
+     *
+     * @param enabled true to cancel the siblings of a failed stage
+     * @return the pipeline
+     */
+    public Pipeline withFailFast(boolean enabled) {
+        this.failFast = enabled;
+        return this;
+    }
+
     /**
      * Rename the pipeline
      *
@@ -316,7 +503,7 @@ public class Pipeline {
      */
     public Pipeline runSimpleStage(String name, SimpleStageHandler handler) {
         if (!runSimpleStage(new ExecStage(name, handler))) {
-            failPipeline.run();
+            failPipeline();
         }
         return this;
     }
@@ -344,7 +531,28 @@ public class Pipeline {
                 .stream()
                 .map(e -> new ExecStage(e.getKey(), parallelName, e.getValue()))
                 .collect(Collectors.toList()))) {
-            failPipeline.run();
+            failPipeline();
+        }
+        return this;
+    }
+
+    /**
+     * Runs the stages of a graph as soon as the stages they depend on succeeded and return current pipeline. The
+     * stages depending on a failed stage are skipped
+     *
+     * @param graph the stage graph
+     * @return the pipeline
+     */
+    public Pipeline execGraph(StageGraph graph) {
+        Optional<String> error = graph.validate();
+        if (error.isPresent()) {
+            // Create a failing stage
+            runSimpleStage(new ExecStage(graph.getName(), (context) -> Fail.fail(error.get())));
+            failPipeline();
+            return this;
+        }
+        if (!runGraph(graph)) {
+            failPipeline();
         }
         return this;
     }
@@ -369,7 +577,7 @@ public class Pipeline {
         if (!runSimpleStage(new ExecStage(DEPLOY_TO + target,
                 new Deployment(target, DeploymentType.LOAD),
                 deploymentHandler))) {
-            failPipeline.run();
+            failPipeline();
         }
         return this;
     }
@@ -403,7 +611,7 @@ public class Pipeline {
             runSimpleStage(new ExecStage("Rollback " + target,
                     new Deployment(target, DeploymentType.ROLLBACK),
                     rollbackHandler));
-            failPipeline.run();
+            failPipeline();
         }
         return this;
     }
@@ -439,7 +647,7 @@ public class Pipeline {
                         e.getValue()))
                 .collect(Collectors.toList());
         if (!runParallelStages(stages)) {
-            failPipeline.run();
+            failPipeline();
         }
         return this;
     }
@@ -487,7 +695,7 @@ public class Pipeline {
                         parallelDeployments.keySet().stream().sorted().collect(Collectors.toList()),
                         parallelRollbacks.keySet().stream().sorted().collect(Collectors.toList())));
             }));
-            failPipeline.run();
+            failPipeline();
         }
 
         List<ExecStage> stages = parallelDeployments
@@ -509,11 +717,19 @@ public class Pipeline {
                             e.getValue()))
                     .collect(Collectors.toList());
             runParallelStages(rollbackStages);
-            failPipeline.run();
+            failPipeline();
         }
         return this;
     }
 
+    /**
+     * Flush pending events before failing as the failure handler may stop the JVM
+     */
+    private void failPipeline() {
+        StageEventPublisher.flush();
+        failPipeline.run();
+    }
+
     /**
      * Execute parallel stage
      *
@@ -522,11 +738,18 @@ public class Pipeline {
      */
     private boolean runParallelStages(List<ExecStage> execStages) {
         try {
+            Executor executor = stageExecutorStrategy.executor(execStages.size());
+            ParallelCancellation cancellation = failFast ? new ParallelCancellation() : null;
             List<CompletableFuture<Boolean>> completableFutures = new ArrayList<CompletableFuture<Boolean>>();
             // Use a for loop as stream force sync
             for (ExecStage execStage : execStages) {
-                completableFutures.add(CompletableFuture.supplyAsync(() -> runSimpleStage(execStage)));
+                long submittedNanos = System.nanoTime();
+                completableFutures.add(CompletableFuture.supplyAsync(() -> runSimpleStage(execStage,
+                        cancellation,
+                        submittedNanos), executor));
             }
+            // Wait for every stage (cancelled ones included) before a rollback can start
+            CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).join();
             return completableFutures.stream().map(CompletableFuture::join).allMatch(Boolean::valueOf);
         } catch (Exception e) {
             log.error("Caught exception while executing Parallel \"{}\" ", execStages.get(0).getParallel(), e);
@@ -536,6 +759,33 @@ public class Pipeline {
         }
     }
 
+    /**
+     * Execute a stage graph
+     *
+     * @param graph the stage graph
+     * @return true if stages are success
+     */
+    private boolean runGraph(StageGraph graph) {
+        try {
+            Executor executor = new ConcurrencyLimitedExecutor(stageExecutorStrategy.executor(graph.size()),
+                    graph.getMaxConcurrency());
+            ParallelCancellation cancellation = failFast ? new ParallelCancellation() : null;
+            return graph.run(executor,
+                    (graphStage, readyNanos) -> runSimpleStage(new ExecStage(graphStage.getName(),
+                            graph.getName(),
+                            graphStage.getHandler()), cancellation, readyNanos),
+                    (graphStage, failedStage) -> {
+                        eventPublisher.start(graphStage.getName(), graph.getName(), null);
+                        eventPublisher.skip(graphStage.getName(), failedStage);
+                    });
+        } catch (Exception e) {
+            log.error("Caught exception while executing Graph \"{}\" ", graph.getName(), e);
+            return false;
+        } finally {
+            MDC.clear();
+        }
+    }
+
     /**
      * Execute a stage
      *
@@ -543,6 +793,18 @@ public class Pipeline {
      * @return true if success
      */
     private boolean runSimpleStage(ExecStage stage) {
+        return runSimpleStage(stage, null, System.nanoTime());
+    }
+
+    /**
+     * Execute a stage of a parallel block
+     *
+     * @param stage          the execution stage
+     * @param cancellation   the fail-fast state of the block, null if disabled
+     * @param submittedNanos when the stage has been submitted to the executor ({@link System#nanoTime()})
+     * @return true if success
+     */
+    private boolean runSimpleStage(ExecStage stage, ParallelCancellation cancellation, long submittedNanos) {
         Map<String, String> mdcContextMap = Optional.ofNullable(MDC.getCopyOfContextMap()).orElse(new HashMap<>());
         mdcContextMap.put(PipelineConstants.STAGE_NAME, stage.getName());
         if (stage.getParallel() != null) {
@@ -552,17 +814,35 @@ public class Pipeline {
         StageContext context = new StageContextDefaultImpl(stage.getName(),
                 stage.getParallel(),
                 pipelineContext.getVersion());
+        StageMetricsRecorder.stageStarted(stage.getName(), System.nanoTime() - submittedNanos);
         eventPublisher.start(stage.getName(), stage.getParallel(), stage.getDeployment());
         try {
+            if (cancellation != null && !cancellation.register(stage.getName())) {
+                eventPublisher.cancel(stage.getName(), cancellation.getFailedStage(), context.getTestResults());
+                return false;
+            }
             stage.getHandler().run(context);
+            if (cancellation != null && cancellation.unregister(stage.getName())) {
+                // The outcome of an interrupted stage is not reliable
+                eventPublisher.cancel(stage.getName(), cancellation.getFailedStage(), context.getTestResults());
+                return false;
+            }
             eventPublisher.end(stage.getName(), context.getTestResults());
             if (context.getVersion() != null) {
                 pipelineContext.setVersion(context.getVersion());
             }
             return true;
         } catch (Exception e) {
+            if (cancellation != null && cancellation.unregister(stage.getName())) {
+                log.warn("\"{}\" cancelled as \"{}\" failed", stage.getName(), cancellation.getFailedStage());
+                eventPublisher.cancel(stage.getName(), cancellation.getFailedStage(), context.getTestResults());
+                return false;
+            }
             log.error("Caught exception while executing \"{}\" ", stage.getName(), e);
             eventPublisher.error(stage.getName(), e, context.getTestResults());
+            if (cancellation != null) {
+                cancellation.fail(stage.getName());
+            }
             return false;
         } finally {
             MDC.clear();
@@ -1,19 +1,29 @@
 package org.fennec.sdk.pipeline;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.SneakyThrows;
 import org.fennec.sdk.model.commons.Deployment;
 import org.fennec.sdk.model.commons.Link;
 import org.fennec.sdk.model.commons.TestReport;
 import org.fennec.sdk.model.events.*;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.fennec.sdk.pipeline.events.AsyncEventDispatcher;
+import org.fennec.sdk.pipeline.events.BinaryEventEncoder;
+import org.fennec.sdk.pipeline.events.EventBuffer;
+import org.fennec.sdk.pipeline.events.LogCoalescer;
+import org.fennec.sdk.pipeline.events.LogRateLimiter;
+import org.fennec.sdk.pipeline.events.OverflowPolicy;
+import org.fennec.sdk.pipeline.events.StageEventEncoder;
+import org.fennec.sdk.pipeline.events.transport.EventEncoding;
+import org.fennec.sdk.pipeline.events.transport.EventTransport;
+import org.fennec.sdk.pipeline.events.transport.EventTransports;
+import org.fennec.sdk.pipeline.events.transport.LoggerEventTransport;
+import org.fennec.sdk.pipeline.metrics.StageMetricsRecorder;
+import org.fennec.sdk.utils.Utils;
 import org.slf4j.event.Level;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.IOException;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The stage event publisher is providing capability to send stages information (start, end, log) to the side car
@@ -21,9 +31,204 @@ import java.util.List;
  */
 public class StageEventPublisher {
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private static final long FLUSH_TIMEOUT_SECONDS = 30;
 
-    private static final Logger EVENT_LOGGER = LoggerFactory.getLogger("fennec-print-events");
+    /**
+     * Where the events are sent, the "fennec-print-events" logger unless configured by the FENNEC_EVENTS_TRANSPORT
+     * env. Only used while holding its lock
+     */
+    private static volatile EventTransport transport = defaultTransport();
+
+    /**
+     * The binary encoder of the current transport, holding its stage dictionary. Guarded by the transport lock
+     */
+    private static BinaryEventEncoder binaryEncoder;
+
+    private static EventTransport binaryEncoderTransport;
+
+    /**
+     * When set, events are published asynchronously
+     */
+    private static volatile AsyncEventDispatcher asyncDispatcher;
+
+    /**
+     * When set, consecutive logs of a stage are published together
+     */
+    private static volatile LogCoalescer coalescer;
+
+    /**
+     * When set, the logs of each stage are rate limited
+     */
+    private static volatile LogRateLimiter rateLimiter;
+
+    /**
+     * Flush the pending logs and events on JVM shutdown, registered while needed
+     */
+    private static Thread shutdownHook;
+
+    /**
+     * Publish the events asynchronously from now. Events are flushed on JVM shutdown
+     *
+     * @param capacity       the events buffer capacity
+     * @param batchSize      the maximum number of events written at once
+     * @param overflowPolicy what to do when the buffer is full
+     */
+    public static synchronized void enableAsync(int capacity, int batchSize, OverflowPolicy overflowPolicy) {
+        disableAsync();
+        asyncDispatcher = new AsyncEventDispatcher(capacity,
+                batchSize,
+                overflowPolicy,
+                StageEventPublisher::writeStageEvents);
+        updateShutdownHook();
+    }
+
+    /**
+     * Flush pending events and publish synchronously from now
+     */
+    public static synchronized void disableAsync() {
+        AsyncEventDispatcher dispatcher = asyncDispatcher;
+        if (dispatcher == null) {
+            return;
+        }
+        asyncDispatcher = null;
+        dispatcher.close();
+        updateShutdownHook();
+    }
+
+    /**
+     * Publish the consecutive logs of a stage with the same level together from now. Logs are flushed on JVM
+     * shutdown
+     *
+     * @param windowMs the maximum time a log waits for the next ones
+     * @param maxSize  the maximum number of characters published together
+     */
+    public static synchronized void enableCoalescing(long windowMs, int maxSize) {
+        disableCoalescing();
+        coalescer = new LogCoalescer(windowMs, maxSize, StageEventPublisher::publish);
+        updateShutdownHook();
+    }
+
+    /**
+     * Publish the pending logs and publish each log on its own from now
+     */
+    public static synchronized void disableCoalescing() {
+        LogCoalescer current = coalescer;
+        if (current == null) {
+            return;
+        }
+        coalescer = null;
+        current.close();
+        updateShutdownHook();
+    }
+
+    /**
+     * Limit the logs of each stage from now. The suppressed lines are reported periodically and on JVM shutdown
+     *
+     * @param linesPerSecond    the number of lines a stage can log per second once its burst is consumed
+     * @param burst             the number of lines a stage can log at once
+     * @param keepWarnAndError  true if WARN and ERROR logs are never suppressed
+     * @param summaryIntervalMs the interval between two reports of the suppressed lines
+     */
+    public static synchronized void enableRateLimit(double linesPerSecond, int burst, boolean keepWarnAndError,
+            long summaryIntervalMs) {
+        disableRateLimit();
+        rateLimiter = new LogRateLimiter(linesPerSecond,
+                burst,
+                keepWarnAndError,
+                summaryIntervalMs,
+                StageEventPublisher::publishAfterPendingLogs);
+        updateShutdownHook();
+    }
+
+    /**
+     * Report the suppressed lines and publish every log from now
+     */
+    public static synchronized void disableRateLimit() {
+        LogRateLimiter current = rateLimiter;
+        if (current == null) {
+            return;
+        }
+        rateLimiter = null;
+        current.close();
+        updateShutdownHook();
+    }
+
+    private static void updateShutdownHook() {
+        boolean needed = asyncDispatcher != null || coalescer != null || rateLimiter != null;
+        try {
+            if (needed && shutdownHook == null) {
+                shutdownHook = new Thread(StageEventPublisher::flushOnShutdown, "fennec-events-shutdown");
+                Runtime.getRuntime().addShutdownHook(shutdownHook);
+            } else if (!needed && shutdownHook != null) {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                shutdownHook = null;
+            }
+        } catch (IllegalStateException e) {
+            // JVM is already shutting down
+        }
+    }
+
+    /**
+     * The suppressed lines reports and the pending logs first, as they are published through the dispatcher
+     */
+    private static void flushOnShutdown() {
+        LogRateLimiter currentRateLimiter = rateLimiter;
+        if (currentRateLimiter != null) {
+            currentRateLimiter.close();
+        }
+        LogCoalescer currentCoalescer = coalescer;
+        if (currentCoalescer != null) {
+            currentCoalescer.close();
+        }
+        AsyncEventDispatcher dispatcher = asyncDispatcher;
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+    }
+
+    /**
+     * Send the events with a transport from now. The previous transport is flushed and closed
+     *
+     * @param eventTransport the transport
+     */
+    public static synchronized void setTransport(EventTransport eventTransport) {
+        flush();
+        EventTransport previous = transport;
+        synchronized (previous) {
+            transport = Objects.requireNonNull(eventTransport);
+            close(previous);
+        }
+    }
+
+    private static EventTransport defaultTransport() {
+        String uri = Utils.env(EventTransports.TRANSPORT_ENV, "logger");
+        try {
+            return EventTransports.fromUri(uri);
+        } catch (IOException | RuntimeException e) {
+            // Nothing can be logged: logs are events
+            System.err.printf("Cannot open events transport [%s], using the console: %s%n", uri, e);
+            return EventTransports.logger();
+        }
+    }
+
+    /**
+     * Wait until every event published so far is printed, pending coalesced logs and suppressed lines reports
+     * included
+     */
+    public static void flush() {
+        LogRateLimiter currentRateLimiter = rateLimiter;
+        if (currentRateLimiter != null) {
+            currentRateLimiter.flushAll();
+        }
+        LogCoalescer currentCoalescer = coalescer;
+        if (currentCoalescer != null) {
+            currentCoalescer.flushAll();
+        }
+        AsyncEventDispatcher dispatcher = asyncDispatcher;
+        if (dispatcher != null) {
+            dispatcher.flush(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
 
     /**
      * Update job
@@ -53,7 +258,7 @@ public class StageEventPublisher {
      * @param testReport the test report
      */
     public void end(String stageName, TestReport testReport) {
-        printStageEvent(new EndStageEvent(System.currentTimeMillis(), stageName, null, testReport));
+        printStageEvent(endStageEvent(stageName, null, testReport));
     }
 
     /**
@@ -64,7 +269,28 @@ public class StageEventPublisher {
      * @param testReport the test report
      */
     public void error(String stageName, Throwable t, TestReport testReport) {
-        printStageEvent(new EndStageEvent(System.currentTimeMillis(), stageName, "Caught Exception while executing \"" + stageName + "\": " + t.getMessage(), testReport));
+        printStageEvent(endStageEvent(stageName, "Caught Exception while executing \"" + stageName + "\": " + t.getMessage(), testReport));
+    }
+
+    /**
+     * Finish a stage cancelled because a sibling failed
+     *
+     * @param stageName       the stage name
+     * @param failedStageName the failed sibling
+     * @param testReport      the test report
+     */
+    public void cancel(String stageName, String failedStageName, TestReport testReport) {
+        printStageEvent(endStageEvent(stageName, "Cancelled as \"" + failedStageName + "\" failed", testReport));
+    }
+
+    /**
+     * Finish a stage skipped because a stage it depends on failed
+     *
+     * @param stageName       the stage name
+     * @param failedStageName the failed dependency
+     */
+    public void skip(String stageName, String failedStageName) {
+        printStageEvent(endStageEvent(stageName, "Skipped as \"" + failedStageName + "\" failed", null));
     }
 
     /**
@@ -74,7 +300,7 @@ public class StageEventPublisher {
      * @param error     the error as string
      */
     public void error(String stageName, String error) {
-        printStageEvent(new EndStageEvent(System.currentTimeMillis(), stageName, error, null));
+        printStageEvent(endStageEvent(stageName, error, null));
     }
 
     /**
@@ -85,13 +311,153 @@ public class StageEventPublisher {
      * @param message   the message
      */
     public void log(String stageName, Level level, String message) {
+        LogRateLimiter currentRateLimiter = rateLimiter;
+        if (currentRateLimiter != null && !currentRateLimiter.tryAcquire(stageName, level)) {
+            return;
+        }
+        LogCoalescer currentCoalescer = coalescer;
+        if (currentCoalescer != null && stageName != null) {
+            if (transport.isEnabled()) {
+                currentCoalescer.log(stageName, level, message);
+            }
+            return;
+        }
         printStageEvent(new StageLogEvent(System.currentTimeMillis(), stageName, level, message));
     }
 
-    @SneakyThrows
+    /**
+     * @return the end stage event, with the stage metrics when recorded
+     */
+    private static EndStageEvent endStageEvent(String stageName, String reason, TestReport testReport) {
+        EndStageEvent event = new EndStageEvent(System.currentTimeMillis(), stageName, reason, testReport);
+        event.setMetrics(StageMetricsRecorder.stageEnded(stageName));
+        return event;
+    }
+
     private <T extends TimestampedEvent> void printStageEvent(T data) {
-        if (EVENT_LOGGER.isInfoEnabled()) {
-            EVENT_LOGGER.info(OBJECT_MAPPER.writeValueAsString(data));
+        LogRateLimiter currentRateLimiter = rateLimiter;
+        if (currentRateLimiter != null && data instanceof EndStageEvent) {
+            currentRateLimiter.remove(((StageEvent) data).getStage());
+        } else if (currentRateLimiter != null && data instanceof StageEvent && !(data instanceof StageLogEvent)) {
+            // The suppressed lines of the stage are reported before its next events
+            currentRateLimiter.flush(((StageEvent) data).getStage());
+        }
+        publishAfterPendingLogs(data);
+    }
+
+    private static void publishAfterPendingLogs(TimestampedEvent data) {
+        LogCoalescer currentCoalescer = coalescer;
+        if (currentCoalescer != null && data instanceof StageEvent && ((StageEvent) data).getStage() != null) {
+            // The pending logs of the stage come first
+            if (data instanceof EndStageEvent) {
+                currentCoalescer.remove(((StageEvent) data).getStage());
+            } else {
+                currentCoalescer.flush(((StageEvent) data).getStage());
+            }
+        }
+        publish(data);
+    }
+
+    private static void publish(TimestampedEvent data) {
+        if (!transport.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        AsyncEventDispatcher dispatcher = asyncDispatcher;
+        if (dispatcher != null) {
+            dispatcher.publish(data);
+        } else {
+            writeStageEvents(List.of(data));
+        }
+        if (data instanceof StageEvent) {
+            StageMetricsRecorder.recordEventPublish(((StageEvent) data).getStage(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Send a batch of events, flushed at once
+     */
+    private static void writeStageEvents(List<TimestampedEvent> events) {
+        EventTransport current = transport;
+        synchronized (current) {
+            if (current != transport) {
+                // Replaced meanwhile
+                writeStageEvents(events);
+                return;
+            }
+            for (TimestampedEvent event : events) {
+                EventBuffer encoded = encode(current, event);
+                if (!send(current, encoded)) {
+                    fallback(current, events);
+                    return;
+                }
+            }
+            if (!flushTransport(current)) {
+                fallback(current, events);
+            }
+        }
+    }
+
+    /**
+     * @return false if the transport failed
+     */
+    private static boolean send(EventTransport eventTransport, EventBuffer encoded) {
+        try {
+            eventTransport.write(encoded);
+            return true;
+        } catch (IOException e) {
+            System.err.printf("Cannot send events, using the console from now: %s%n", e);
+            return false;
+        }
+    }
+
+    /**
+     * @return false if the transport failed
+     */
+    private static boolean flushTransport(EventTransport eventTransport) {
+        try {
+            eventTransport.flush();
+            return true;
+        } catch (IOException e) {
+            System.err.printf("Cannot send events, using the console from now: %s%n", e);
+            return false;
+        }
+    }
+
+    /**
+     * Encoding errors are not transport errors: they are thrown as is
+     */
+    @SneakyThrows
+    private static EventBuffer encode(EventTransport eventTransport, TimestampedEvent event) {
+        if (eventTransport.getEncoding() != EventEncoding.BINARY) {
+            return StageEventEncoder.get().encode(event);
+        }
+        if (binaryEncoderTransport != eventTransport) {
+            // A new stream: a new dictionary
+            binaryEncoder = new BinaryEventEncoder();
+            binaryEncoderTransport = eventTransport;
+        }
+        return binaryEncoder.encode(event);
+    }
+
+    /**
+     * The sidecar cannot be reached anymore: print the events on the console from now
+     */
+    private static void fallback(EventTransport failed, List<TimestampedEvent> events) {
+        LoggerEventTransport logger = new LoggerEventTransport();
+        transport = logger;
+        close(failed);
+        // Some events of the batch may have been sent already: better twice than never
+        for (TimestampedEvent event : events) {
+            logger.write(encode(logger, event));
+        }
+    }
+
+    private static void close(EventTransport eventTransport) {
+        try {
+            eventTransport.close();
+        } catch (IOException e) {
+            // DO NOTHING
         }
     }
 }
@@ -0,0 +1,56 @@
+package org.fennec.sdk.pipeline;
+
+import org.fennec.sdk.utils.ThreadUtils;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Choose the executor running the stages of each parallel block
+ */
+@FunctionalInterface
+public interface StageExecutorStrategy {
+
+    /**
+     * @param stageCount the number of stages of the parallel block
+     * @return the executor running the stages of the block
+     */
+    Executor executor(int stageCount);
+
+    /**
+     * Run each stage on its own thread, virtual on JDK 21+ (default). All the stages of a block run concurrently
+     *
+     * @return the strategy
+     */
+    static StageExecutorStrategy threadPerStage() {
+        ThreadFactory threadFactory = ThreadUtils
+                .virtualThreadFactory("fennec-stage")
+                .orElseGet(() -> ThreadUtils.daemonThreadFactory("fennec-stage"));
+        return stageCount -> runnable -> threadFactory.newThread(runnable).start();
+    }
+
+    /**
+     * Run the stages on a pool shared by all the parallel blocks. Nested parallel blocks need more threads than the
+     * nesting depth
+     *
+     * @param threads the number of threads of the pool
+     * @return the strategy
+     */
+    static StageExecutorStrategy fixedPool(int threads) {
+        ExecutorService pool = ThreadUtils.newBoundedExecutor("fennec-stage", threads);
+        return stageCount -> pool;
+    }
+
+    /**
+     * Run each stage on its own thread, virtual on JDK 21+, but at most maxConcurrency stages of a block at the same
+     * time
+     *
+     * @param maxConcurrency the max number of stages of a block running at the same time
+     * @return the strategy
+     */
+    static StageExecutorStrategy maxConcurrency(int maxConcurrency) {
+        StageExecutorStrategy threadPerStage = threadPerStage();
+        return stageCount -> new ConcurrencyLimitedExecutor(threadPerStage.executor(stageCount), maxConcurrency);
+    }
+}
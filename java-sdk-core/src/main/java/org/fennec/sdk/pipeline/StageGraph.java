@@ -0,0 +1,239 @@
+package org.fennec.sdk.pipeline;
+
+import lombok.Getter;
+import org.fennec.sdk.pipeline.model.GraphStage;
+import org.fennec.sdk.pipeline.model.SimpleStageHandler;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Stages declaring their dependencies. A stage runs as soon as all its dependencies succeeded, at most
+ * maxConcurrency stages at the same time. The stages depending (even indirectly) on a failed stage are skipped.
+ *
+ * <pre>
+ *
+ * StageGraph graph = new StageGraph("Build and deploy", 4);
+ * graph.stage("Build image", (context) -&gt; {
+ * });
+ * graph.stage("Integration tests", (context) -&gt; {
+ * });
+ * graph.stage("Deploy", (context) -&gt; {
+ * }).dependsOn("Build image", "Integration tests");
+ *
+ * </pre>
+ */
+public class StageGraph {
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final int maxConcurrency;
+
+    private final Map<String, GraphStage> stages = new LinkedHashMap<>();
+
+    public StageGraph(String name, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be at least 1");
+        }
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Add a stage to the graph
+     *
+     * @param stageName the stage name, unique in the graph
+     * @param handler   the execution handler
+     * @return the stage, to declare its dependencies
+     */
+    public GraphStage stage(String stageName, SimpleStageHandler handler) {
+        if (stages.containsKey(stageName)) {
+            throw new IllegalArgumentException(String.format("Stage \"%s\" is declared twice", stageName));
+        }
+        GraphStage stage = new GraphStage(stageName, handler);
+        stages.put(stageName, stage);
+        return stage;
+    }
+
+    /**
+     * @return the number of stages
+     */
+    public int size() {
+        return stages.size();
+    }
+
+    /**
+     * @return the error if a dependency is unknown or if stages depend on each other
+     */
+    Optional<String> validate() {
+        for (GraphStage stage : stages.values()) {
+            for (String dependency : stage.getDependencies()) {
+                if (!stages.containsKey(dependency)) {
+                    return Optional.of(String.format("Stage \"%s\" depends on unknown stage \"%s\"",
+                            stage.getName(),
+                            dependency));
+                }
+            }
+        }
+        // Kahn's algorithm: the stages never ready are in a cycle
+        Map<String, Integer> remaining = remainingDependencies();
+        Deque<String> ready = new ArrayDeque<>();
+        remaining.forEach((stageName, count) -> {
+            if (count == 0) {
+                ready.add(stageName);
+            }
+        });
+        Map<String, List<String>> dependents = dependents();
+        int sorted = 0;
+        while (!ready.isEmpty()) {
+            sorted++;
+            for (String dependent : dependents.get(ready.poll())) {
+                if (remaining.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (sorted < stages.size()) {
+            return Optional.of(String.format("Stages %s depend on each other",
+                    remaining
+                            .entrySet()
+                            .stream()
+                            .filter(e -> e.getValue() > 0)
+                            .map(Map.Entry::getKey)
+                            .sorted()
+                            .collect(Collectors.toList())));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Run the graph and wait for the end of all the stages. The graph must be valid
+     *
+     * @param executor  runs the stages
+     * @param runStage  run a stage, given when it became ready ({@link System#nanoTime()}), return true on success
+     * @param skipStage called with the stages skipped and the failed stage they depend on
+     * @return true if all the stages succeeded
+     */
+    boolean run(Executor executor, BiPredicate<GraphStage, Long> runStage,
+            BiConsumer<GraphStage, String> skipStage) {
+        GraphRun run = new GraphRun(executor, runStage, skipStage);
+        run.start();
+        return run.done.join();
+    }
+
+    private Map<String, Integer> remainingDependencies() {
+        Map<String, Integer> remaining = new LinkedHashMap<>();
+        stages.values().forEach(stage -> remaining.put(stage.getName(), stage.getDependencies().size()));
+        return remaining;
+    }
+
+    private Map<String, List<String>> dependents() {
+        Map<String, List<String>> dependents = new HashMap<>();
+        stages.keySet().forEach(stageName -> dependents.put(stageName, new ArrayList<>()));
+        stages.values().forEach(stage -> stage
+                .getDependencies()
+                .forEach(dependency -> dependents.get(dependency).add(stage.getName())));
+        return dependents;
+    }
+
+    /**
+     * The state of a graph execution
+     */
+    private class GraphRun {
+
+        private final Executor executor;
+
+        private final BiPredicate<GraphStage, Long> runStage;
+
+        private final BiConsumer<GraphStage, String> skipStage;
+
+        private final Map<String, Integer> remaining = remainingDependencies();
+
+        private final Map<String, List<String>> dependents = dependents();
+
+        private final Set<String> skipped = new HashSet<>();
+
+        private final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+        private int pending = stages.size();
+
+        private boolean success = true;
+
+        GraphRun(Executor executor, BiPredicate<GraphStage, Long> runStage,
+                BiConsumer<GraphStage, String> skipStage) {
+            this.executor = executor;
+            this.runStage = runStage;
+            this.skipStage = skipStage;
+        }
+
+        void start() {
+            if (stages.isEmpty()) {
+                done.complete(true);
+                return;
+            }
+            remaining.forEach((stageName, count) -> {
+                if (count == 0) {
+                    submit(stages.get(stageName));
+                }
+            });
+        }
+
+        private void submit(GraphStage stage) {
+            long readyNanos = System.nanoTime();
+            executor.execute(() -> {
+                boolean stageSuccess;
+                try {
+                    stageSuccess = runStage.test(stage, readyNanos);
+                } catch (RuntimeException e) {
+                    stageSuccess = false;
+                }
+                onStageEnd(stage, stageSuccess);
+            });
+        }
+
+        private void onStageEnd(GraphStage stage, boolean stageSuccess) {
+            List<GraphStage> ready = new ArrayList<>();
+            List<GraphStage> toSkip = new ArrayList<>();
+            boolean over;
+            boolean result;
+            synchronized (this) {
+                if (stageSuccess) {
+                    for (String dependent : dependents.get(stage.getName())) {
+                        if (remaining.merge(dependent, -1, Integer::sum) == 0 && !skipped.contains(dependent)) {
+                            ready.add(stages.get(dependent));
+                        }
+                    }
+                } else {
+                    success = false;
+                    collectDependents(stage.getName(), toSkip);
+                }
+            }
+            toSkip.forEach(skippedStage -> skipStage.accept(skippedStage, stage.getName()));
+            // Only count the skipped stages once published: the graph must not end before
+            synchronized (this) {
+                pending -= 1 + toSkip.size();
+                over = pending == 0;
+                result = success;
+            }
+            ready.forEach(this::submit);
+            if (over) {
+                done.complete(result);
+            }
+        }
+
+        private void collectDependents(String stageName, List<GraphStage> toSkip) {
+            for (String dependent : dependents.get(stageName)) {
+                if (skipped.add(dependent)) {
+                    toSkip.add(stages.get(dependent));
+                    collectDependents(dependent, toSkip);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package org.fennec.sdk.pipeline.events;
+
+import lombok.Getter;
+import org.fennec.sdk.model.events.StageLogEvent;
+import org.fennec.sdk.model.events.TimestampedEvent;
+import org.slf4j.event.Level;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Publish events asynchronously. Events are stored in a bounded ring buffer and a single drainer thread writes them
+ * by batches. Stage threads never wait on the output unless the buffer is full and the {@link OverflowPolicy} says so.
+ * Once closed, the events are written by the publishers one at a time, after the pending ones.<br>
+ * <i>This class does not log anything as logs are themselves published through it</i>
+ */
+public class AsyncEventDispatcher implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 65536;
+
+    public static final int DEFAULT_BATCH_SIZE = 512;
+
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long CLOSE_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * The maximum number of characters of a coalesced log
+     */
+    private static final int MAX_MERGED_SIZE = LogCoalescer.DEFAULT_MAX_SIZE;
+
+    private final EventRingBuffer<TimestampedEvent> ringBuffer;
+
+    private final Consumer<List<TimestampedEvent>> writer;
+
+    @Getter
+    private final OverflowPolicy overflowPolicy;
+
+    private final int batchSize;
+
+    private final Thread drainer;
+
+    private final Object overflowLock = new Object();
+
+    /**
+     * Events published while the ring buffer was full (only with {@link OverflowPolicy#COALESCE}). Bounded by the ring
+     * buffer capacity
+     */
+    private List<TimestampedEvent> overflow = new ArrayList<>();
+
+    private final int maxOverflow;
+
+    /**
+     * The last overflow entry when logs can still be merged into it: a copy of the first log, its message is only set
+     * once sealed. Guarded by the overflow lock
+     */
+    private StageLogEvent mergedLog;
+
+    private StringBuilder mergedMessage;
+
+    /**
+     * Counted down once the events published before close are written
+     */
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    /**
+     * Keep the writer single threaded once closed
+     */
+    private final Object closedWriteLock = new Object();
+
+    private volatile boolean overflowing;
+
+    private volatile boolean drainerParked;
+
+    private volatile boolean running = true;
+
+    private final AtomicLong published = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Only updated by the drainer
+     */
+    private volatile long written;
+
+    /**
+     * @param capacity       the ring buffer capacity (rounded to the next power of two)
+     * @param batchSize      the maximum number of events given to the writer at once
+     * @param overflowPolicy what to do when the ring buffer is full
+     * @param writer         the writer. Always called by a single thread at a time
+     */
+    public AsyncEventDispatcher(int capacity, int batchSize, OverflowPolicy overflowPolicy,
+            Consumer<List<TimestampedEvent>> writer) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.ringBuffer = new EventRingBuffer<>(capacity);
+        this.maxOverflow = ringBuffer.capacity();
+        this.batchSize = batchSize;
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
+        this.writer = Objects.requireNonNull(writer);
+        this.drainer = new Thread(this::drain, "fennec-events-drainer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Publish an event. Once closed the event is written synchronously, after the events published before
+     *
+     * @param event the event to publish
+     */
+    public void publish(TimestampedEvent event) {
+        if (!running) {
+            writeAfterClose(event);
+            return;
+        }
+        if (overflowing && overflowPolicy == OverflowPolicy.COALESCE) {
+            coalesce(event);
+            return;
+        }
+        if (ringBuffer.offer(event)) {
+            published.incrementAndGet();
+            wakeUpDrainer();
+            if (!running) {
+                // Closed meanwhile: the event may have been offered after the last drain
+                writeAfterClose(null);
+            }
+            return;
+        }
+        switch (overflowPolicy) {
+            case COALESCE:
+                coalesce(event);
+                break;
+            case DROP_DEBUG_TRACE:
+                if (isLowPriority(event)) {
+                    dropped.incrementAndGet();
+                    break;
+                }
+                waitAndPublish(event);
+                break;
+            case BLOCK:
+            default:
+                waitAndPublish(event);
+                break;
+        }
+    }
+
+    /**
+     * Wait until all the events published before this call are written
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the timeout unit
+     * @return true if everything has been written
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long target = published.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (written < target) {
+            if (!drainer.isAlive() || System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of events dropped because of the {@link OverflowPolicy#DROP_DEBUG_TRACE} policy, or
+     * published after close while the writer was still stuck
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Stop the drainer once every pending event is written
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(CLOSE_TIMEOUT_MS);
+            synchronized (closedWriteLock) {
+                if (!drainer.isAlive()) {
+                    // Events published while the drainer was stopping
+                    drain();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closed.countDown();
+        }
+    }
+
+    /**
+     * Write on the publisher thread once the drainer is stopped, one publisher at a time and after the events still
+     * pending
+     *
+     * @param event the event, null to only write the pending events
+     */
+    private void writeAfterClose(TimestampedEvent event) {
+        // The drain writes the ring buffer then the overflow
+        try {
+            closed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (closedWriteLock) {
+            if (drainer.isAlive()) {
+                // The writer is stuck: never write concurrently
+                if (event != null) {
+                    dropped.incrementAndGet();
+                }
+                return;
+            }
+            drain();
+            if (event != null) {
+                published.incrementAndGet();
+                write(List.of(event));
+            }
+        }
+    }
+
+    private void waitAndPublish(TimestampedEvent event) {
+        while (!ringBuffer.offer(event)) {
+            if (!running) {
+                writeAfterClose(event);
+                return;
+            }
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+        published.incrementAndGet();
+        wakeUpDrainer();
+        if (!running) {
+            // Closed meanwhile: the event may have been offered after the last drain
+            writeAfterClose(null);
+        }
+    }
+
+    private void coalesce(TimestampedEvent event) {
+        synchronized (overflowLock) {
+            if (mergedLog != null && event instanceof StageLogEvent && canMerge((StageLogEvent) event)) {
+                mergedMessage.append('\n').append(((StageLogEvent) event).getMessage());
+                return;
+            }
+            // Interleaved stages or other events cannot be merged: block like BLOCK once the overflow is full
+            while (overflow.size() >= maxOverflow && running) {
+                LockSupport.unpark(drainer);
+                try {
+                    overflowLock.wait(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            sealMergedLog();
+            if (event instanceof StageLogEvent && ((StageLogEvent) event).getMessage() != null) {
+                // Merged into a copy: the event belongs to the caller
+                StageLogEvent log = (StageLogEvent) event;
+                mergedLog = new StageLogEvent(log.getTimestamp(), log.getStage(), log.getLevel(), log.getMessage());
+                mergedMessage = new StringBuilder(log.getMessage());
+                overflow.add(mergedLog);
+            } else {
+                overflow.add(event);
+            }
+            // Set once added: the drainer may have taken the overflow while waiting
+            overflowing = true;
+            published.incrementAndGet();
+        }
+        LockSupport.unpark(drainer);
+        if (!running) {
+            // Closed meanwhile: the drainer may be gone
+            writeAfterClose(null);
+        }
+    }
+
+    private boolean canMerge(StageLogEvent log) {
+        return log.getMessage() != null
+                && isSameStageAndLevel(mergedLog, log)
+                && mergedMessage.length() + 1 + log.getMessage().length() <= MAX_MERGED_SIZE;
+    }
+
+    /**
+     * Set the message of the last merged log: no more logs are merged into it
+     */
+    private void sealMergedLog() {
+        if (mergedLog != null) {
+            mergedLog.setMessage(mergedMessage.toString());
+            mergedLog = null;
+            mergedMessage = null;
+        }
+    }
+
+    private void wakeUpDrainer() {
+        if (drainerParked) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    private void drain() {
+        List<TimestampedEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            TimestampedEvent event;
+            while (batch.size() < batchSize && (event = ringBuffer.poll()) != null) {
+                batch.add(event);
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+                continue;
+            }
+            // The ring buffer is empty: older events are written so the overflow can go
+            if (overflowing) {
+                writeOverflow();
+                continue;
+            }
+            if (!running) {
+                return;
+            }
+            drainerParked = true;
+            if (ringBuffer.isEmpty() && !overflowing && running) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            drainerParked = false;
+        }
+    }
+
+    private void writeOverflow() {
+        List<TimestampedEvent> toWrite;
+        synchronized (overflowLock) {
+            sealMergedLog();
+            toWrite = overflow;
+            overflow = new ArrayList<>();
+            overflowing = false;
+            overflowLock.notifyAll();
+        }
+        write(toWrite);
+    }
+
+    private void write(List<TimestampedEvent> events) {
+        try {
+            writer.accept(events);
+        } catch (RuntimeException e) {
+            // Never let the drainer die: events would pile up forever
+        } finally {
+            written += events.size();
+        }
+    }
+
+    private static boolean isLowPriority(TimestampedEvent event) {
+        return event instanceof StageLogEvent && (((StageLogEvent) event).getLevel() == Level.DEBUG
+                || ((StageLogEvent) event).getLevel() == Level.TRACE);
+    }
+
+    private static boolean isSameStageAndLevel(StageLogEvent first, StageLogEvent second) {
+        return Objects.equals(first.getStage(), second.getStage()) && first.getLevel() == second.getLevel();
+    }
+}
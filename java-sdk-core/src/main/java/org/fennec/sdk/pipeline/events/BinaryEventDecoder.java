@@ -0,0 +1,139 @@
+package org.fennec.sdk.pipeline.events;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.fennec.sdk.model.events.*;
+import org.fennec.sdk.utils.CachedMapper;
+import org.fennec.sdk.utils.ObjectMappers;
+import org.slf4j.event.Level;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decode the events of a stream encoded by {@link BinaryEventEncoder}. Keeps the stage dictionary of the stream: it
+ * must be used by a single thread at a time
+ */
+public class BinaryEventDecoder {
+
+    private static final CachedMapper OBJECT_MAPPER = ObjectMappers.json();
+
+    private static final Map<String, Class<? extends TimestampedEvent>> KINDS = Map.of(
+            StartStageEvent.START_STAGE_EVENT_KIND,
+            StartStageEvent.class,
+            EndStageEvent.END_STAGE_EVENT_KIND,
+            EndStageEvent.class,
+            StageLogEvent.STAGE_LOG_EVENT_KIND,
+            StageLogEvent.class,
+            StageLogBatchEvent.STAGE_LOG_BATCH_EVENT_KIND,
+            StageLogBatchEvent.class,
+            UpdateJobEvent.UPDATE_JOB_EVENT_KIND,
+            UpdateJobEvent.class);
+
+    private static final Level[] LEVELS = Level.values();
+
+    private final List<String> stages = new ArrayList<>();
+
+    private long lastTimestamp;
+
+    /**
+     * @param frame the records of an event, as written by {@link BinaryEventEncoder#encode(TimestampedEvent)}
+     * @return the event
+     * @throws IOException if the frame is not valid
+     */
+    public TimestampedEvent decode(byte[] frame) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(frame);
+        try {
+            while (true) {
+                int record = in.get() & 0xFF;
+                switch (record) {
+                    case BinaryEventEncoder.HEADER:
+                        readHeader(in);
+                        break;
+                    case BinaryEventEncoder.STAGE_DEFINITION:
+                        int id = (int) readVarLong(in);
+                        if (id != stages.size()) {
+                            throw new IOException("Unexpected stage id " + id);
+                        }
+                        stages.add(readString(in));
+                        break;
+                    case BinaryEventEncoder.STAGE_LOG:
+                        return readStageLogEvent(in);
+                    case BinaryEventEncoder.JSON:
+                        return readJsonEvent(in);
+                    default:
+                        throw new IOException("Unknown record " + record);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid frame", e);
+        }
+    }
+
+    private void readHeader(ByteBuffer in) throws IOException {
+        byte[] magic = new byte[BinaryEventEncoder.MAGIC.length];
+        in.get(magic);
+        int version = in.get();
+        if (!Arrays.equals(magic, BinaryEventEncoder.MAGIC) || version != BinaryEventEncoder.VERSION) {
+            throw new IOException("Not a binary event stream");
+        }
+        stages.clear();
+        lastTimestamp = 0;
+    }
+
+    private StageLogEvent readStageLogEvent(ByteBuffer in) {
+        int flags = in.get();
+        int stageRef = (int) readVarLong(in);
+        int level = in.get();
+        StageLogEvent event = new StageLogEvent();
+        event.setStage(stageRef == 0 ? null : stages.get(stageRef - 1));
+        event.setLevel(level == 0 ? null : LEVELS[level - 1]);
+        if ((flags & BinaryEventEncoder.TIMESTAMP_FLAG) != 0) {
+            long zigzag = readVarLong(in);
+            lastTimestamp += (zigzag >>> 1) ^ -(zigzag & 1);
+            event.setTimestamp(lastTimestamp);
+        }
+        if ((flags & BinaryEventEncoder.MESSAGE_FLAG) != 0) {
+            event.setMessage(readString(in));
+        }
+        return event;
+    }
+
+    private TimestampedEvent readJsonEvent(ByteBuffer in) throws IOException {
+        int length = (int) readVarLong(in);
+        JsonNode node = OBJECT_MAPPER.getMapper().readTree(frameSlice(in, length));
+        Class<? extends TimestampedEvent> type = KINDS.get(node.path("kind").asText());
+        if (type == null) {
+            throw new IOException("Unknown event kind " + node.path("kind"));
+        }
+        return OBJECT_MAPPER.reader(type).readValue(node);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in);
+        return new String(frameSlice(in, length), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] frameSlice(ByteBuffer in, int length) {
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
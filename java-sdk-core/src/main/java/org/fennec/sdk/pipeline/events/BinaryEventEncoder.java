@@ -0,0 +1,129 @@
+package org.fennec.sdk.pipeline.events;
+
+import org.fennec.sdk.model.events.StageLogEvent;
+import org.fennec.sdk.model.events.TimestampedEvent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encode events in the compact binary format of a stream. Each encoded event is a sequence of records:
+ * <ul>
+ * <li><code>0x00 'F' 'N' 'E' 'C' version</code>: the stream header, first record of the first event. The stage
+ * dictionary is empty after it</li>
+ * <li><code>0x01 id name</code>: a new stage name of the dictionary, always before the event referencing it</li>
+ * <li><code>0x02 flags stage level timestamp message</code>: a {@link StageLogEvent}. The stage is 0 if none else
+ * its dictionary id + 1, the level is 0 if none else its ordinal + 1, the timestamp is the difference with the
+ * previous log (zigzag encoded) and the message is a string. The timestamp and message are only present when the flags
+ * bits 0 and 1 are set</li>
+ * <li><code>0x03 json</code>: any other event, as JSON</li>
+ * </ul>
+ * Integers are unsigned LEB128 varints and strings are a varint byte length then UTF-8 bytes. The encoder keeps the
+ * dictionary of its stream: it must be used by a single thread at a time
+ */
+public class BinaryEventEncoder {
+
+    public static final int VERSION = 1;
+
+    static final byte[] MAGIC = { 'F', 'N', 'E', 'C' };
+
+    static final int HEADER = 0x00;
+
+    static final int STAGE_DEFINITION = 0x01;
+
+    static final int STAGE_LOG = 0x02;
+
+    static final int JSON = 0x03;
+
+    static final int TIMESTAMP_FLAG = 0x01;
+
+    static final int MESSAGE_FLAG = 0x02;
+
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private final Map<String, Integer> stageIds = new HashMap<>();
+
+    private EventBuffer buffer = new EventBuffer(1024);
+
+    private boolean headerWritten;
+
+    private long lastTimestamp;
+
+    /**
+     * Encode an event. The returned buffer is reused: it is only valid until the next call
+     *
+     * @param event the event to encode
+     * @return the buffer containing the records of the event
+     * @throws IOException on serialization error
+     */
+    public EventBuffer encode(TimestampedEvent event) throws IOException {
+        if (buffer.array().length > MAX_RETAINED_CAPACITY) {
+            buffer = new EventBuffer(1024);
+        }
+        buffer.reset();
+        if (!headerWritten) {
+            buffer.write(HEADER);
+            buffer.write(MAGIC, 0, MAGIC.length);
+            buffer.write(VERSION);
+            headerWritten = true;
+        }
+        if (event instanceof StageLogEvent) {
+            writeStageLogEvent((StageLogEvent) event);
+        } else {
+            EventBuffer json = StageEventEncoder.get().encode(event);
+            buffer.write(JSON);
+            writeVarLong(json.size());
+            json.writeTo(buffer);
+        }
+        return buffer;
+    }
+
+    private void writeStageLogEvent(StageLogEvent event) {
+        int stageRef = event.getStage() == null ? 0 : stageId(event.getStage()) + 1;
+        buffer.write(STAGE_LOG);
+        buffer.write((event.getTimestamp() != null ? TIMESTAMP_FLAG : 0) | (event.getMessage() != null
+                ? MESSAGE_FLAG
+                : 0));
+        writeVarLong(stageRef);
+        buffer.write(event.getLevel() == null ? 0 : event.getLevel().ordinal() + 1);
+        if (event.getTimestamp() != null) {
+            long delta = event.getTimestamp() - lastTimestamp;
+            writeVarLong((delta << 1) ^ (delta >> 63));
+            lastTimestamp = event.getTimestamp();
+        }
+        if (event.getMessage() != null) {
+            writeString(event.getMessage());
+        }
+    }
+
+    /**
+     * @return the id of the stage, defined in the buffer when new
+     */
+    private int stageId(String stage) {
+        Integer id = stageIds.get(stage);
+        if (id == null) {
+            id = stageIds.size();
+            stageIds.put(stage, id);
+            buffer.write(STAGE_DEFINITION);
+            writeVarLong(id);
+            writeString(stage);
+        }
+        return id;
+    }
+
+    private void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        buffer.write(bytes, 0, bytes.length);
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.write((int) value);
+    }
+}
@@ -0,0 +1,195 @@
+package org.fennec.sdk.pipeline.events;
+
+import org.fennec.sdk.model.events.StageLogBatchEvent;
+import org.fennec.sdk.model.events.StageLogEvent;
+import org.fennec.sdk.model.events.TimestampedEvent;
+import org.fennec.sdk.utils.ThreadUtils;
+import org.slf4j.event.Level;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Group the consecutive logs of a stage with the same level into a single {@link StageLogBatchEvent}. A batch is
+ * published when the level changes, when it is older than the window, when it exceeds the maximum size, or when the
+ * stage publishes another event ({@link #flush(String)}). The order of the logs of a stage is kept. An ended stage is
+ * forgotten ({@link #remove(String)}).<br>
+ * <i>This class does not log anything as logs are themselves published through it</i>
+ */
+public class LogCoalescer implements AutoCloseable {
+
+    public static final long DEFAULT_WINDOW_MS = 50;
+
+    public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+
+    private final long windowNanos;
+
+    private final int maxSize;
+
+    private final Consumer<TimestampedEvent> publisher;
+
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param windowMs  the maximum time a log waits for the next ones
+     * @param maxSize   the maximum number of characters of a batch
+     * @param publisher publish the batches (or single logs). Called by the stage threads and by the timer thread
+     */
+    public LogCoalescer(long windowMs, int maxSize, Consumer<TimestampedEvent> publisher) {
+        if (windowMs < 1 || maxSize < 1) {
+            throw new IllegalArgumentException("Window and max size must be positive");
+        }
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxSize = maxSize;
+        this.publisher = Objects.requireNonNull(publisher);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                ThreadUtils.daemonThreadFactory("fennec-events-coalescer"));
+        long tickMs = Math.max(1, windowMs / 2);
+        executor.scheduleWithFixedDelay(this::flushExpired, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        this.scheduler = executor;
+    }
+
+    /**
+     * @param stageName the stage name, not null
+     * @param level     the log level
+     * @param message   the message
+     */
+    public void log(String stageName, Level level, String message) {
+        while (true) {
+            Batch batch = batches.computeIfAbsent(stageName, Batch::new);
+            synchronized (batch) {
+                if (batch.removed) {
+                    // Removed meanwhile: its logs are already published
+                    continue;
+                }
+                if (!batch.messages.isEmpty() && batch.level != level) {
+                    batch.publish();
+                }
+                batch.add(level, message);
+                if (batch.size >= maxSize) {
+                    batch.publish();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Publish the pending logs of a stage
+     *
+     * @param stageName the stage name
+     */
+    public void flush(String stageName) {
+        Batch batch = batches.get(stageName);
+        if (batch != null) {
+            synchronized (batch) {
+                batch.publish();
+            }
+        }
+    }
+
+    /**
+     * Publish the pending logs of an ended stage and forget it
+     *
+     * @param stageName the stage name
+     */
+    public void remove(String stageName) {
+        Batch batch = batches.remove(stageName);
+        if (batch != null) {
+            synchronized (batch) {
+                batch.removed = true;
+                batch.publish();
+            }
+        }
+    }
+
+    /**
+     * @return the number of stages with a batch
+     */
+    int getStageCount() {
+        return batches.size();
+    }
+
+    /**
+     * Publish the pending logs of every stage
+     */
+    public void flushAll() {
+        batches.keySet().forEach(this::flush);
+    }
+
+    /**
+     * Stop the timer and publish the pending logs
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        flushAll();
+    }
+
+    private void flushExpired() {
+        long now = System.nanoTime();
+        for (Batch batch : batches.values()) {
+            synchronized (batch) {
+                if (!batch.messages.isEmpty() && now - batch.firstNanos >= windowNanos) {
+                    batch.publish();
+                }
+            }
+        }
+    }
+
+    /**
+     * The pending logs of a stage. Guarded by its own lock
+     */
+    private class Batch {
+
+        private final String stageName;
+
+        private final List<String> messages = new ArrayList<>();
+
+        private Level level;
+
+        private long timestamp;
+
+        private long firstNanos;
+
+        private int size;
+
+        private boolean removed;
+
+        Batch(String stageName) {
+            this.stageName = stageName;
+        }
+
+        void add(Level logLevel, String message) {
+            if (messages.isEmpty()) {
+                level = logLevel;
+                timestamp = System.currentTimeMillis();
+                firstNanos = System.nanoTime();
+            }
+            messages.add(message);
+            size += message == null ? 0 : message.length();
+        }
+
+        void publish() {
+            if (messages.isEmpty()) {
+                return;
+            }
+            if (messages.size() == 1) {
+                publisher.accept(new StageLogEvent(timestamp, stageName, level, messages.get(0)));
+            } else {
+                publisher.accept(new StageLogBatchEvent(timestamp, stageName, level, new ArrayList<>(messages)));
+            }
+            messages.clear();
+            size = 0;
+        }
+    }
+}
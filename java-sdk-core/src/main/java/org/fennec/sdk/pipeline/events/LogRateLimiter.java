@@ -0,0 +1,181 @@
+package org.fennec.sdk.pipeline.events;
+
+import org.fennec.sdk.model.events.StageLogEvent;
+import org.fennec.sdk.utils.ThreadUtils;
+import org.slf4j.event.Level;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Limit the logs of each stage with a token bucket: a stage can log a burst of lines at once, then a number of lines
+ * per second. The suppressed lines are counted and periodically reported by a "N log lines suppressed" warning of the
+ * stage, and before the stage publishes another event ({@link #flush(String)}). WARN and ERROR logs can be always
+ * kept. An ended stage is forgotten ({@link #remove(String)}).<br>
+ * <i>This class does not log anything as logs are themselves published through it</i>
+ */
+public class LogRateLimiter implements AutoCloseable {
+
+    public static final long DEFAULT_SUMMARY_INTERVAL_MS = 5000;
+
+    /**
+     * The logs outside of a stage share a bucket
+     */
+    private static final String NO_STAGE = "";
+
+    private final double linesPerNano;
+
+    private final int burst;
+
+    private final boolean keepWarnAndError;
+
+    private final Consumer<StageLogEvent> publisher;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param linesPerSecond    the number of lines a stage can log per second once its burst is consumed
+     * @param burst             the number of lines a stage can log at once
+     * @param keepWarnAndError  true if WARN and ERROR logs are never suppressed (nor counted)
+     * @param summaryIntervalMs the interval between two reports of the suppressed lines
+     * @param publisher         publish the reports. Called by the stage threads and by the timer thread
+     */
+    public LogRateLimiter(double linesPerSecond, int burst, boolean keepWarnAndError, long summaryIntervalMs,
+            Consumer<StageLogEvent> publisher) {
+        if (linesPerSecond <= 0 || burst < 1 || summaryIntervalMs < 1) {
+            throw new IllegalArgumentException("Rate, burst and summary interval must be positive");
+        }
+        this.linesPerNano = linesPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.keepWarnAndError = keepWarnAndError;
+        this.publisher = Objects.requireNonNull(publisher);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                ThreadUtils.daemonThreadFactory("fennec-events-rate-limiter"));
+        executor.scheduleWithFixedDelay(this::flushAll, summaryIntervalMs, summaryIntervalMs, TimeUnit.MILLISECONDS);
+        this.scheduler = executor;
+    }
+
+    /**
+     * @param stageName the stage name, null outside of a stage
+     * @param level     the log level
+     * @return true if the log can be published, false if it is suppressed
+     */
+    public boolean tryAcquire(String stageName, Level level) {
+        if (keepWarnAndError && level != null && level.toInt() >= Level.WARN.toInt()) {
+            return true;
+        }
+        while (true) {
+            Bucket bucket = buckets.computeIfAbsent(stageName == null ? NO_STAGE : stageName,
+                    key -> new Bucket(stageName));
+            synchronized (bucket) {
+                // Removed meanwhile: its suppressed lines are already reported
+                if (!bucket.removed) {
+                    return bucket.tryAcquire(System.nanoTime());
+                }
+            }
+        }
+    }
+
+    /**
+     * Report the suppressed lines of a stage, if any
+     *
+     * @param stageName the stage name, null outside of a stage
+     */
+    public void flush(String stageName) {
+        Bucket bucket = buckets.get(stageName == null ? NO_STAGE : stageName);
+        if (bucket != null) {
+            bucket.report();
+        }
+    }
+
+    /**
+     * Report the suppressed lines of an ended stage and forget it
+     *
+     * @param stageName the stage name, null outside of a stage
+     */
+    public void remove(String stageName) {
+        Bucket bucket = buckets.remove(stageName == null ? NO_STAGE : stageName);
+        if (bucket != null) {
+            synchronized (bucket) {
+                bucket.removed = true;
+            }
+            bucket.report();
+        }
+    }
+
+    /**
+     * @return the number of stages with a bucket
+     */
+    int getStageCount() {
+        return buckets.size();
+    }
+
+    /**
+     * Report the suppressed lines of every stage
+     */
+    public void flushAll() {
+        buckets.values().forEach(Bucket::report);
+    }
+
+    /**
+     * Stop the timer and report the suppressed lines
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        flushAll();
+    }
+
+    /**
+     * The tokens of a stage. Guarded by its own lock
+     */
+    private class Bucket {
+
+        private final String stageName;
+
+        private double tokens = burst;
+
+        private long lastRefillNanos = System.nanoTime();
+
+        private long suppressed;
+
+        private boolean removed;
+
+        Bucket(String stageName) {
+            this.stageName = stageName;
+        }
+
+        boolean tryAcquire(long now) {
+            tokens = Math.min(burst, tokens + (now - lastRefillNanos) * linesPerNano);
+            lastRefillNanos = now;
+            if (tokens >= 1) {
+                tokens--;
+                return true;
+            }
+            suppressed++;
+            return false;
+        }
+
+        void report() {
+            long count;
+            synchronized (this) {
+                count = suppressed;
+                suppressed = 0;
+            }
+            // Published outside of the lock: the stage can keep logging meanwhile
+            if (count > 0) {
+                publisher.accept(new StageLogEvent(System.currentTimeMillis(),
+                        stageName,
+                        Level.WARN,
+                        count + " log lines suppressed by the rate limit"));
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.fennec.sdk.pipeline.events;
+
+/**
+ * What to do when the asynchronous events buffer is full
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Wait until the drainer frees some space
+     */
+    BLOCK,
+
+    /**
+     * Drop DEBUG and TRACE logs. Others events wait until the drainer frees some space
+     */
+    DROP_DEBUG_TRACE,
+
+    /**
+     * Append to an overflow list where consecutive logs of the same stage and level are merged in a multi-line log
+     */
+    COALESCE
+
+}
@@ -0,0 +1,136 @@
+package org.fennec.sdk.pipeline.events;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.fennec.sdk.model.events.StageLogEvent;
+import org.fennec.sdk.model.events.TimestampedEvent;
+import org.fennec.sdk.utils.CachedMapper;
+import org.fennec.sdk.utils.ObjectMappers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Encode events as JSON into a reusable byte buffer.<br>
+ * {@link StageLogEvent} (most of the traffic) is written field by field with a streaming generator, others events go
+ * through the {@link ObjectMapper}. One encoder is kept per thread: use {@link #get()}
+ */
+public final class StageEventEncoder {
+
+    private static final CachedMapper OBJECT_MAPPER = ObjectMappers.json();
+
+    private static final ThreadLocal<StageEventEncoder> ENCODERS = ThreadLocal.withInitial(StageEventEncoder::new);
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Above this size the buffer is released after use so a single huge event does not stay in memory
+     */
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private static final SerializedString API_VERSION = new SerializedString("apiVersion");
+
+    private static final SerializedString KIND = new SerializedString("kind");
+
+    private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+
+    private static final SerializedString STAGE = new SerializedString("stage");
+
+    private static final SerializedString LEVEL = new SerializedString("level");
+
+    private static final SerializedString MESSAGE = new SerializedString("message");
+
+    private static final SerializedString STAGE_LOG_API_VERSION = new SerializedString(StageLogEvent.API_VERSION);
+
+    private static final SerializedString STAGE_LOG_KIND = new SerializedString(StageLogEvent.STAGE_LOG_EVENT_KIND);
+
+    private EventBuffer buffer;
+
+    private JsonGenerator generator;
+
+    private StageEventEncoder() {
+        reset(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return the encoder of the current thread
+     */
+    public static StageEventEncoder get() {
+        return ENCODERS.get();
+    }
+
+    /**
+     * Encode an event. The returned buffer is reused: it is only valid until the next call on the same thread
+     *
+     * @param event the event to encode
+     * @return the buffer containing the JSON representation (without line separator)
+     * @throws IOException on serialization error
+     */
+    public EventBuffer encode(TimestampedEvent event) throws IOException {
+        if (buffer.array().length > MAX_RETAINED_CAPACITY) {
+            reset(INITIAL_CAPACITY);
+        }
+        buffer.reset();
+        try {
+            if (event instanceof StageLogEvent) {
+                writeStageLogEvent((StageLogEvent) event);
+            } else {
+                OBJECT_MAPPER.writer(event).writeValue(generator, event);
+            }
+            generator.flush();
+        } catch (IOException | RuntimeException e) {
+            // The generator may be in the middle of an object
+            reset(INITIAL_CAPACITY);
+            throw e;
+        }
+        return buffer;
+    }
+
+    /**
+     * Encode an event as a String
+     *
+     * @param event the event to encode
+     * @return the JSON representation
+     * @throws IOException on serialization error
+     */
+    public String encodeToString(TimestampedEvent event) throws IOException {
+        return encode(event).toString();
+    }
+
+    private void writeStageLogEvent(StageLogEvent event) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(API_VERSION);
+        generator.writeString(STAGE_LOG_API_VERSION);
+        generator.writeFieldName(KIND);
+        generator.writeString(STAGE_LOG_KIND);
+        if (event.getTimestamp() != null) {
+            generator.writeFieldName(TIMESTAMP);
+            generator.writeNumber(event.getTimestamp());
+        }
+        if (event.getStage() != null) {
+            generator.writeFieldName(STAGE);
+            generator.writeString(event.getStage());
+        }
+        if (event.getLevel() != null) {
+            generator.writeFieldName(LEVEL);
+            generator.writeString(event.getLevel().name());
+        }
+        if (event.getMessage() != null) {
+            generator.writeFieldName(MESSAGE);
+            generator.writeString(event.getMessage());
+        }
+        generator.writeEndObject();
+    }
+
+    private void reset(int capacity) {
+        buffer = new EventBuffer(capacity);
+        try {
+            generator = OBJECT_MAPPER.getMapper().getFactory().createGenerator(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Events are written one after the other without separator
+        generator.setRootValueSeparator(null);
+    }
+}
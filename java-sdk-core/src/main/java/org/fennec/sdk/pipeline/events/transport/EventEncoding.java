@@ -0,0 +1,20 @@
+package org.fennec.sdk.pipeline.events.transport;
+
+import org.fennec.sdk.pipeline.events.BinaryEventEncoder;
+
+/**
+ * How the events are encoded for a transport
+ */
+public enum EventEncoding {
+
+    /**
+     * One JSON object per event, readable on the console
+     */
+    JSON,
+
+    /**
+     * The compact format of {@link BinaryEventEncoder}, stage names are sent once. Requires
+     * {@link EventFraming#LENGTH_PREFIXED} framing
+     */
+    BINARY
+}
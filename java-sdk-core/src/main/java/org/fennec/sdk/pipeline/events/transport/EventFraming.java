@@ -0,0 +1,40 @@
+package org.fennec.sdk.pipeline.events.transport;
+
+import org.fennec.sdk.pipeline.events.EventBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * How events are delimited in a stream
+ */
+public enum EventFraming {
+
+    /**
+     * One event per line, as printed on the console. Only for text encodings
+     */
+    LINES {
+        @Override
+        void writeFrame(OutputStream out, EventBuffer event) throws IOException {
+            event.writeTo(out);
+            out.write('\n');
+        }
+    },
+
+    /**
+     * Each event is preceded by its size in bytes (4 bytes, big-endian)
+     */
+    LENGTH_PREFIXED {
+        @Override
+        void writeFrame(OutputStream out, EventBuffer event) throws IOException {
+            int size = event.size();
+            out.write(size >>> 24);
+            out.write(size >>> 16);
+            out.write(size >>> 8);
+            out.write(size);
+            event.writeTo(out);
+        }
+    };
+
+    abstract void writeFrame(OutputStream out, EventBuffer event) throws IOException;
+}
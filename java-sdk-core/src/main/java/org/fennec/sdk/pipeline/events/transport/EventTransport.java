@@ -0,0 +1,42 @@
+package org.fennec.sdk.pipeline.events.transport;
+
+import org.fennec.sdk.pipeline.events.EventBuffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Send the encoded events to the sidecar. Events are written one by one then flushed once per batch.<br>
+ * Implementations do not need to be thread safe: the publisher never calls them concurrently
+ */
+public interface EventTransport extends Closeable {
+
+    /**
+     * @return false if the events must not be encoded nor sent
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @return how the events must be encoded
+     */
+    default EventEncoding getEncoding() {
+        return EventEncoding.JSON;
+    }
+
+    /**
+     * Write an event. It may be buffered until the next {@link #flush()}
+     *
+     * @param event the encoded event, only valid during the call
+     * @throws IOException on write error
+     */
+    void write(EventBuffer event) throws IOException;
+
+    /**
+     * Send the events written so far
+     *
+     * @throws IOException on write error
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,206 @@
+package org.fennec.sdk.pipeline.events.transport;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Create the event transports.<br>
+ * The SDK is compiled for Java 11: Unix domain sockets (JDK 16+) are looked up by reflection.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class EventTransports {
+
+    /**
+     * The env holding the transport URI, see {@link #fromUri(String)}
+     */
+    public static final String TRANSPORT_ENV = "FENNEC_EVENTS_TRANSPORT";
+
+    private static final String FRAMING_PARAMETER = "framing";
+
+    private static final String ENCODING_PARAMETER = "encoding";
+
+    /**
+     * @return the "fennec-print-events" logger, printing events on the console (default)
+     */
+    public static EventTransport logger() {
+        return new LoggerEventTransport();
+    }
+
+    /**
+     * @return a transport printing one event per line directly on the standard output, without the logger
+     */
+    public static EventTransport stdout() {
+        return new StreamEventTransport(System.out, EventFraming.LINES, StreamEventTransport.DEFAULT_BUFFER_SIZE, false);
+    }
+
+    /**
+     * @param file    the file, created if needed. Events are appended
+     * @param framing how events are delimited
+     * @return the transport
+     * @throws IOException if the file cannot be opened
+     */
+    public static EventTransport file(Path file, EventFraming framing) throws IOException {
+        return file(file, framing, EventEncoding.JSON);
+    }
+
+    /**
+     * @param file     the file, created if needed. Events are appended
+     * @param framing  how events are delimited
+     * @param encoding how events are encoded
+     * @return the transport
+     * @throws IOException if the file cannot be opened
+     */
+    public static EventTransport file(Path file, EventFraming framing, EventEncoding encoding) throws IOException {
+        return new StreamEventTransport(Files.newOutputStream(file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND,
+                StandardOpenOption.WRITE), framing, encoding, StreamEventTransport.DEFAULT_BUFFER_SIZE, true);
+    }
+
+    /**
+     * @param host the sidecar host
+     * @param port the sidecar port
+     * @return a transport sending length prefixed events
+     * @throws IOException if the connection fails
+     */
+    public static EventTransport tcp(String host, int port) throws IOException {
+        return tcp(host, port, EventEncoding.JSON);
+    }
+
+    /**
+     * @param host     the sidecar host
+     * @param port     the sidecar port
+     * @param encoding how events are encoded
+     * @return a transport sending length prefixed events
+     * @throws IOException if the connection fails
+     */
+    public static EventTransport tcp(String host, int port, EventEncoding encoding) throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        return socket(channel, encoding);
+    }
+
+    /**
+     * @param socketFile the sidecar Unix domain socket
+     * @return a transport sending length prefixed events
+     * @throws IOException if the connection fails
+     * @throws UnsupportedOperationException before JDK 16
+     */
+    public static EventTransport unixSocket(Path socketFile) throws IOException {
+        return unixSocket(socketFile, EventEncoding.JSON);
+    }
+
+    /**
+     * @param socketFile the sidecar Unix domain socket
+     * @param encoding   how events are encoded
+     * @return a transport sending length prefixed events
+     * @throws IOException if the connection fails
+     * @throws UnsupportedOperationException before JDK 16
+     */
+    public static EventTransport unixSocket(Path socketFile, EventEncoding encoding) throws IOException {
+        SocketAddress address;
+        SocketChannel channel;
+        try {
+            address = (SocketAddress) Class
+                    .forName("java.net.UnixDomainSocketAddress")
+                    .getMethod("of", Path.class)
+                    .invoke(null, socketFile);
+            ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+            channel = (SocketChannel) SocketChannel.class
+                    .getMethod("open", ProtocolFamily.class)
+                    .invoke(null, unix);
+        } catch (InvocationTargetException e) {
+            throw new IOException(e.getCause());
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new UnsupportedOperationException("Unix domain sockets require JDK 16+", e);
+        }
+        try {
+            channel.connect(address);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return socket(channel, encoding);
+    }
+
+    /**
+     * Create a transport from its URI:
+     * <ul>
+     * <li><code>logger</code>: the "fennec-print-events" logger</li>
+     * <li><code>stdout</code>: the standard output</li>
+     * <li><code>file:///path/events?framing=lines</code>: a file, events are length prefixed unless framing is
+     * lines</li>
+     * <li><code>unix:///path/sidecar.sock</code>: a Unix domain socket</li>
+     * <li><code>tcp://host:port</code>: a TCP socket</li>
+     * </ul>
+     * Files and sockets accept an <code>encoding=binary</code> parameter to send {@link EventEncoding#BINARY} events
+     * (length prefixed only)
+     *
+     * @param uri the URI
+     * @return the transport
+     * @throws IOException if the transport cannot be opened
+     */
+    public static EventTransport fromUri(String uri) throws IOException {
+        if ("logger".equals(uri)) {
+            return logger();
+        }
+        if ("stdout".equals(uri)) {
+            return stdout();
+        }
+        URI parsed = URI.create(uri);
+        String scheme = parsed.getScheme() == null ? "" : parsed.getScheme().toLowerCase(Locale.ROOT);
+        Map<String, String> parameters = parameters(parsed.getQuery());
+        EventEncoding encoding = EventEncoding.valueOf(parameters
+                .getOrDefault(ENCODING_PARAMETER, EventEncoding.JSON.name())
+                .toUpperCase(Locale.ROOT));
+        switch (scheme) {
+            case "file":
+                return file(Path.of(parsed.getPath()), EventFraming.valueOf(parameters
+                        .getOrDefault(FRAMING_PARAMETER, EventFraming.LENGTH_PREFIXED.name())
+                        .toUpperCase(Locale.ROOT)), encoding);
+            case "unix":
+                return unixSocket(Path.of(parsed.getPath()), encoding);
+            case "tcp":
+                return tcp(parsed.getHost(), parsed.getPort(), encoding);
+            default:
+                throw new IllegalArgumentException(String.format("Unknown events transport [%s]", uri));
+        }
+    }
+
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    parameters.put(parameter.substring(0, separator), parameter.substring(separator + 1));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static EventTransport socket(SocketChannel channel, EventEncoding encoding) {
+        return new StreamEventTransport(Channels.newOutputStream(channel),
+                EventFraming.LENGTH_PREFIXED,
+                encoding,
+                StreamEventTransport.DEFAULT_BUFFER_SIZE,
+                true);
+    }
+}
@@ -0,0 +1,33 @@
+package org.fennec.sdk.pipeline.events.transport;
+
+import org.fennec.sdk.pipeline.events.EventBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Print the events with the "fennec-print-events" logger, read by the sidecar on the console. The default transport
+ */
+public class LoggerEventTransport implements EventTransport {
+
+    private static final Logger EVENT_LOGGER = LoggerFactory.getLogger("fennec-print-events");
+
+    @Override
+    public boolean isEnabled() {
+        return EVENT_LOGGER.isInfoEnabled();
+    }
+
+    @Override
+    public void write(EventBuffer event) {
+        EVENT_LOGGER.info(event.toString());
+    }
+
+    @Override
+    public void flush() {
+        // Printed on write
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,74 @@
+package org.fennec.sdk.pipeline.events.transport;
+
+import lombok.Getter;
+import org.fennec.sdk.pipeline.events.EventBuffer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Write the framed events to a stream (console, file or socket). The events of a batch are buffered and sent at once
+ * on {@link #flush()}
+ */
+public class StreamEventTransport implements EventTransport {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+
+    private final EventFraming framing;
+
+    @Getter
+    private final EventEncoding encoding;
+
+    private final boolean closeStream;
+
+    /**
+     * @param out         the target stream
+     * @param framing     how events are delimited
+     * @param bufferSize  the size of the buffer of written events
+     * @param closeStream false if the stream must stay open when the transport is closed (console)
+     */
+    public StreamEventTransport(OutputStream out, EventFraming framing, int bufferSize, boolean closeStream) {
+        this(out, framing, EventEncoding.JSON, bufferSize, closeStream);
+    }
+
+    /**
+     * @param out         the target stream
+     * @param framing     how events are delimited
+     * @param encoding    how events are encoded
+     * @param bufferSize  the size of the buffer of written events
+     * @param closeStream false if the stream must stay open when the transport is closed (console)
+     */
+    public StreamEventTransport(OutputStream out, EventFraming framing, EventEncoding encoding, int bufferSize,
+            boolean closeStream) {
+        if (encoding == EventEncoding.BINARY && framing != EventFraming.LENGTH_PREFIXED) {
+            throw new IllegalArgumentException("Binary events must be length prefixed");
+        }
+        this.out = new BufferedOutputStream(Objects.requireNonNull(out), bufferSize);
+        this.framing = Objects.requireNonNull(framing);
+        this.encoding = Objects.requireNonNull(encoding);
+        this.closeStream = closeStream;
+    }
+
+    @Override
+    public void write(EventBuffer event) throws IOException {
+        framing.writeFrame(out, event);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closeStream) {
+            out.close();
+        } else {
+            out.flush();
+        }
+    }
+}
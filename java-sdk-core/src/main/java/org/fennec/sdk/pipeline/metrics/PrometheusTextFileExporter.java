@@ -0,0 +1,102 @@
+package org.fennec.sdk.pipeline.metrics;
+
+import lombok.SneakyThrows;
+import org.fennec.sdk.model.commons.StageMetrics;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Write the metrics of the stages over in a Prometheus text file (as read by the node exporter textfile collector).
+ * The file is replaced atomically after each stage.
+ */
+public class PrometheusTextFileExporter implements StageMetricsExporter {
+
+    private static final double MILLIS_PER_SECOND = 1_000d;
+
+    private static final double MICROS_PER_SECOND = 1_000_000d;
+
+    private final Path file;
+
+    /**
+     * The last metrics of each stage, in execution order
+     */
+    private final Map<String, StageMetrics> stages = new LinkedHashMap<>();
+
+    public PrometheusTextFileExporter(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void export(String stageName, StageMetrics metrics) {
+        stages.put(stageName, metrics);
+        write();
+    }
+
+    @SneakyThrows
+    private void write() {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writeMetric(writer,
+                    "fennec_stage_duration_seconds",
+                    "gauge",
+                    "Stage wall time",
+                    m -> m.getDurationMs() / MILLIS_PER_SECOND);
+            writeMetric(writer,
+                    "fennec_stage_queue_seconds",
+                    "gauge",
+                    "Time the stage waited before starting",
+                    m -> m.getQueueMs() / MILLIS_PER_SECOND);
+            writeMetric(writer,
+                    "fennec_stage_exec_total",
+                    "counter",
+                    "Commands executed by the stage",
+                    m -> m.getExecCount().doubleValue());
+            writeMetric(writer,
+                    "fennec_stage_exec_duration_seconds",
+                    "gauge",
+                    "Total duration of the commands executed by the stage",
+                    m -> m.getExecDurationMs() / MILLIS_PER_SECOND);
+            writeMetric(writer,
+                    "fennec_stage_output_bytes",
+                    "gauge",
+                    "Bytes output by the commands executed by the stage",
+                    m -> m.getOutputBytes().doubleValue());
+            writeMetric(writer,
+                    "fennec_stage_events_total",
+                    "counter",
+                    "Events published by the stage",
+                    m -> m.getEventCount().doubleValue());
+            writeMetric(writer,
+                    "fennec_stage_event_publish_seconds",
+                    "gauge",
+                    "Total time spent publishing the events of the stage",
+                    m -> m.getEventPublishMicros() / MICROS_PER_SECOND);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @SneakyThrows
+    private void writeMetric(Writer writer, String name, String type, String help,
+            Function<StageMetrics, Double> value) {
+        writer.write(String.format("# HELP %s %s\n# TYPE %s %s\n", name, help, name, type));
+        for (Map.Entry<String, StageMetrics> stage : stages.entrySet()) {
+            writer.write(String.format("%s{stage=\"%s\"} %s\n",
+                    name,
+                    escapeLabel(stage.getKey()),
+                    value.apply(stage.getValue())));
+        }
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,19 @@
+package org.fennec.sdk.pipeline.metrics;
+
+import org.fennec.sdk.model.commons.StageMetrics;
+
+/**
+ * Receive the metrics of each stage once it is over
+ */
+@FunctionalInterface
+public interface StageMetricsExporter {
+
+    /**
+     * Called on the stage thread, before the end stage event is published
+     *
+     * @param stageName the stage name
+     * @param metrics   the stage metrics
+     */
+    void export(String stageName, StageMetrics metrics);
+
+}
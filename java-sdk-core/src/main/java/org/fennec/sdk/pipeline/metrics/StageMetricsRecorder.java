@@ -0,0 +1,151 @@
+package org.fennec.sdk.pipeline.metrics;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.fennec.sdk.model.commons.StageMetrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Record the timings and resources of the running stages. Disabled by default: recording is then a volatile read.<br>
+ * Once a stage is over its metrics are given to the exporters and attached to its end stage event.
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class StageMetricsRecorder {
+
+    private static final Map<String, RunningStage> RUNNING_STAGES = new ConcurrentHashMap<>();
+
+    private static volatile List<StageMetricsExporter> exporters;
+
+    /**
+     * Record the stage metrics from now
+     *
+     * @param stageMetricsExporters receive the metrics of each stage once it is over
+     */
+    public static void enable(StageMetricsExporter... stageMetricsExporters) {
+        exporters = List.of(stageMetricsExporters);
+    }
+
+    /**
+     * Stop recording
+     */
+    public static void disable() {
+        exporters = null;
+        RUNNING_STAGES.clear();
+    }
+
+    public static boolean isEnabled() {
+        return exporters != null;
+    }
+
+    /**
+     * @param stageName  the stage starting
+     * @param queueNanos the time the stage waited before starting
+     */
+    public static void stageStarted(String stageName, long queueNanos) {
+        if (!isEnabled() || stageName == null) {
+            return;
+        }
+        RUNNING_STAGES.put(stageName, new RunningStage(System.nanoTime(), queueNanos));
+    }
+
+    /**
+     * @param stageName     the stage running the command
+     * @param durationNanos the command duration
+     * @param outputBytes   the number of bytes output by the command
+     */
+    public static void recordExec(String stageName, long durationNanos, long outputBytes) {
+        RunningStage stage = runningStage(stageName);
+        if (stage != null) {
+            stage.execCount.increment();
+            stage.execDurationNanos.add(durationNanos);
+            stage.outputBytes.add(outputBytes);
+        }
+    }
+
+    /**
+     * @param stageName     the stage of the event
+     * @param durationNanos the time spent publishing the event
+     */
+    public static void recordEventPublish(String stageName, long durationNanos) {
+        RunningStage stage = runningStage(stageName);
+        if (stage != null) {
+            stage.eventCount.increment();
+            stage.eventPublishNanos.add(durationNanos);
+        }
+    }
+
+    /**
+     * Export the metrics of a stage
+     *
+     * @param stageName the stage over
+     * @return the stage metrics, null if disabled or if the stage start was not recorded
+     */
+    public static StageMetrics stageEnded(String stageName) {
+        List<StageMetricsExporter> currentExporters = exporters;
+        if (currentExporters == null || stageName == null) {
+            return null;
+        }
+        RunningStage stage = RUNNING_STAGES.remove(stageName);
+        if (stage == null) {
+            return null;
+        }
+        StageMetrics metrics = stage.toMetrics(System.nanoTime());
+        for (StageMetricsExporter exporter : currentExporters) {
+            try {
+                exporter.export(stageName, metrics);
+            } catch (RuntimeException e) {
+                log.warn("Cannot export metrics of \"{}\"", stageName, e);
+            }
+        }
+        return metrics;
+    }
+
+    private static RunningStage runningStage(String stageName) {
+        if (!isEnabled() || stageName == null) {
+            return null;
+        }
+        return RUNNING_STAGES.get(stageName);
+    }
+
+    private static class RunningStage {
+
+        private final long startNanos;
+
+        private final long queueNanos;
+
+        private final LongAdder execCount = new LongAdder();
+
+        private final LongAdder execDurationNanos = new LongAdder();
+
+        private final LongAdder outputBytes = new LongAdder();
+
+        private final LongAdder eventCount = new LongAdder();
+
+        private final LongAdder eventPublishNanos = new LongAdder();
+
+        RunningStage(long startNanos, long queueNanos) {
+            this.startNanos = startNanos;
+            this.queueNanos = queueNanos;
+        }
+
+        StageMetrics toMetrics(long endNanos) {
+            return StageMetrics
+                    .builder()
+                    .durationMs(TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos))
+                    .queueMs(TimeUnit.NANOSECONDS.toMillis(queueNanos))
+                    .execCount(execCount.sum())
+                    .execDurationMs(TimeUnit.NANOSECONDS.toMillis(execDurationNanos.sum()))
+                    .outputBytes(outputBytes.sum())
+                    .eventCount(eventCount.sum())
+                    .eventPublishMicros(TimeUnit.NANOSECONDS.toMicros(eventPublishNanos.sum()))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.fennec.sdk.pipeline.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A stage of a stage graph: it runs once all its dependencies succeeded
+ */
+@RequiredArgsConstructor
+public class GraphStage implements Stage {
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final SimpleStageHandler handler;
+
+    private final Set<String> dependencies = new LinkedHashSet<>();
+
+    /**
+     * @param stageNames the stages that must succeed before this one
+     * @return the stage
+     */
+    public GraphStage dependsOn(String... stageNames) {
+        dependencies.addAll(Arrays.asList(stageNames));
+        return this;
+    }
+
+    /**
+     * @return the names of the stages that must succeed before this one
+     */
+    public Set<String> getDependencies() {
+        return Collections.unmodifiableSet(dependencies);
+    }
+}
@@ -0,0 +1,66 @@
+package org.fennec.sdk.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.Getter;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A mapper with its readers and writers cached per type: the root (de)serializer of the type is resolved once rather
+ * than on each call. Readers and writers are immutable and thread safe.
+ *
+ * <pre>
+ *
+ * Image image = ObjectMappers.json().reader(Image.class).readValue(json);
+ *
+ * </pre>
+ */
+public final class CachedMapper {
+
+    @Getter
+    private final ObjectMapper mapper;
+
+    private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    CachedMapper(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * @param type the type read
+     * @return the reader of the type
+     */
+    public ObjectReader reader(Class<?> type) {
+        ObjectReader reader = readers.get(type);
+        return reader != null ? reader : readers.computeIfAbsent(type, key -> mapper.readerFor(type));
+    }
+
+    /**
+     * @param type the generic type read
+     * @return the reader of the type
+     */
+    public ObjectReader reader(TypeReference<?> type) {
+        // The type references are usually anonymous classes, a new instance per call
+        ObjectReader reader = readers.get(type.getType());
+        return reader != null ? reader : readers.computeIfAbsent(type.getType(), key -> mapper.readerFor(type));
+    }
+
+    /**
+     * @param value the value written
+     * @return the writer of the value class
+     */
+    public ObjectWriter writer(Object value) {
+        if (value == null) {
+            return mapper.writer();
+        }
+        ObjectWriter writer = writers.get(value.getClass());
+        return writer != null ? writer : writers.computeIfAbsent(value.getClass(), mapper::writerFor);
+    }
+}
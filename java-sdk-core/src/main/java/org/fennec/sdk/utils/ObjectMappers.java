@@ -0,0 +1,73 @@
+package org.fennec.sdk.utils;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * The Jackson mappers shared by the SDK, one per format. A mapper caches the serializers and deserializers it builds:
+ * creating one per class loses them.<br>
+ * The Blackbird module (or else the Afterburner module) is registered when on the classpath, unless the
+ * FENNEC_JACKSON_OPTIMIZER env is false: it replaces the reflection of the (de)serializers by generated code.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ObjectMappers {
+
+    public static final String JSON = "json";
+
+    private static final List<String> OPTIMIZER_MODULES = List.of(
+            "com.fasterxml.jackson.module.blackbird.BlackbirdModule",
+            "com.fasterxml.jackson.module.afterburner.AfterburnerModule");
+
+    private static final ConcurrentMap<String, CachedMapper> MAPPERS = new ConcurrentHashMap<>();
+
+    private static final CachedMapper JSON_MAPPER = get(JSON,
+            () -> new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL));
+
+    /**
+     * @return the JSON mapper, null fields are not written
+     */
+    public static CachedMapper json() {
+        return JSON_MAPPER;
+    }
+
+    /**
+     * @param format  the format: json, yaml, xml...
+     * @param factory create the mapper of the format on first use, fully configured: the cached readers and writers
+     *                ignore later configuration changes
+     * @return the mapper of the format
+     */
+    public static CachedMapper get(String format, Supplier<ObjectMapper> factory) {
+        return MAPPERS.computeIfAbsent(format, f -> new CachedMapper(optimize(factory.get())));
+    }
+
+    /**
+     * @return the optimizer module, if on the classpath and enabled
+     */
+    static Optional<Module> optimizerModule() {
+        if (!Boolean.parseBoolean(Utils.env("FENNEC_JACKSON_OPTIMIZER", "true"))) {
+            return Optional.empty();
+        }
+        for (String module : OPTIMIZER_MODULES) {
+            try {
+                return Optional.of((Module) Class.forName(module).getDeclaredConstructor().newInstance());
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Not on the classpath
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static ObjectMapper optimize(ObjectMapper mapper) {
+        optimizerModule().ifPresent(mapper::registerModule);
+        return mapper;
+    }
+}
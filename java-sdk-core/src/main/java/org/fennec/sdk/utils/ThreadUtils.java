@@ -0,0 +1,126 @@
+package org.fennec.sdk.utils;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Create threads and executors, using virtual threads when the JDK supports them (21+).<br>
+ * The SDK is compiled for Java 11: virtual threads are looked up by reflection.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ThreadUtils {
+
+    private static final int VIRTUAL_THREADS_FEATURE_VERSION = 21;
+
+    /**
+     * @return true if threads can be virtual
+     */
+    public static boolean isVirtualThreadSupported() {
+        return Runtime.version().feature() >= VIRTUAL_THREADS_FEATURE_VERSION;
+    }
+
+    /**
+     * @param prefix the thread name prefix
+     * @return a factory of virtual threads named prefix-N, empty if the JDK does not support them
+     */
+    public static Optional<ThreadFactory> virtualThreadFactory(String prefix) {
+        if (!isVirtualThreadSupported()) {
+            return Optional.empty();
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix + "-", 1L);
+            return Optional.of((ThreadFactory) builderClass.getMethod("factory").invoke(builder));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param prefix the thread name prefix
+     * @return a factory of daemon threads named prefix-N
+     */
+    public static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicLong counter = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Run each task on a new virtual thread when supported, else on a pool of at most maxThreads daemon threads
+     * (idle threads are released after a minute, extra tasks are queued)
+     *
+     * @param prefix     the thread name prefix
+     * @param maxThreads the max number of platform threads
+     * @return the executor
+     */
+    public static ExecutorService newVirtualOrBoundedExecutor(String prefix, int maxThreads) {
+        return newVirtualOrBoundedExecutor(prefix, maxThreads, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Run each task on a new virtual thread when supported, else on a pool of at most maxThreads daemon threads
+     * (idle threads are released after a minute, at most maxQueued extra tasks are queued, the others are rejected)
+     *
+     * @param prefix     the thread name prefix
+     * @param maxThreads the max number of platform threads
+     * @param maxQueued  the max number of tasks waiting for a platform thread
+     * @return the executor
+     */
+    public static ExecutorService newVirtualOrBoundedExecutor(String prefix, int maxThreads, int maxQueued) {
+        Optional<ExecutorService> virtual = virtualThreadFactory(prefix).flatMap(ThreadUtils::newThreadPerTaskExecutor);
+        if (virtual.isPresent()) {
+            return virtual.get();
+        }
+        return newBoundedExecutor(prefix, maxThreads, maxQueued);
+    }
+
+    /**
+     * @param prefix     the thread name prefix
+     * @param maxThreads the max number of daemon threads. Idle threads are released after a minute, extra tasks are
+     *                   queued
+     * @return the executor
+     */
+    public static ExecutorService newBoundedExecutor(String prefix, int maxThreads) {
+        return newBoundedExecutor(prefix, maxThreads, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param prefix     the thread name prefix
+     * @param maxThreads the max number of daemon threads. Idle threads are released after a minute
+     * @param maxQueued  the max number of tasks waiting for a thread: the extra ones are rejected with a
+     *                   {@link RejectedExecutionException}
+     * @return the executor
+     */
+    public static ExecutorService newBoundedExecutor(String prefix, int maxThreads, int maxQueued) {
+        BlockingQueue<Runnable> queue = maxQueued == 0
+                ? new SynchronousQueue<>()
+                : new LinkedBlockingQueue<>(maxQueued);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads,
+                maxThreads,
+                1,
+                TimeUnit.MINUTES,
+                queue,
+                daemonThreadFactory(prefix));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static Optional<ExecutorService> newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return Optional.of((ExecutorService) method.invoke(null, threadFactory));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -16,6 +16,28 @@ public final class Utils {
         return Optional.ofNullable(System.getenv(name));
     }
 
+    /**
+     * Read a positive integer env. As it may be read while the logging is configured, an invalid value is reported
+     * on the standard error
+     * @return the value of the env, the default one if the env is unset or not a positive integer
+     */
+    public static int positiveIntEnv(String name, int defaultValue) {
+        return env(name).map(value -> parsePositiveInt(name, value, defaultValue)).orElse(defaultValue);
+    }
+
+    static int parsePositiveInt(String name, String value, int defaultValue) {
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.err.printf("Invalid %s [%s], using %d%n", name, value, defaultValue);
+        return defaultValue;
+    }
+
     /**
      * Pipeline execution folder is project/.kubepipeline
      * @return the project folder
@@ -0,0 +1,49 @@
+package org.fennec.sdk.exec.common;
+
+import org.fennec.sdk.exec.common.capture.OutputCapturePolicy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+class TestExecService {
+
+    /**
+     * Only implements the original methods
+     */
+    private static class SimpleExecService implements ExecService {
+
+        private final List<String> executed = new ArrayList<>();
+
+        @Override
+        public CommandOutput execCommand(long timeoutSecond, String... cmd) {
+            executed.add(String.join(" ", cmd) + " " + timeoutSecond);
+            return new CommandOutput(0, "output");
+        }
+
+        @Override
+        public CommandOutput execCommand(String... cmd) {
+            return execCommand(0, cmd);
+        }
+    }
+
+    @Test
+    void testDefaultMethods() throws ExecCommandException {
+        SimpleExecService service = new SimpleExecService();
+
+        service.execCommand(OutputCapturePolicy.spillToFile(10), 5, "echo", "hello");
+        service.execCommand(OutputCapturePolicy.inMemory(), "echo", "world");
+        assertThat(service.executed, equalTo(List.of("echo hello 5", "echo world 0")));
+
+        ExecCommandException exception = Assertions.assertThrows(ExecCommandException.class,
+                () -> service.execCommand(OutputCapturePolicy.inMemory(), line -> {
+                }, "echo", "hello"));
+        assertThat(exception.getMessage(), containsString("line consumer not supported by SimpleExecService"));
+        assertThat(service.executed.size(), equalTo(2));
+    }
+}
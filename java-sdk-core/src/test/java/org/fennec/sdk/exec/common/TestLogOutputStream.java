@@ -0,0 +1,97 @@
+package org.fennec.sdk.exec.common;
+
+import org.fennec.sdk.exec.common.capture.InMemoryOutputCapture;
+import org.fennec.sdk.pipeline.PipelineConstants;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.slf4j.event.Level;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class TestLogOutputStream {
+
+    private static final String UNICODE = "caf\u00e9 \u20ac \ud83d\ude00";
+
+    private static LogOutputStream stream(int maxLineLength) {
+        return new LogOutputStream(Level.TRACE, Map.of(), maxLineLength);
+    }
+
+    @Test
+    void testMultipleLinesInOneChunk() {
+        LogOutputStream stream = stream(LogOutputStream.DEFAULT_MAX_LINE_LENGTH);
+        stream.write("Hello\nworld\r\n\n   \n  indented  \npartial".getBytes(StandardCharsets.UTF_8));
+        assertThat(stream.toString(), equalTo("Hello\nworld\nindented"));
+        stream.flush();
+        assertThat(stream.toString(), equalTo("Hello\nworld\nindented\npartial"));
+    }
+
+    @Test
+    void testOffsetAndLength() {
+        LogOutputStream stream = stream(LogOutputStream.DEFAULT_MAX_LINE_LENGTH);
+        byte[] bytes = "xxHello\nworld\nxx".getBytes(StandardCharsets.UTF_8);
+        stream.write(bytes, 2, bytes.length - 4);
+        assertThat(stream.toString(), equalTo("Hello\nworld"));
+    }
+
+    @Test
+    void testUtf8SplitAcrossWrites() {
+        byte[] bytes = (UNICODE + "\n" + UNICODE + "\n").getBytes(StandardCharsets.UTF_8);
+
+        LogOutputStream byteByByte = stream(LogOutputStream.DEFAULT_MAX_LINE_LENGTH);
+        for (byte b : bytes) {
+            byteByByte.write(b);
+        }
+        assertThat(byteByByte.toString(), equalTo(UNICODE + "\n" + UNICODE));
+
+        LogOutputStream chunks = stream(LogOutputStream.DEFAULT_MAX_LINE_LENGTH);
+        for (int i = 0; i < bytes.length; i += 3) {
+            chunks.write(bytes, i, Math.min(3, bytes.length - i));
+        }
+        assertThat(chunks.toString(), equalTo(UNICODE + "\n" + UNICODE));
+    }
+
+    @Test
+    void testMaxLineLength() {
+        LogOutputStream stream = stream(4);
+        stream.write("abcdefghij\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(stream.toString(), equalTo("abcd\nefgh\nij"));
+    }
+
+    @Test
+    void testMaxLineLengthDoesNotSplitCharacters() {
+        // e-acute is 2 bytes, euro is 3 bytes and the emoji 4 bytes
+        String line = "\u00e9\u00e9\u20ac\ud83d\ude00a";
+        LogOutputStream chunk = stream(5);
+        chunk.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        assertThat(chunk.toString(), equalTo("\u00e9\u00e9\n\u20ac\n\ud83d\ude00a"));
+
+        LogOutputStream byteByByte = stream(5);
+        for (byte b : (line + "\n").getBytes(StandardCharsets.UTF_8)) {
+            byteByByte.write(b);
+        }
+        assertThat(byteByByte.toString(), equalTo("\u00e9\u00e9\n\u20ac\n\ud83d\ude00a"));
+    }
+
+    @Test
+    void testMdcContextRestoredOnEveryLine() {
+        List<String> contexts = new ArrayList<>();
+        LogOutputStream stream = new LogOutputStream(Level.INFO,
+                Map.of(PipelineConstants.STAGE_NAME, "Build", "key", "value"), new InMemoryOutputCapture(),
+                line -> contexts.add(MDC.get(PipelineConstants.STAGE_NAME) + ":" + MDC.get("key")));
+        try {
+            stream.write("first\n".getBytes(StandardCharsets.UTF_8));
+            // Same thread and stage, another key changed
+            MDC.put("key", "other");
+            stream.write("second\n".getBytes(StandardCharsets.UTF_8));
+            assertThat(contexts, equalTo(List.of("Build:value", "Build:value")));
+        } finally {
+            MDC.clear();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.fennec.sdk.exec.common.capture;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class TestOutputCapture {
+
+    private static void appendLines(OutputCapture capture, int count) {
+        IntStream.range(0, count).mapToObj(i -> "line " + i).forEach(capture::append);
+    }
+
+    @Test
+    void testInMemory() throws IOException {
+        OutputCapture capture = OutputCapturePolicy.inMemory().create();
+        appendLines(capture, 3);
+        capture.complete();
+        assertThat(capture.getData(), equalTo("line 0\nline 1\nline 2\n"));
+        assertThat(capture.lines().collect(Collectors.toList()), equalTo(List.of("line 0", "line 1", "line 2")));
+        try (InputStream inputStream = capture.inputStream()) {
+            assertThat(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8), equalTo(capture.getData()));
+        }
+    }
+
+    @Test
+    void testHeadTail() {
+        // Each line is 7 characters with the separator
+        OutputCapture capture = OutputCapturePolicy.headTail(14, 21).create();
+        appendLines(capture, 10);
+        assertThat(capture.getData(), equalTo("line 0\nline 1\n... 5 lines omitted ...\nline 7\nline 8\nline 9\n"));
+        assertThat(capture.lines().collect(Collectors.toList()),
+                equalTo(List.of("line 0", "line 1", "line 7", "line 8", "line 9")));
+    }
+
+    @Test
+    void testHeadTailKeepsLastLine() {
+        OutputCapture capture = OutputCapturePolicy.headTail(0, 2).create();
+        appendLines(capture, 3);
+        assertThat(capture.getData(), equalTo("... 2 lines omitted ...\nline 2\n"));
+    }
+
+    @Test
+    void testSpillToFile() throws IOException {
+        FileOutputCapture capture = (FileOutputCapture) OutputCapturePolicy.spillToFile(18).create();
+        appendLines(capture, 1000);
+        capture.complete();
+
+        assertThat(capture.getData(),
+                equalTo(String.format("... 998 lines omitted, full output in %s ...\nline 998\nline 999\n",
+                        capture.getFile())));
+        try (Stream<String> lines = capture.lines()) {
+            assertThat(lines.count(), equalTo(1000L));
+        }
+        try (InputStream inputStream = capture.inputStream()) {
+            assertThat(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8), startsWith("line 0\nline 1\n"));
+        }
+
+        capture.close();
+        assertThat(Files.exists(capture.getFile()), equalTo(false));
+    }
+}
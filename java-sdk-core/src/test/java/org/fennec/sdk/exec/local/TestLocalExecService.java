@@ -4,6 +4,7 @@ import ch.qos.logback.classic.Logger;
 import lombok.SneakyThrows;
 import org.fennec.sdk.exec.common.CommandOutput;
 import org.fennec.sdk.exec.common.ExecCommandException;
+import org.fennec.sdk.exec.common.capture.OutputCapturePolicy;
 import org.fennec.sdk.model.events.TimestampedEvent;
 import org.fennec.sdk.pipeline.Pipeline;
 import org.fennec.sdk.testing.utils.TestingEventAppender;
@@ -14,10 +15,21 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.LoggerFactory;
 import org.slf4j.event.Level;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.fennec.sdk.error.Fail.fail;
 import static org.fennec.sdk.pipeline.Pipeline.stage;
@@ -217,4 +229,137 @@ class TestLocalExecService {
                 "Caught Exception while executing \"Init\": Error during init: Exec Command [sleep, 10] failed with Timeout after 1s",
                 null);
     }
+
+    @Test
+    @SneakyThrows
+    void testSpillToFile() {
+
+        CompletableFuture<CommandOutput> completableFuture = new CompletableFuture<>();
+
+        stage("Init", context -> {
+            try {
+                LocalExecService localExecService = new LocalExecService(System.getProperty("user.dir"), Level.INFO);
+                completableFuture.complete(localExecService.execCommand(OutputCapturePolicy.spillToFile(6),
+                        "echo",
+                        "Hello\nworld"));
+            } catch (ExecCommandException e) {
+                fail("Command must be success", e);
+            }
+        });
+
+        try (CommandOutput output = completableFuture.get(200, TimeUnit.MILLISECONDS)) {
+            assertThat(output.getStatus(), equalTo(0));
+            assertThat(output.getData(), allOf(startsWith("... 1 lines omitted, full output in "), endsWith("world")));
+            try (Stream<String> lines = output.lines()) {
+                assertThat(lines.collect(Collectors.toList()), contains("Hello", "world"));
+            }
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testSpillToFileKeptOnFailure() {
+
+        CompletableFuture<ExecCommandException> completableFuture = new CompletableFuture<>();
+
+        stage("Init", context -> {
+            try {
+                LocalExecService localExecService = new LocalExecService(System.getProperty("user.dir"), Level.INFO);
+                localExecService.execCommand(OutputCapturePolicy.spillToFile(6),
+                        "sh",
+                        "-c",
+                        "echo Hello; echo world; exit 3");
+                fail("Command must fail");
+            } catch (ExecCommandException e) {
+                completableFuture.complete(e);
+            }
+        });
+
+        ExecCommandException exception = completableFuture.get(200, TimeUnit.MILLISECONDS);
+        assertThat(exception.getStatusCode(), equalTo(3));
+        Matcher matcher = Pattern.compile("full output in (\\S+) \\.\\.\\.").matcher(exception.getOutput());
+        assertThat(matcher.find(), equalTo(true));
+        // The file named in the failure reason is still there
+        Path file = Path.of(matcher.group(1));
+        assertThat(Files.readAllLines(file), contains("Hello", "world"));
+        Files.delete(file);
+    }
+
+    @Test
+    @SneakyThrows
+    void testLineConsumer() {
+
+        CompletableFuture<CommandOutput> completableFuture = new CompletableFuture<>();
+        List<String> lines = new CopyOnWriteArrayList<>();
+
+        stage("Init", context -> {
+            try {
+                LocalExecService localExecService = new LocalExecService(System.getProperty("user.dir"), Level.INFO);
+                completableFuture.complete(localExecService.execCommand(OutputCapturePolicy.inMemory(),
+                        lines::add,
+                        "echo",
+                        "Hello\nworld"));
+            } catch (ExecCommandException e) {
+                fail("Command must be success", e);
+            }
+        });
+
+        CommandOutput output = completableFuture.get(200, TimeUnit.MILLISECONDS);
+        assertThat(output.getData(), equalTo("Hello\nworld"));
+        assertThat(lines, contains("Hello", "world"));
+    }
+
+    @Test
+    @SneakyThrows
+    void testLineConsumerAbortsCommand() {
+
+        CompletableFuture<ExecCommandException> commandMustHaveFail = new CompletableFuture<>();
+        List<String> lines = new CopyOnWriteArrayList<>();
+
+        stage("Init", context -> {
+            try {
+                LocalExecService localExecService = new LocalExecService(System.getProperty("user.dir"), Level.INFO);
+                localExecService.execCommand(OutputCapturePolicy.inMemory(), line -> {
+                    lines.add(line);
+                    if (line.contains("BUILD FAILURE")) {
+                        throw new IllegalStateException("Build failed");
+                    }
+                }, 10, "/bin/sh", "-c", "echo Building; echo BUILD FAILURE; sleep 10; echo Never");
+                fail("Command must be aborted");
+            } catch (ExecCommandException e) {
+                commandMustHaveFail.complete(e);
+            }
+        });
+
+        ExecCommandException exception = commandMustHaveFail.get(2, TimeUnit.SECONDS);
+        assertThat(exception.getMessage(),
+                equalTo("Exec Command [/bin/sh, -c, echo Building; echo BUILD FAILURE; sleep 10; echo Never] failed with line consumer error"));
+        assertThat(exception.getCause().getMessage(), equalTo("Build failed"));
+        assertThat(lines, contains("Building", "BUILD FAILURE"));
+    }
+
+    @Test
+    @SneakyThrows
+    void testConcurrentCommandsDoNotUseCommonPool() {
+        int commands = 4 * Runtime.getRuntime().availableProcessors() + 32;
+        ExecutorService callers = Executors.newFixedThreadPool(commands);
+        try {
+            LocalExecService localExecService = new LocalExecService(System.getProperty("user.dir"), Level.INFO);
+            List<Future<CommandOutput>> outputs = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < commands; i++) {
+                outputs.add(callers.submit(() -> localExecService.execCommand(10,
+                        "/bin/sh",
+                        "-c",
+                        "sleep 1; echo done")));
+            }
+            for (Future<CommandOutput> output : outputs) {
+                assertThat(output.get(10, TimeUnit.SECONDS).getData(), equalTo("done"));
+            }
+            assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), lessThan(5L));
+            assertThat(ForkJoinPool.commonPool().getActiveThreadCount(), equalTo(0));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,78 @@
+package org.fennec.sdk.log;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+class TestSecretConcealer {
+
+    @Test
+    void testConceal() {
+        SecretConcealer concealer = SecretConcealer.of(List.of("password", "token123", "sword"));
+
+        assertThat(concealer.conceal("login with password and token123"), equalTo("login with ****** and ******"));
+        assertThat(concealer.conceal("passwordpassword"), equalTo("************"));
+        // Overlapping secrets are concealed as a single block
+        assertThat(concealer.conceal("swordfish"), equalTo("******fish"));
+        assertThat(concealer.conceal("nothing to hide"), equalTo("nothing to hide"));
+    }
+
+    @Test
+    void testConcealManySecrets() {
+        // More states than the ASCII table holds: the deep ones use the sorted transitions
+        List<String> secrets = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            secrets.add("secret-" + i + "-value");
+        }
+        secrets.add("s\u00e9cret");
+        SecretConcealer concealer = SecretConcealer.of(secrets);
+
+        assertThat(concealer.conceal("a secret-42-value and secret-99-value"), equalTo("a ****** and ******"));
+        assertThat(concealer.conceal("secret-1-valu secret-7-value-x"), equalTo("secret-1-valu ******-x"));
+        assertThat(concealer.conceal("s\u00e9cret secret-"), equalTo("****** secret-"));
+    }
+
+    @Test
+    void testStripAnsi() {
+        SecretConcealer concealer = SecretConcealer.of(List.of("password"));
+
+        assertThat(concealer.concealAndStripAnsi("\u001b[1;31mERROR\u001b[m pass\u001b[0mword"),
+                equalTo("ERROR ******"));
+        // Same as the former regular expression: not a color code without 'm' on the same line
+        assertThat(concealer.concealAndStripAnsi("\u001b[1;31\nm"), equalTo("\u001b[1;31\nm"));
+        assertThat(SecretConcealer.none().concealAndStripAnsi("\u001b[32mOK\u001b[0m"), equalTo("OK"));
+    }
+
+    @Test
+    void testCache() {
+        assertThat(SecretConcealer.of(List.of("a", "b")), sameInstance(SecretConcealer.of(List.of("a", "b"))));
+        assertThat(SecretConcealer.of(List.of()), sameInstance(SecretConcealer.none()));
+        // Empty secrets are ignored
+        assertThat(SecretConcealer.of(List.of("")).conceal("message"), equalTo("message"));
+    }
+
+    @Test
+    void testFormattedMessage() {
+        LoggingEvent event = new LoggingEvent(LogUtils.class.getName(),
+                (Logger) LoggerFactory.getLogger(TestSecretConcealer.class),
+                Level.INFO,
+                "\u001b[34mdocker login -p {}\u001b[0m",
+                new IllegalStateException("\u001b[31mFailed\u001b[0m"),
+                new Object[] { "s3cr3t" });
+        event.setMDCPropertyMap(Map.of(LogUtils.SECRET + "docker", "s3cr3t", "stage", "Build"));
+
+        assertThat(LogUtils.getFormattedMessage(event).split("\n")[0], equalTo("docker login -p ******"));
+        assertThat(LogUtils.getFormattedMessage(event).split("\n")[1],
+                equalTo("java.lang.IllegalStateException: Failed"));
+    }
+}
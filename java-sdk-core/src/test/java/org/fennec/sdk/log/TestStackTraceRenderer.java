@@ -0,0 +1,81 @@
+package org.fennec.sdk.log;
+
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class TestStackTraceRenderer {
+
+    private static Exception nested(int depth) {
+        if (depth == 0) {
+            return new IOException("Root cause");
+        }
+        Exception cause = nested(depth - 1);
+        return new IllegalStateException("Level " + depth, cause);
+    }
+
+    private static Exception deep(int depth) {
+        if (depth == 0) {
+            return new IllegalStateException("Deep");
+        }
+        return deep(depth - 1);
+    }
+
+    @Test
+    void testCommonFramesOmitted() {
+        String trace = new StackTraceRenderer(64, 8).render(new ThrowableProxy(new IllegalStateException("Failed",
+                new IOException("Disk full"))));
+
+        String[] lines = trace.split("\n");
+        assertThat(lines[0], equalTo("java.lang.IllegalStateException: Failed"));
+        assertThat(lines[1], startsWith("  at org.fennec.sdk.log.TestStackTraceRenderer.testCommonFramesOmitted"));
+        // The cause is created on the same line: all its frames are shared with the enclosing trace
+        assertThat(lines[lines.length - 2], equalTo("Caused by: java.io.IOException: Disk full"));
+        assertThat(lines[lines.length - 1].matches("  \\.\\.\\. \\d+ common frames omitted"), equalTo(true));
+    }
+
+    @Test
+    void testFramesLimit() {
+        String trace = new StackTraceRenderer(3, 8).render(new ThrowableProxy(deep(20)));
+
+        String[] lines = trace.split("\n");
+        assertThat(lines.length, equalTo(5));
+        assertThat(lines[3], startsWith("  at org.fennec.sdk.log.TestStackTraceRenderer.deep"));
+        assertThat(lines[4].matches("  \\.\\.\\. \\d+ frames truncated"), equalTo(true));
+    }
+
+    @Test
+    void testCausesLimit() {
+        String trace = new StackTraceRenderer(64, 2).render(new ThrowableProxy(nested(5)));
+
+        assertThat(Arrays.stream(trace.split("\n")).filter(line -> !line.startsWith("  ")).toArray(),
+                arrayContaining("java.lang.IllegalStateException: Level 5",
+                        "Caused by: java.lang.IllegalStateException: Level 4",
+                        "Caused by: java.lang.IllegalStateException: Level 3",
+                        "Caused by: ... more causes omitted"));
+    }
+
+    @Test
+    void testSuppressed() {
+        Exception exception = new IllegalStateException("Failed");
+        exception.addSuppressed(new IOException("Close failed"));
+
+        String trace = new StackTraceRenderer(1, 8).render(new ThrowableProxy(exception));
+
+        assertThat(trace, containsString("\n  Suppressed: java.io.IOException: Close failed\n    at "));
+    }
+
+    @Test
+    void testCache() {
+        StackTraceRenderer renderer = new StackTraceRenderer(64, 8);
+        ThrowableProxy throwableProxy = new ThrowableProxy(nested(2));
+
+        assertThat(renderer.render(throwableProxy), sameInstance(renderer.render(throwableProxy)));
+        assertThat(renderer.render(null), equalTo(""));
+    }
+}
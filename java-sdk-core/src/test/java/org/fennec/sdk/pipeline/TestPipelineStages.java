@@ -2,11 +2,13 @@ package org.fennec.sdk.pipeline;
 
 import ch.qos.logback.classic.Logger;
 import lombok.extern.slf4j.Slf4j;
+import org.fennec.sdk.exec.local.LocalExecService;
 import org.fennec.sdk.model.commons.*;
 import org.fennec.sdk.model.events.EndStageEvent;
 import org.fennec.sdk.model.events.StageLogEvent;
 import org.fennec.sdk.model.events.StartStageEvent;
 import org.fennec.sdk.model.events.TimestampedEvent;
+import org.fennec.sdk.pipeline.model.SimpleStageHandler;
 import org.fennec.sdk.testing.utils.TestingEventAppender;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -19,10 +21,14 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.awaitility.Awaitility.await;
+import static org.fennec.sdk.error.Fail.fail;
 import static org.fennec.sdk.pipeline.Pipeline.*;
 import static org.fennec.sdk.testing.utils.EventTestsUtils.*;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -43,6 +49,10 @@ class TestPipelineStages {
         }
     }
 
+    private static Map<String, SimpleStageHandler> stages(int count, SimpleStageHandler handler) {
+        return IntStream.range(0, count).boxed().collect(Collectors.toMap(i -> "Stage " + i, i -> handler));
+    }
+
     @BeforeEach
     void init() {
         Pipeline.configure(() -> {
@@ -311,6 +321,115 @@ class TestPipelineStages {
         testEndStageEvent(events.get(5), "Sonar", null, null);
     }
 
+    @Test
+    void testParallelStagesScaleWithStageCount() {
+        int stageCount = 2 * Runtime.getRuntime().availableProcessors() + 2;
+        CountDownLatch allStarted = new CountDownLatch(stageCount);
+        // Each stage waits for all the others: fails if the stages do not all run at the same time
+        parallel("Deployments", stages(stageCount, context -> {
+            allStarted.countDown();
+            try {
+                if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Stages are not running concurrently");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        List<EndStageEvent> endStageEvents = getEventsForType(testingEventAppender.getEvents(), EndStageEvent.class);
+        assertThat(endStageEvents, hasSize(stageCount));
+        endStageEvents.forEach(event -> assertThat(event.getReason(), nullValue()));
+    }
+
+    @Test
+    void testMaxConcurrency() {
+        parallelExecution(StageExecutorStrategy.maxConcurrency(2));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        parallel("Deployments", stages(6, context -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(100L);
+            running.decrementAndGet();
+        }));
+
+        assertThat(getEventsForType(testingEventAppender.getEvents(), EndStageEvent.class), hasSize(6));
+        assertThat(maxRunning.get(), equalTo(2));
+    }
+
+    @Test
+    void testFixedPool() {
+        Pipeline.configure(() -> Assertions.fail("Test failed"), StageExecutorStrategy.fixedPool(3));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        parallel("Deployments", stages(6, context -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(100L);
+            running.decrementAndGet();
+        }));
+
+        assertThat(getEventsForType(testingEventAppender.getEvents(), EndStageEvent.class), hasSize(6));
+        assertThat(maxRunning.get(), equalTo(3));
+    }
+
+    @Test
+    void testFailFastParallelDeployment() {
+        CompletableFuture<Void> pipelineMustHaveFail = new CompletableFuture<>();
+        Pipeline.configure(() -> pipelineMustHaveFail.complete(null)).withFailFast(true);
+
+        long start = System.nanoTime();
+        deploy("staging", "region", Map.of("eu-west-1", context -> {
+            sleep(100L);
+            fail("Deployment failed");
+        }, "eu-west-2", context -> {
+            // The command is destroyed when the stage is interrupted
+            new LocalExecService(System.getProperty("user.dir"), Level.INFO).execCommand("sleep", "30");
+        }), Map.of("eu-west-1", context -> {
+            log.info("Rollback eu-west-1");
+        }, "eu-west-2", context -> {
+            log.info("Rollback eu-west-2");
+        }));
+
+        assertThat(pipelineMustHaveFail.isDone(), equalTo(true));
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), lessThan(10L));
+        assertThat(testingEventAppender.getUnmatched(), empty());
+        assertThat(testingEventAppender.getInError(), empty());
+
+        List<EndStageEvent> endStageEvents = getEventsForType(testingEventAppender.getEvents(), EndStageEvent.class);
+        assertThat(endStageEvents, hasSize(4));
+        testEndStageEvent(endStageEvents.get(0),
+                "Deploy to staging (eu-west-1)",
+                "Caught Exception while executing \"Deploy to staging (eu-west-1)\": Deployment failed",
+                null);
+        testEndStageEvent(endStageEvents.get(1),
+                "Deploy to staging (eu-west-2)",
+                "Cancelled as \"Deploy to staging (eu-west-1)\" failed",
+                null);
+        assertThat(endStageEvents.get(2).getStage(), startsWith("Rollback staging"));
+        assertThat(endStageEvents.get(3).getStage(), startsWith("Rollback staging"));
+    }
+
+    @Test
+    void testFailFastSkipsStagesNotStarted() {
+        CompletableFuture<Void> pipelineMustHaveFail = new CompletableFuture<>();
+        Pipeline
+                .configure(() -> pipelineMustHaveFail.complete(null), StageExecutorStrategy.maxConcurrency(1))
+                .withFailFast(true);
+
+        AtomicInteger executed = new AtomicInteger();
+        parallel("Parallel", stages(3, context -> {
+            executed.incrementAndGet();
+            fail("Stage failed");
+        }));
+
+        assertThat(pipelineMustHaveFail.isDone(), equalTo(true));
+        assertThat(executed.get(), equalTo(1));
+        List<EndStageEvent> endStageEvents = getEventsForType(testingEventAppender.getEvents(), EndStageEvent.class);
+        assertThat(endStageEvents, hasSize(3));
+        assertThat(endStageEvents.get(1).getReason(), startsWith("Cancelled as "));
+        assertThat(endStageEvents.get(2).getReason(), startsWith("Cancelled as "));
+    }
+
     @Test
     void testReport() {
         final TestReport testReport = TestReport
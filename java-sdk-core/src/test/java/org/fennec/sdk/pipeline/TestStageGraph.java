@@ -0,0 +1,180 @@
+package org.fennec.sdk.pipeline;
+
+import ch.qos.logback.classic.Logger;
+import org.fennec.sdk.model.events.EndStageEvent;
+import org.fennec.sdk.model.events.StartStageEvent;
+import org.fennec.sdk.model.events.TimestampedEvent;
+import org.fennec.sdk.testing.utils.TestingEventAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.fennec.sdk.error.Fail.fail;
+import static org.fennec.sdk.pipeline.Pipeline.graph;
+import static org.fennec.sdk.testing.utils.EventTestsUtils.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class TestStageGraph {
+
+    TestingEventAppender testingEventAppender = (TestingEventAppender) ((Logger) LoggerFactory.getLogger(
+            "fennec-print-events")).getAppender("STDOUT");
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Stages are not running concurrently");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long timeMs) {
+        try {
+            Thread.sleep(timeMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, String> endReasons() {
+        // Map.of does not accept null values
+        return getEventsForType(testingEventAppender.getEvents(), EndStageEvent.class)
+                .stream()
+                .collect(Collectors.toMap(EndStageEvent::getStage, e -> String.valueOf(e.getReason())));
+    }
+
+    @BeforeEach
+    void init() {
+        Pipeline.configure(() -> {
+            Assertions.fail("Test failed. Current event list: " + testingEventAppender
+                    .getRawEvents()
+                    .stream()
+                    .collect(Collectors.joining("\n")));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        testingEventAppender.clear();
+    }
+
+    @Test
+    void testDependencies() {
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        graph("Build and deploy", 4, graph -> {
+            graph.stage("Deploy", context -> executed.add("Deploy")).dependsOn("Build image", "Integration tests");
+            graph.stage("Build image", context -> {
+                bothStarted.countDown();
+                await(bothStarted);
+                executed.add("Build image");
+            });
+            graph.stage("Integration tests", context -> {
+                bothStarted.countDown();
+                await(bothStarted);
+                executed.add("Integration tests");
+            });
+        });
+
+        assertThat(executed, hasSize(3));
+        assertThat(executed.get(2), equalTo("Deploy"));
+
+        assertThat(testingEventAppender.getUnmatched(), empty());
+        assertThat(testingEventAppender.getInError(), empty());
+        List<TimestampedEvent> events = testingEventAppender.getEvents();
+        List<StartStageEvent> startStageEvents = getEventsForType(events, StartStageEvent.class);
+        assertThat(startStageEvents, hasSize(3));
+        startStageEvents.forEach(event -> assertThat(event.getParallel(), equalTo("Build and deploy")));
+        assertThat(events.get(events.size() - 2), equalTo(startStageEvents.get(2)));
+        testStartStageEvent(startStageEvents.get(2), "Deploy", "Build and deploy", null);
+        testEndStageEvent(events.get(events.size() - 1), "Deploy", null, null);
+    }
+
+    @Test
+    void testFailedDependencySkipsDependents() {
+        CompletableFuture<Void> pipelineMustHaveFail = new CompletableFuture<>();
+        Pipeline.configure(() -> pipelineMustHaveFail.complete(null));
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        graph("Build and deploy", 4, graph -> {
+            graph.stage("Build", context -> fail("Build failed"));
+            graph.stage("Package", context -> executed.add("Package")).dependsOn("Build");
+            graph.stage("Deploy", context -> executed.add("Deploy")).dependsOn("Package");
+            graph.stage("Lint", context -> executed.add("Lint"));
+        });
+
+        assertThat(pipelineMustHaveFail.isDone(), equalTo(true));
+        assertThat(executed, contains("Lint"));
+        assertThat(endReasons(),
+                allOf(hasEntry("Build", "Caught Exception while executing \"Build\": Build failed"),
+                        hasEntry("Package", "Skipped as \"Build\" failed"),
+                        hasEntry("Deploy", "Skipped as \"Build\" failed"),
+                        hasEntry("Lint", "null")));
+    }
+
+    @Test
+    void testCycle() {
+        CompletableFuture<Void> pipelineMustHaveFail = new CompletableFuture<>();
+        Pipeline.configure(() -> pipelineMustHaveFail.complete(null));
+
+        graph("Graph", 4, graph -> {
+            graph.stage("A", context -> {
+            }).dependsOn("B");
+            graph.stage("B", context -> {
+            }).dependsOn("A");
+            graph.stage("C", context -> {
+            });
+        });
+
+        assertThat(pipelineMustHaveFail.isDone(), equalTo(true));
+        assertThat(endReasons(),
+                equalTo(Map.of("Graph", "Caught Exception while executing \"Graph\": Stages [A, B] depend on each other")));
+    }
+
+    @Test
+    void testUnknownDependency() {
+        CompletableFuture<Void> pipelineMustHaveFail = new CompletableFuture<>();
+        Pipeline.configure(() -> pipelineMustHaveFail.complete(null));
+
+        graph("Graph", 4, graph -> graph.stage("A", context -> {
+        }).dependsOn("B"));
+
+        assertThat(pipelineMustHaveFail.isDone(), equalTo(true));
+        assertThat(endReasons(),
+                equalTo(Map.of("Graph",
+                        "Caught Exception while executing \"Graph\": Stage \"A\" depends on unknown stage \"B\"")));
+    }
+
+    @Test
+    void testMaxConcurrency() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        graph("Graph", 2, graph -> {
+            for (int i = 0; i < 6; i++) {
+                graph.stage("Stage " + i, context -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(100L);
+                    running.decrementAndGet();
+                });
+            }
+        });
+
+        assertThat(getEventsForType(testingEventAppender.getEvents(), EndStageEvent.class), hasSize(6));
+        assertThat(maxRunning.get(), equalTo(2));
+    }
+}
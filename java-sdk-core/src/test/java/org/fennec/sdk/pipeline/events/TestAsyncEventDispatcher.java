@@ -0,0 +1,246 @@
+package org.fennec.sdk.pipeline.events;
+
+import org.fennec.sdk.model.events.StageLogEvent;
+import org.fennec.sdk.model.events.TimestampedEvent;
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.Level;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class TestAsyncEventDispatcher {
+
+    private static StageLogEvent log(String stage, Level level, String message) {
+        return new StageLogEvent(System.currentTimeMillis(), stage, level, message);
+    }
+
+    private static List<String> messages(List<TimestampedEvent> events, String stage) {
+        return events
+                .stream()
+                .map(StageLogEvent.class::cast)
+                .filter(event -> event.getStage().equals(stage))
+                .map(StageLogEvent::getMessage)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void testOrderIsKeptPerStage() throws InterruptedException {
+        List<TimestampedEvent> written = Collections.synchronizedList(new ArrayList<>());
+        try (AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(16, 4, OverflowPolicy.BLOCK, written::addAll)) {
+            List<Thread> threads = new ArrayList<>();
+            for (String stage : List.of("Build", "Test", "Sonar")) {
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        dispatcher.publish(log(stage, Level.INFO, String.valueOf(i)));
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertThat(dispatcher.flush(5, TimeUnit.SECONDS), equalTo(true));
+            assertThat(written, hasSize(3000));
+            for (String stage : List.of("Build", "Test", "Sonar")) {
+                List<String> messages = messages(written, stage);
+                for (int i = 0; i < 1000; i++) {
+                    assertThat(messages.get(i), equalTo(String.valueOf(i)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testDropDebugAndTrace() throws InterruptedException {
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        List<TimestampedEvent> written = Collections.synchronizedList(new ArrayList<>());
+        try (AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(2,
+                1,
+                OverflowPolicy.DROP_DEBUG_TRACE,
+                events -> {
+                    await(writerBlocked);
+                    written.addAll(events);
+                })) {
+            for (int i = 0; i < 10; i++) {
+                dispatcher.publish(log("Build", Level.DEBUG, "debug " + i));
+            }
+            assertThat(dispatcher.getDroppedCount(), greaterThan(0L));
+            writerBlocked.countDown();
+            dispatcher.publish(log("Build", Level.WARN, "warn"));
+            assertThat(dispatcher.flush(5, TimeUnit.SECONDS), equalTo(true));
+            assertThat(written.size() + dispatcher.getDroppedCount(), equalTo(11L));
+            assertThat(messages(written, "Build"), hasItem("warn"));
+        }
+    }
+
+    @Test
+    void testCoalesce() {
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        List<TimestampedEvent> written = Collections.synchronizedList(new ArrayList<>());
+        try (AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(2, 1, OverflowPolicy.COALESCE, events -> {
+            await(writerBlocked);
+            written.addAll(events);
+        })) {
+            for (int i = 0; i < 10; i++) {
+                dispatcher.publish(log("Build", Level.INFO, "line " + i));
+            }
+            writerBlocked.countDown();
+            assertThat(dispatcher.flush(5, TimeUnit.SECONDS), equalTo(true));
+            assertThat(written.size(), lessThan(10));
+            assertThat(String.join("\n", messages(written, "Build")),
+                    equalTo("line 0\nline 1\nline 2\nline 3\nline 4\nline 5\nline 6\nline 7\nline 8\nline 9"));
+        }
+    }
+
+    @Test
+    void testCoalescedLogsAreCapped() {
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        List<TimestampedEvent> written = Collections.synchronizedList(new ArrayList<>());
+        List<StageLogEvent> logs = new ArrayList<>();
+        String line = "x".repeat(1000);
+        try (AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(2, 1, OverflowPolicy.COALESCE, events -> {
+            await(writerBlocked);
+            written.addAll(events);
+        })) {
+            for (int i = 0; i < 200; i++) {
+                StageLogEvent log = log("Build", Level.INFO, line);
+                logs.add(log);
+                dispatcher.publish(log);
+            }
+            writerBlocked.countDown();
+            assertThat(dispatcher.flush(5, TimeUnit.SECONDS), equalTo(true));
+        }
+        List<String> messages = messages(written, "Build");
+        assertThat(messages.stream().allMatch(message -> message.length() <= LogCoalescer.DEFAULT_MAX_SIZE),
+                equalTo(true));
+        assertThat(String.join("\n", messages).split("\n").length, equalTo(200));
+        // The published events are left as is
+        assertThat(logs.stream().allMatch(log -> log.getMessage().equals(line)), equalTo(true));
+    }
+
+    @Test
+    void testCloseWhilePublishersAreBlocked() throws InterruptedException {
+        for (OverflowPolicy policy : List.of(OverflowPolicy.BLOCK, OverflowPolicy.COALESCE)) {
+            CountDownLatch writerBlocked = new CountDownLatch(1);
+            List<TimestampedEvent> written = Collections.synchronizedList(new ArrayList<>());
+            AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(2, 1, policy, events -> {
+                await(writerBlocked);
+                written.addAll(events);
+            });
+            List<Thread> publishers = new ArrayList<>();
+            for (int p = 0; p < 3; p++) {
+                String stage = "Stage " + p;
+                Thread publisher = new Thread(() -> {
+                    for (int i = 0; i < 5; i++) {
+                        dispatcher.publish(log(stage, Level.INFO, "line " + i));
+                    }
+                });
+                publisher.start();
+                publishers.add(publisher);
+            }
+            Thread closing = new Thread(dispatcher::close);
+            closing.start();
+            Thread.sleep(100);
+
+            writerBlocked.countDown();
+            closing.join(5000);
+            for (Thread publisher : publishers) {
+                publisher.join(5000);
+            }
+            assertThat(dispatcher.flush(1, TimeUnit.SECONDS), equalTo(true));
+            for (int p = 0; p < 3; p++) {
+                assertThat(policy + " stage " + p, String.join("\n", messages(written, "Stage " + p)),
+                        equalTo("line 0\nline 1\nline 2\nline 3\nline 4"));
+            }
+        }
+    }
+
+    @Test
+    void testCoalesceIsBounded() throws InterruptedException {
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        List<TimestampedEvent> written = Collections.synchronizedList(new ArrayList<>());
+        try (AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(2, 1, OverflowPolicy.COALESCE, events -> {
+            await(writerBlocked);
+            written.addAll(events);
+        })) {
+            // Interleaved stages cannot be merged
+            Thread publisher = new Thread(() -> {
+                for (int i = 0; i < 20; i++) {
+                    dispatcher.publish(log(i % 2 == 0 ? "Build" : "Test", Level.INFO, "line " + i));
+                }
+            });
+            publisher.start();
+            publisher.join(500);
+            assertThat("Blocked once the overflow is full", publisher.isAlive(), equalTo(true));
+
+            writerBlocked.countDown();
+            publisher.join(5000);
+            assertThat(dispatcher.flush(5, TimeUnit.SECONDS), equalTo(true));
+            assertThat(String.join("\n", messages(written, "Test")),
+                    equalTo("line 1\nline 3\nline 5\nline 7\nline 9\nline 11\nline 13\nline 15\nline 17\nline 19"));
+        }
+    }
+
+    @Test
+    void testPublishWhileClosing() throws InterruptedException {
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        AtomicInteger writing = new AtomicInteger();
+        AtomicBoolean concurrentWrites = new AtomicBoolean();
+        List<TimestampedEvent> written = Collections.synchronizedList(new ArrayList<>());
+        AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(16, 1, OverflowPolicy.BLOCK, events -> {
+            if (writing.incrementAndGet() > 1) {
+                concurrentWrites.set(true);
+            }
+            await(writerBlocked);
+            written.addAll(events);
+            writing.decrementAndGet();
+        });
+        for (int i = 0; i < 5; i++) {
+            dispatcher.publish(log("Build", Level.INFO, String.valueOf(i)));
+        }
+        Thread closing = new Thread(dispatcher::close);
+        closing.start();
+        Thread.sleep(100);
+        Thread late = new Thread(() -> dispatcher.publish(log("Build", Level.INFO, "late")));
+        late.start();
+        Thread.sleep(100);
+
+        writerBlocked.countDown();
+        closing.join(5000);
+        late.join(5000);
+        assertThat(concurrentWrites.get(), equalTo(false));
+        assertThat(messages(written, "Build"), equalTo(List.of("0", "1", "2", "3", "4", "late")));
+    }
+
+    @Test
+    void testCloseWritesPendingEvents() {
+        List<TimestampedEvent> written = Collections.synchronizedList(new ArrayList<>());
+        AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(1024, 8, OverflowPolicy.BLOCK, written::addAll);
+        for (int i = 0; i < 500; i++) {
+            dispatcher.publish(log("Build", Level.INFO, String.valueOf(i)));
+        }
+        dispatcher.close();
+        assertThat(written, hasSize(500));
+
+        // Once closed events are written synchronously
+        dispatcher.publish(log("Build", Level.INFO, "after close"));
+        assertThat(written, hasSize(501));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
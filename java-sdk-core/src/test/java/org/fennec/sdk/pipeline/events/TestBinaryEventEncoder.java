@@ -0,0 +1,69 @@
+package org.fennec.sdk.pipeline.events;
+
+import org.fennec.sdk.model.commons.Deployment;
+import org.fennec.sdk.model.commons.DeploymentType;
+import org.fennec.sdk.model.events.EndStageEvent;
+import org.fennec.sdk.model.events.StageLogEvent;
+import org.fennec.sdk.model.events.StartStageEvent;
+import org.fennec.sdk.model.events.TimestampedEvent;
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.Level;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TestBinaryEventEncoder {
+
+    private static byte[] bytes(EventBuffer buffer) {
+        return Arrays.copyOf(buffer.array(), buffer.size());
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        long now = System.currentTimeMillis();
+        List<TimestampedEvent> events = List.of(new StartStageEvent(now,
+                        "Deploy",
+                        "Regions",
+                        new Deployment("eu-west-1", DeploymentType.LOAD)),
+                new StageLogEvent(now + 1, "Deploy", Level.INFO, "Deploying \u00e9t\u00e9"),
+                new StageLogEvent(now - 5, "Deploy", Level.ERROR, "Failed"),
+                new StageLogEvent(null, null, null, null),
+                new StageLogEvent(now, "Rollback", Level.WARN, ""),
+                new EndStageEvent(now + 10, "Deploy", "Failed", null));
+
+        BinaryEventEncoder encoder = new BinaryEventEncoder();
+        BinaryEventDecoder decoder = new BinaryEventDecoder();
+        for (TimestampedEvent event : events) {
+            assertThat(decoder.decode(bytes(encoder.encode(event))), equalTo(event));
+        }
+    }
+
+    @Test
+    void testStageNamesAreSentOnce() throws IOException {
+        BinaryEventEncoder encoder = new BinaryEventEncoder();
+        StageLogEvent event = new StageLogEvent(System.currentTimeMillis(),
+                "Build and run the integration tests",
+                Level.INFO,
+                "[INFO] Tests run: 42, Failures: 0, Errors: 0, Skipped: 0");
+        int first = encoder.encode(event).size();
+        int next = encoder.encode(event).size();
+        int json = StageEventEncoder.get().encode(event).size();
+
+        assertThat(next, lessThan(first));
+        assertThat(next, lessThan(json / 2));
+    }
+
+    @Test
+    void testInvalidFrame() {
+        BinaryEventDecoder decoder = new BinaryEventDecoder();
+
+        IOException exception = assertThrows(IOException.class,
+                () -> decoder.decode(new byte[] { 0x00, 'J', 'S', 'O', 'N', 1 }));
+        assertThat(exception.getMessage(), equalTo("Not a binary event stream"));
+    }
+}
@@ -0,0 +1,116 @@
+package org.fennec.sdk.pipeline.events;
+
+import ch.qos.logback.classic.Logger;
+import org.fennec.sdk.model.events.TimestampedEvent;
+import org.fennec.sdk.pipeline.StageEventPublisher;
+import org.fennec.sdk.testing.utils.TestingEventAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.fennec.sdk.testing.utils.EventTestsUtils.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+class TestLogCoalescer {
+
+    TestingEventAppender testingEventAppender = (TestingEventAppender) ((Logger) LoggerFactory.getLogger(
+            "fennec-print-events")).getAppender("STDOUT");
+
+    @AfterEach
+    void tearDown() {
+        StageEventPublisher.disableCoalescing();
+        testingEventAppender.clear();
+    }
+
+    @Test
+    void testConsecutiveLogsAreGrouped() {
+        List<TimestampedEvent> published = Collections.synchronizedList(new ArrayList<>());
+        try (LogCoalescer coalescer = new LogCoalescer(60_000, 1024, published::add)) {
+            coalescer.log("Build", Level.INFO, "Compiling");
+            coalescer.log("Test", Level.INFO, "Testing");
+            coalescer.log("Build", Level.INFO, "Packaging");
+            coalescer.log("Build", Level.WARN, "Deprecated");
+            coalescer.flush("Build");
+
+            assertThat(published, hasSize(2));
+            testStageLogBatchEvent(published.get(0), "Build", Level.INFO, "Compiling", "Packaging");
+            // A single log is not a batch
+            testStageLogEvent(published.get(1), "Build", Level.WARN, "Deprecated");
+        }
+        testStageLogEvent(published.get(2), "Test", Level.INFO, "Testing");
+    }
+
+    @Test
+    void testRemoveEndedStage() {
+        List<TimestampedEvent> published = Collections.synchronizedList(new ArrayList<>());
+        try (LogCoalescer coalescer = new LogCoalescer(60_000, 1024, published::add)) {
+            coalescer.log("Build", Level.INFO, "Compiling");
+            coalescer.log("Test", Level.INFO, "Testing");
+            coalescer.remove("Build");
+
+            assertThat(published, hasSize(1));
+            testStageLogEvent(published.get(0), "Build", Level.INFO, "Compiling");
+            assertThat(coalescer.getStageCount(), equalTo(1));
+
+            // A late log of the stage is still published
+            coalescer.log("Build", Level.INFO, "Late");
+            coalescer.remove("Build");
+            assertThat(published, hasSize(2));
+            assertThat(coalescer.getStageCount(), equalTo(1));
+        }
+    }
+
+    @Test
+    void testMaxSize() {
+        List<TimestampedEvent> published = Collections.synchronizedList(new ArrayList<>());
+        try (LogCoalescer coalescer = new LogCoalescer(60_000, 10, published::add)) {
+            coalescer.log("Build", Level.INFO, "12345");
+            coalescer.log("Build", Level.INFO, "67890");
+            coalescer.log("Build", Level.INFO, "Next");
+
+            assertThat(published, hasSize(1));
+            testStageLogBatchEvent(published.get(0), "Build", Level.INFO, "12345", "67890");
+        }
+    }
+
+    @Test
+    void testWindow() {
+        List<TimestampedEvent> published = Collections.synchronizedList(new ArrayList<>());
+        try (LogCoalescer coalescer = new LogCoalescer(20, 1024, published::add)) {
+            coalescer.log("Build", Level.INFO, "Compiling");
+            coalescer.log("Build", Level.INFO, "Packaging");
+
+            await().atMost(1, TimeUnit.SECONDS).until(() -> published.size() == 1);
+            testStageLogBatchEvent(published.get(0), "Build", Level.INFO, "Compiling", "Packaging");
+        }
+    }
+
+    @Test
+    void testStageEventsFlushPendingLogs() {
+        StageEventPublisher.enableCoalescing(60_000, 1024);
+        StageEventPublisher publisher = new StageEventPublisher();
+
+        publisher.start("Build", null, null);
+        publisher.log("Build", Level.INFO, "Compiling");
+        publisher.log("Build", Level.INFO, "Packaging");
+        publisher.end("Build", null);
+
+        List<TimestampedEvent> events = testingEventAppender.getEvents();
+        assertThat(events, hasSize(3));
+        testStartStageEvent(events.get(0), "Build", null, null);
+        testStageLogBatchEvent(events.get(1), "Build", Level.INFO, "Compiling", "Packaging");
+        testEndStageEvent(events.get(2), "Build", null, null);
+        List<TimestampedEvent> expanded = expandLogBatches(events);
+        assertThat(expanded, hasSize(4));
+        testStageLogEvent(expanded.get(2), "Build", Level.INFO, "Packaging");
+    }
+}
@@ -0,0 +1,122 @@
+package org.fennec.sdk.pipeline.events;
+
+import ch.qos.logback.classic.Logger;
+import org.fennec.sdk.model.events.StageLogEvent;
+import org.fennec.sdk.model.events.TimestampedEvent;
+import org.fennec.sdk.pipeline.StageEventPublisher;
+import org.fennec.sdk.testing.utils.TestingEventAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.fennec.sdk.testing.utils.EventTestsUtils.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+class TestLogRateLimiter {
+
+    TestingEventAppender testingEventAppender = (TestingEventAppender) ((Logger) LoggerFactory.getLogger(
+            "fennec-print-events")).getAppender("STDOUT");
+
+    @AfterEach
+    void tearDown() {
+        StageEventPublisher.disableRateLimit();
+        testingEventAppender.clear();
+    }
+
+    @Test
+    void testBurstThenSuppressed() {
+        List<StageLogEvent> reports = Collections.synchronizedList(new ArrayList<>());
+        try (LogRateLimiter limiter = new LogRateLimiter(0.001, 3, false, 60_000, reports::add)) {
+            int published = 0;
+            for (int i = 0; i < 10; i++) {
+                if (limiter.tryAcquire("Build", Level.INFO)) {
+                    published++;
+                }
+            }
+            // Each stage has its own bucket
+            assertThat(limiter.tryAcquire("Test", Level.INFO), equalTo(true));
+            assertThat(published, equalTo(3));
+            assertThat(reports, hasSize(0));
+
+            limiter.flush("Build");
+            assertThat(reports, hasSize(1));
+            testStageLogEvent(reports.get(0), "Build", Level.WARN, "7 log lines suppressed by the rate limit");
+
+            // Reported once
+            limiter.flush("Build");
+            assertThat(reports, hasSize(1));
+        }
+    }
+
+    @Test
+    void testRemoveEndedStage() {
+        List<StageLogEvent> reports = Collections.synchronizedList(new ArrayList<>());
+        try (LogRateLimiter limiter = new LogRateLimiter(0.001, 1, false, 60_000, reports::add)) {
+            limiter.tryAcquire("Build", Level.INFO);
+            limiter.tryAcquire("Build", Level.INFO);
+            limiter.tryAcquire("Test", Level.INFO);
+            limiter.remove("Build");
+
+            assertThat(reports, hasSize(1));
+            testStageLogEvent(reports.get(0), "Build", Level.WARN, "1 log lines suppressed by the rate limit");
+            assertThat(limiter.getStageCount(), equalTo(1));
+        }
+    }
+
+    @Test
+    void testKeepWarnAndError() {
+        List<StageLogEvent> reports = Collections.synchronizedList(new ArrayList<>());
+        try (LogRateLimiter limiter = new LogRateLimiter(0.001, 1, true, 60_000, reports::add)) {
+            assertThat(limiter.tryAcquire("Build", Level.INFO), equalTo(true));
+            assertThat(limiter.tryAcquire("Build", Level.INFO), equalTo(false));
+            assertThat(limiter.tryAcquire("Build", Level.WARN), equalTo(true));
+            assertThat(limiter.tryAcquire("Build", Level.ERROR), equalTo(true));
+            assertThat(limiter.tryAcquire("Build", Level.DEBUG), equalTo(false));
+        }
+        assertThat(reports, hasSize(1));
+        testStageLogEvent(reports.get(0), "Build", Level.WARN, "2 log lines suppressed by the rate limit");
+    }
+
+    @Test
+    void testRefillAndPeriodicReport() {
+        List<StageLogEvent> reports = Collections.synchronizedList(new ArrayList<>());
+        try (LogRateLimiter limiter = new LogRateLimiter(100, 1, false, 20, reports::add)) {
+            assertThat(limiter.tryAcquire("Build", Level.INFO), equalTo(true));
+            assertThat(limiter.tryAcquire("Build", Level.INFO), equalTo(false));
+
+            await().atMost(1, TimeUnit.SECONDS).until(() -> reports.size() == 1);
+            await().atMost(1, TimeUnit.SECONDS).until(() -> limiter.tryAcquire("Build", Level.INFO));
+        }
+    }
+
+    @Test
+    void testSuppressedLinesReportedBeforeStageEnd() {
+        StageEventPublisher.enableRateLimit(0.001, 2, true, 60_000);
+        StageEventPublisher publisher = new StageEventPublisher();
+
+        publisher.start("Build", null, null);
+        for (int i = 0; i < 5; i++) {
+            publisher.log("Build", Level.INFO, "Line " + i);
+        }
+        publisher.log("Build", Level.ERROR, "Failure");
+        publisher.end("Build", null);
+
+        List<TimestampedEvent> events = testingEventAppender.getEvents();
+        assertThat(events, hasSize(6));
+        testStartStageEvent(events.get(0), "Build", null, null);
+        testStageLogEvent(events.get(1), "Build", Level.INFO, "Line 0");
+        testStageLogEvent(events.get(2), "Build", Level.INFO, "Line 1");
+        testStageLogEvent(events.get(3), "Build", Level.ERROR, "Failure");
+        testStageLogEvent(events.get(4), "Build", Level.WARN, "3 log lines suppressed by the rate limit");
+        testEndStageEvent(events.get(5), "Build", null, null);
+    }
+}
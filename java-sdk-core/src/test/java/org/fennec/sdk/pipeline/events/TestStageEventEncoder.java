@@ -0,0 +1,66 @@
+package org.fennec.sdk.pipeline.events;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.fennec.sdk.model.commons.Deployment;
+import org.fennec.sdk.model.commons.DeploymentType;
+import org.fennec.sdk.model.commons.Link;
+import org.fennec.sdk.model.events.*;
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.Level;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class TestStageEventEncoder {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private static void assertSameAsObjectMapper(TimestampedEvent event) throws IOException {
+        // Compare trees: the byte generator escapes characters outside the BMP
+        assertThat(OBJECT_MAPPER.readTree(StageEventEncoder.get().encodeToString(event)),
+                equalTo(OBJECT_MAPPER.readTree(OBJECT_MAPPER.writeValueAsString(event))));
+    }
+
+    @Test
+    void testStageLogEvent() throws IOException {
+        assertSameAsObjectMapper(new StageLogEvent(1L, "Build", Level.INFO, "A log"));
+        assertSameAsObjectMapper(new StageLogEvent(2L,
+                "Build \"quoted\"",
+                Level.ERROR,
+                "Multi\nline\twith \u001b[31mcolors\u001b[0m, unicode \u00e9\u20ac\ud83d\ude00 and \\ backslash"));
+        assertSameAsObjectMapper(new StageLogEvent(3L, null, Level.DEBUG, null));
+        assertSameAsObjectMapper(new StageLogEvent());
+    }
+
+    @Test
+    void testOtherEvents() throws IOException {
+        assertSameAsObjectMapper(new StartStageEvent(1L,
+                "Deploy",
+                "Parallel",
+                new Deployment("staging", DeploymentType.LOAD)));
+        assertSameAsObjectMapper(new EndStageEvent(1L, "Deploy", "failed", null));
+        assertSameAsObjectMapper(new UpdateJobEvent(1L, "name", List.of(new Link("a", "b", "c"))));
+    }
+
+    @Test
+    void testBufferIsReused() throws IOException {
+        StageEventEncoder encoder = StageEventEncoder.get();
+        EventBuffer first = encoder.encode(new StageLogEvent(1L, "Build", Level.INFO, "first"));
+        EventBuffer second = encoder.encode(new StageLogEvent(1L, "Build", Level.INFO, "second"));
+        assertThat(first == second, equalTo(true));
+        assertThat(second.toString(),
+                equalTo("{\"apiVersion\":\"v1\",\"kind\":\"StageLogEvent\",\"timestamp\":1,\"stage\":\"Build\",\"level\":\"INFO\",\"message\":\"second\"}"));
+    }
+
+    @Test
+    void testHugeEvent() throws IOException {
+        String message = "x".repeat(2 * 1024 * 1024);
+        assertSameAsObjectMapper(new StageLogEvent(1L, "Build", Level.INFO, message));
+        // Buffer is released then reused for small events
+        assertSameAsObjectMapper(new StageLogEvent(1L, "Build", Level.INFO, "small"));
+    }
+}
@@ -0,0 +1,152 @@
+package org.fennec.sdk.pipeline.events.transport;
+
+import ch.qos.logback.classic.Logger;
+import org.fennec.sdk.model.events.StageLogEvent;
+import org.fennec.sdk.pipeline.StageEventPublisher;
+import org.fennec.sdk.pipeline.events.BinaryEventDecoder;
+import org.fennec.sdk.pipeline.events.EventBuffer;
+import org.fennec.sdk.testing.utils.TestingEventAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.fennec.sdk.testing.utils.EventTestsUtils.getEventsForType;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class TestEventTransports {
+
+    TestingEventAppender testingEventAppender = (TestingEventAppender) ((Logger) LoggerFactory.getLogger(
+            "fennec-print-events")).getAppender("STDOUT");
+
+    private static List<String> readFrames(InputStream in, int count) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        List<String> frames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] frame = new byte[data.readInt()];
+            data.readFully(frame);
+            frames.add(new String(frame, StandardCharsets.UTF_8));
+        }
+        return frames;
+    }
+
+    @AfterEach
+    void tearDown() {
+        StageEventPublisher.setTransport(EventTransports.logger());
+        testingEventAppender.clear();
+    }
+
+    @Test
+    void testFile(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("events");
+        StageEventPublisher.setTransport(EventTransports.fromUri(file.toUri().toString()));
+
+        new StageEventPublisher().log("Build", Level.INFO, "Compiling");
+        new StageEventPublisher().log("Build", Level.INFO, "Testing");
+
+        try (InputStream in = Files.newInputStream(file)) {
+            List<String> frames = readFrames(in, 2);
+            assertThat(frames.get(0), containsString("\"message\":\"Compiling\""));
+            assertThat(frames.get(1), containsString("\"message\":\"Testing\""));
+            assertThat(in.read(), equalTo(-1));
+        }
+        assertThat(testingEventAppender.getEvents(), empty());
+    }
+
+    @Test
+    void testFileLines(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("events.jsonl");
+        StageEventPublisher.setTransport(EventTransports.fromUri(file.toUri() + "?framing=lines"));
+
+        new StageEventPublisher().log("Build", Level.INFO, "Compiling");
+        new StageEventPublisher().log("Build", Level.INFO, "Testing");
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines, hasSize(2));
+        assertThat(lines.get(1), startsWith("{\"apiVersion\":\"v1\",\"kind\":\"StageLogEvent\""));
+    }
+
+    @Test
+    void testBinaryFile(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("events.bin");
+        StageEventPublisher.setTransport(EventTransports.fromUri(file.toUri() + "?encoding=binary"));
+
+        new StageEventPublisher().log("Build", Level.INFO, "Compiling");
+        new StageEventPublisher().log("Build", Level.WARN, "Deprecated API");
+
+        BinaryEventDecoder decoder = new BinaryEventDecoder();
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            for (String message : List.of("Compiling", "Deprecated API")) {
+                byte[] frame = new byte[in.readInt()];
+                in.readFully(frame);
+                StageLogEvent event = (StageLogEvent) decoder.decode(frame);
+                assertThat(event.getStage(), equalTo("Build"));
+                assertThat(event.getMessage(), equalTo(message));
+            }
+        }
+    }
+
+    @Test
+    void testTcp() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            CompletableFuture<List<String>> received = CompletableFuture.supplyAsync(() -> {
+                try (Socket socket = server.accept()) {
+                    return readFrames(socket.getInputStream(), 3);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            StageEventPublisher.setTransport(EventTransports.fromUri("tcp://localhost:" + server.getLocalPort()));
+
+            StageEventPublisher publisher = new StageEventPublisher();
+            publisher.start("Build", null, null);
+            publisher.log("Build", Level.INFO, "Compiling");
+            publisher.end("Build", null);
+
+            List<String> frames = received.get(5, TimeUnit.SECONDS);
+            assertThat(frames.get(0), containsString("\"kind\":\"StartStageEvent\""));
+            assertThat(frames.get(1), containsString("\"kind\":\"StageLogEvent\""));
+            assertThat(frames.get(2), containsString("\"kind\":\"EndStageEvent\""));
+        }
+    }
+
+    @Test
+    void testFallbackToConsole() {
+        StageEventPublisher.setTransport(new EventTransport() {
+            @Override
+            public void write(EventBuffer event) throws IOException {
+                throw new IOException("Connection reset");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        new StageEventPublisher().log("Build", Level.INFO, "Compiling");
+        new StageEventPublisher().log("Build", Level.INFO, "Testing");
+
+        List<StageLogEvent> events = getEventsForType(testingEventAppender.getEvents(), StageLogEvent.class);
+        assertThat(events, hasSize(2));
+        assertThat(events.get(0).getMessage(), equalTo("Compiling"));
+    }
+}
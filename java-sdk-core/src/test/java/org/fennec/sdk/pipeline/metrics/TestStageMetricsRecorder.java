@@ -0,0 +1,106 @@
+package org.fennec.sdk.pipeline.metrics;
+
+import ch.qos.logback.classic.Logger;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.fennec.sdk.exec.local.LocalExecService;
+import org.fennec.sdk.model.commons.StageMetrics;
+import org.fennec.sdk.model.events.EndStageEvent;
+import org.fennec.sdk.pipeline.Pipeline;
+import org.fennec.sdk.pipeline.StageExecutorStrategy;
+import org.fennec.sdk.testing.utils.TestingEventAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.fennec.sdk.pipeline.Pipeline.*;
+import static org.fennec.sdk.testing.utils.EventTestsUtils.getEventsForType;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@Slf4j
+class TestStageMetricsRecorder {
+
+    TestingEventAppender testingEventAppender = (TestingEventAppender) ((Logger) LoggerFactory.getLogger(
+            "fennec-print-events")).getAppender("STDOUT");
+
+    @BeforeEach
+    void init() {
+        Pipeline.configure(() -> Assertions.fail("Test failed"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        StageMetricsRecorder.disable();
+        testingEventAppender.clear();
+    }
+
+    @Test
+    @SneakyThrows
+    void testStageMetrics(@TempDir Path directory) {
+        Map<String, StageMetrics> exported = new ConcurrentHashMap<>();
+        Path prometheusFile = directory.resolve("pipeline.prom");
+        metrics(exported::put, new PrometheusTextFileExporter(prometheusFile));
+
+        stage("Build \"app\"", context -> {
+            log.info("Building");
+            new LocalExecService(System.getProperty("user.dir"), Level.INFO).execCommand("echo", "Hello");
+            new LocalExecService(System.getProperty("user.dir"), Level.INFO).execCommand("echo", "world");
+        });
+
+        StageMetrics metrics = exported.get("Build \"app\"");
+        assertThat(metrics.getExecCount(), equalTo(2L));
+        assertThat(metrics.getOutputBytes(), equalTo(12L));
+        // Start, 1 log and 2 command outputs
+        assertThat(metrics.getEventCount(), equalTo(4L));
+        assertThat(metrics.getDurationMs(), greaterThanOrEqualTo(metrics.getExecDurationMs()));
+        assertThat(metrics.getQueueMs(), equalTo(0L));
+
+        List<EndStageEvent> endStageEvents = getEventsForType(testingEventAppender.getEvents(), EndStageEvent.class);
+        assertThat(endStageEvents, hasSize(1));
+        assertThat(endStageEvents.get(0).getMetrics(), equalTo(metrics));
+
+        List<String> lines = Files.readAllLines(prometheusFile);
+        assertThat(lines, hasItems("# TYPE fennec_stage_duration_seconds gauge",
+                "fennec_stage_exec_total{stage=\"Build \\\"app\\\"\"} 2.0",
+                "fennec_stage_output_bytes{stage=\"Build \\\"app\\\"\"} 12.0"));
+    }
+
+    @Test
+    void testParallelQueueTime() {
+        Map<String, StageMetrics> exported = new ConcurrentHashMap<>();
+        metrics(exported::put);
+        parallelExecution(StageExecutorStrategy.maxConcurrency(1));
+
+        parallel("Parallel", Map.of("A", context -> sleep(), "B", context -> sleep()));
+
+        assertThat(exported.keySet(), containsInAnyOrder("A", "B"));
+        // The second stage waited for the first one
+        assertThat(Math.max(exported.get("A").getQueueMs(), exported.get("B").getQueueMs()), greaterThanOrEqualTo(90L));
+    }
+
+    @Test
+    void testDisabled() {
+        stage("Build", context -> log.info("Building"));
+        List<EndStageEvent> endStageEvents = getEventsForType(testingEventAppender.getEvents(), EndStageEvent.class);
+        assertThat(endStageEvents.get(0).getMetrics(), nullValue());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(100L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.fennec.sdk.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class TestObjectMappers {
+
+    @Test
+    void testSharedMapper() {
+        assertThat(ObjectMappers.json(), sameInstance(ObjectMappers.get(ObjectMappers.JSON, ObjectMapper::new)));
+        CachedMapper mapper = ObjectMappers.get("test", ObjectMapper::new);
+        assertThat(ObjectMappers.get("test", () -> {
+            throw new IllegalStateException("Created once");
+        }), sameInstance(mapper));
+        // Not on the classpath of the SDK
+        assertThat(ObjectMappers.optimizerModule().isPresent(), equalTo(false));
+        assertThat(mapper.getMapper().getRegisteredModuleIds(), empty());
+    }
+
+    @Test
+    void testCachedReadersAndWriters() throws Exception {
+        CachedMapper mapper = ObjectMappers.json();
+
+        assertThat(mapper.reader(Map.class), sameInstance(mapper.reader(Map.class)));
+        assertThat(mapper.reader(new TypeReference<List<Integer>>() {
+        }), sameInstance(mapper.reader(new TypeReference<List<Integer>>() {
+        })));
+        assertThat(mapper.writer(Map.of()), sameInstance(mapper.writer(Map.of())));
+
+        List<Integer> values = mapper.reader(new TypeReference<List<Integer>>() {
+        }).readValue("[1,2]");
+        assertThat(values, equalTo(List.of(1, 2)));
+        assertThat(mapper.writer(values).writeValueAsString(values), equalTo("[1,2]"));
+    }
+}
@@ -0,0 +1,44 @@
+package org.fennec.sdk.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class TestThreadUtils {
+
+    @Test
+    void testBoundedQueue() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ExecutorService queued = ThreadUtils.newBoundedExecutor("test-queued", 2, 1);
+        ExecutorService notQueued = ThreadUtils.newBoundedExecutor("test-not-queued", 1, 0);
+        try {
+            queued.execute(blocked);
+            queued.execute(blocked);
+            queued.execute(blocked);
+            Assertions.assertThrows(RejectedExecutionException.class, () -> queued.execute(blocked));
+
+            notQueued.execute(blocked);
+            Assertions.assertThrows(RejectedExecutionException.class, () -> notQueued.execute(blocked));
+        } finally {
+            release.countDown();
+            queued.shutdown();
+            notQueued.shutdown();
+        }
+        assertThat(queued.awaitTermination(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(notQueued.awaitTermination(5, TimeUnit.SECONDS), equalTo(true));
+    }
+}
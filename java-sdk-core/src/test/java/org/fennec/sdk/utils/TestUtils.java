@@ -0,0 +1,20 @@
+package org.fennec.sdk.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class TestUtils {
+
+    @Test
+    void testPositiveIntEnv() {
+        assertThat(Utils.parsePositiveInt("MAX", "12", 64), equalTo(12));
+        assertThat(Utils.parsePositiveInt("MAX", " 12 ", 64), equalTo(12));
+        assertThat(Utils.parsePositiveInt("MAX", "abc", 64), equalTo(64));
+        assertThat(Utils.parsePositiveInt("MAX", "", 64), equalTo(64));
+        assertThat(Utils.parsePositiveInt("MAX", "0", 64), equalTo(64));
+        assertThat(Utils.parsePositiveInt("MAX", "-3", 64), equalTo(64));
+        assertThat(Utils.positiveIntEnv("FENNEC_UNSET_ENV_FOR_TEST", 64), equalTo(64));
+    }
+}
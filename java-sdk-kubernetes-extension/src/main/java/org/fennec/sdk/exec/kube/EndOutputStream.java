@@ -1,13 +1,14 @@
 package org.fennec.sdk.exec.kube;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.fabric8.kubernetes.api.model.Status;
 import io.fabric8.kubernetes.api.model.StatusBuilder;
 import io.fabric8.kubernetes.api.model.StatusCauseBuilder;
 import io.fabric8.kubernetes.api.model.StatusDetailsBuilder;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.fennec.sdk.utils.CachedMapper;
+import org.fennec.sdk.utils.ObjectMappers;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -16,7 +17,7 @@ import java.nio.charset.StandardCharsets;
 @Slf4j
 public class EndOutputStream extends OutputStream {
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final CachedMapper OBJECT_MAPPER = ObjectMappers.json();
 
     private String localMemory = "";
 
@@ -34,7 +35,7 @@ public class EndOutputStream extends OutputStream {
         String rawMessage = localMemory.trim();
         log.debug("Raw status: {}", rawMessage);
         try {
-            return OBJECT_MAPPER.readValue(rawMessage, Status.class);
+            return OBJECT_MAPPER.reader(Status.class).readValue(rawMessage);
         } catch (Exception e) {
             log.error("Unable to get Status from {}", rawMessage, e);
             return new StatusBuilder()
@@ -10,10 +10,14 @@ import io.fabric8.kubernetes.client.dsl.ExecWatch;
 import lombok.Builder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.fennec.sdk.exec.common.AbortableLineConsumer;
 import org.fennec.sdk.exec.common.CommandOutput;
 import org.fennec.sdk.exec.common.ExecCommandException;
 import org.fennec.sdk.exec.common.ExecService;
 import org.fennec.sdk.exec.common.LogOutputStream;
+import org.fennec.sdk.exec.common.capture.OutputCapturePolicy;
+import org.fennec.sdk.pipeline.PipelineConstants;
+import org.fennec.sdk.pipeline.metrics.StageMetricsRecorder;
 import org.slf4j.MDC;
 import org.slf4j.event.Level;
 
@@ -26,6 +30,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 /**
  * Exec actions on a pod/container. The correct SA must be attached.
@@ -67,6 +72,17 @@ public class KubernetesExecService implements ExecService {
         return execCommand(defaultTimeoutSeconds, cmd);
     }
 
+    @Override
+    public CommandOutput execCommand(OutputCapturePolicy capturePolicy, String... cmd) throws ExecCommandException {
+        return execCommand(capturePolicy, defaultTimeoutSeconds, cmd);
+    }
+
+    @Override
+    public CommandOutput execCommand(OutputCapturePolicy capturePolicy, Consumer<String> lineConsumer,
+            String... cmd) throws ExecCommandException {
+        return execCommand(capturePolicy, lineConsumer, defaultTimeoutSeconds, cmd);
+    }
+
     /**
      * Execute provided command in provided pod and container
      *
@@ -77,14 +93,60 @@ public class KubernetesExecService implements ExecService {
      */
     @Override
     public CommandOutput execCommand(long timeoutSecond, String... cmd) throws ExecCommandException {
+        return execCommand(OutputCapturePolicy.inMemory(), timeoutSecond, cmd);
+    }
+
+    /**
+     * Execute provided command in provided pod and container, keeping the output according to the capture policy
+     *
+     * @param capturePolicy how to keep the output (in memory, head and tail only, on disk)
+     * @param timeoutSecond
+     * @param cmd
+     * @return
+     * @throws ExecCommandException
+     */
+    @Override
+    public CommandOutput execCommand(OutputCapturePolicy capturePolicy, long timeoutSecond,
+            String... cmd) throws ExecCommandException {
+        return execCommand(capturePolicy, null, timeoutSecond, cmd);
+    }
+
+    /**
+     * Execute provided command in provided pod and container, forwarding each output line to the consumer.<br>
+     * The consumer is called on the websocket thread: while it is busy, the output is not read anymore and the
+     * command is slowed down by the websocket flow control. Throwing an exception from the consumer closes the exec.
+     *
+     * @param capturePolicy how to keep the output (in memory, head and tail only, on disk)
+     * @param lineConsumer  called with each output line
+     * @param timeoutSecond
+     * @param cmd
+     * @return
+     * @throws ExecCommandException
+     */
+    @Override
+    public CommandOutput execCommand(OutputCapturePolicy capturePolicy, Consumer<String> lineConsumer,
+            long timeoutSecond, String... cmd) throws ExecCommandException {
         Pod pod = client.pods().inNamespace(namespace).withName(podName).get();
         log.debug("Running command: {} on pod {} in namespace {}",
                 Arrays.toString(cmd),
                 pod.getMetadata().getName(),
                 namespace);
 
+        long startNanos = System.nanoTime();
         CompletableFuture<CommandOutput> data = new CompletableFuture<>();
-        try (ExecWatch execWatch = execCmd(pod, data, cmd)) {
+        // Exceptions must not reach the websocket: the failure completes the command and the exec is closed
+        Consumer<String> abortableLineConsumer = lineConsumer == null ? null : new AbortableLineConsumer(lineConsumer,
+                e -> data.completeExceptionally(new ExecCommandException(cmd, "line consumer error", e)));
+        Map<String, String> mdcContextMap = MDC.getCopyOfContextMap();
+        String stageName = MDC.get(PipelineConstants.STAGE_NAME);
+        LogOutputStream logOutputStream = new LogOutputStream(Level.INFO,
+                mdcContextMap,
+                capturePolicy.create(),
+                abortableLineConsumer);
+        data.whenComplete((output, e) -> StageMetricsRecorder.recordExec(stageName,
+                System.nanoTime() - startNanos,
+                logOutputStream.getByteCount()));
+        try (ExecWatch execWatch = execCmd(pod, data, logOutputStream, mdcContextMap, cmd)) {
             try {
                 return data.get(timeoutSecond, TimeUnit.SECONDS);
             } catch (ExecutionException | TimeoutException e) {
@@ -99,9 +161,8 @@ public class KubernetesExecService implements ExecService {
         }
     }
 
-    private ExecWatch execCmd(Pod pod, CompletableFuture<CommandOutput> data, String... command) {
-        Map<String, String> mdcContextMap = MDC.getCopyOfContextMap();
-        LogOutputStream logOutputStream = new LogOutputStream(Level.INFO, mdcContextMap);
+    private ExecWatch execCmd(Pod pod, CompletableFuture<CommandOutput> data, LogOutputStream logOutputStream,
+            Map<String, String> mdcContextMap, String... command) {
         EndOutputStream endOutputStream = new EndOutputStream();
         return client
                 .pods()
@@ -137,6 +198,7 @@ public class KubernetesExecService implements ExecService {
             } catch (IOException e) {
                 // DO NOTHING
             }
+            logOutputStream.getCapture().close();
             data.completeExceptionally(t);
         }
 
@@ -150,15 +212,20 @@ public class KubernetesExecService implements ExecService {
 
             int exitCode = getStatusCode(status);
 
+            closeStreams();
             if (exitCode != 0) {
                 ExecCommandException exception = new ExecCommandException(cmd, exitCode, logOutputStream.toString());
-                closeStreams();
-                data.completeExceptionally(exception);
+                if (!data.completeExceptionally(exception)) {
+                    logOutputStream.getCapture().close();
+                }
+                // Otherwise kept until the JVM exits: the failure reason may name the file holding the full output
                 return;
             }
 
-            data.complete(new CommandOutput(exitCode, logOutputStream.toString()));
-            closeStreams();
+            if (!data.complete(new CommandOutput(exitCode, logOutputStream.toString(), logOutputStream.getCapture()))) {
+                // Already aborted by the line consumer
+                logOutputStream.getCapture().close();
+            }
         }
 
         private void closeStreams() {
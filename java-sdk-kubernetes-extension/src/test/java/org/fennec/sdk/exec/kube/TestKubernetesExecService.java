@@ -12,6 +12,7 @@ import io.fabric8.mockwebserver.internal.WebSocketMessage;
 import lombok.SneakyThrows;
 import org.fennec.sdk.exec.common.CommandOutput;
 import org.fennec.sdk.exec.common.ExecCommandException;
+import org.fennec.sdk.exec.common.capture.OutputCapturePolicy;
 import org.fennec.sdk.model.events.TimestampedEvent;
 import org.fennec.sdk.pipeline.Pipeline;
 import org.fennec.sdk.testing.utils.TestingEventAppender;
@@ -28,6 +29,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -253,4 +255,60 @@ public class TestKubernetesExecService {
         assertThat(output.getStatusCode(), equalTo(128));
         assertThat(output.getOutput(), equalTo("Command dhohc dhohc not found"));
     }
+
+    @Test
+    @SneakyThrows
+    public void testLineConsumer() {
+
+        server
+                .expect()
+                .get()
+                .withPath("/api/v1/namespaces/test/pods/test")
+                .andReturn(200,
+                        new PodBuilder().withMetadata(new ObjectMetaBuilder()
+                                .withName("test")
+                                .withNamespace("test")
+                                .build()).build())
+                .always();
+
+        server
+                .expect()
+                .get()
+                .withPath(formatUri("test", "test-container", Arrays.asList("mvn", "verify")))
+                .andUpgradeToWebSocket()
+                .open()
+                .waitFor(5L)
+                .andEmit(new OutputStreamMessage("Building\nBUILD FAILURE\n"))
+                .waitFor(10L)
+                .andEmit(new WebSocketMessage(10L, status(0), false))
+                .done()
+                .once();
+
+        CompletableFuture<ExecCommandException> completableFuture = new CompletableFuture<>();
+        List<String> lines = new CopyOnWriteArrayList<>();
+
+        stage("Init", context -> {
+            try {
+                KubernetesExecService kubernetesExecService = new KubernetesExecService(client,
+                        "test",
+                        "test",
+                        "test-container",
+                        200L);
+                kubernetesExecService.execCommand(OutputCapturePolicy.inMemory(), line -> {
+                    lines.add(line);
+                    if (line.contains("BUILD FAILURE")) {
+                        throw new IllegalStateException("Build failed");
+                    }
+                }, "mvn", "verify");
+                fail("Command must be aborted");
+            } catch (ExecCommandException e) {
+                completableFuture.complete(e);
+            }
+        });
+
+        ExecCommandException exception = completableFuture.get(200, TimeUnit.MILLISECONDS);
+        assertThat(exception.getMessage(), equalTo("Exec Command [mvn, verify] failed with line consumer error"));
+        assertThat(exception.getCause().getMessage(), equalTo("Build failed"));
+        assertThat(lines, contains("Building", "BUILD FAILURE"));
+    }
 }
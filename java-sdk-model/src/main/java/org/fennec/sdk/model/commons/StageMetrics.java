@@ -0,0 +1,52 @@
+package org.fennec.sdk.model.commons;
+
+import lombok.*;
+
+/**
+ * Model representing the timings and resources of a stage
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StageMetrics {
+
+    /**
+     * The stage wall time in milliseconds
+     */
+    private Long durationMs;
+
+    /**
+     * The time between the stage submission and its start in milliseconds (parallel stages waiting for a thread)
+     */
+    private Long queueMs;
+
+    /**
+     * The number of commands executed
+     */
+    private Long execCount;
+
+    /**
+     * The total duration of the commands in milliseconds
+     */
+    private Long execDurationMs;
+
+    /**
+     * The number of bytes output by the commands
+     */
+    private Long outputBytes;
+
+    /**
+     * The number of events published (the end event excluded)
+     */
+    private Long eventCount;
+
+    /**
+     * The total time spent publishing the events in microseconds
+     */
+    private Long eventPublishMicros;
+
+}
@@ -3,6 +3,7 @@ package org.fennec.sdk.model.events;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.*;
 import lombok.experimental.Accessors;
+import org.fennec.sdk.model.commons.StageMetrics;
 import org.fennec.sdk.model.commons.TestReport;
 
 /**
@@ -14,7 +15,7 @@ import org.fennec.sdk.model.commons.TestReport;
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode
-@JsonPropertyOrder({ "apiVersion", "kind", "timestamp", "stage", "reason", "testResults", })
+@JsonPropertyOrder({ "apiVersion", "kind", "timestamp", "stage", "reason", "testResults", "metrics", })
 @Accessors(prefix = { "_", "" })
 @ToString
 @Builder
@@ -48,4 +49,16 @@ public class EndStageEvent implements StageEvent {
      */
     private TestReport testReport;
 
+    /**
+     * The stage metrics (if enabled)
+     */
+    private StageMetrics metrics;
+
+    public EndStageEvent(Long timestamp, String stage, String reason, TestReport testReport) {
+        this.timestamp = timestamp;
+        this.stage = stage;
+        this.reason = reason;
+        this.testReport = testReport;
+    }
+
 }
@@ -0,0 +1,53 @@
+package org.fennec.sdk.model.events;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.*;
+import lombok.experimental.Accessors;
+import org.slf4j.event.Level;
+
+import java.util.List;
+
+/**
+ * An event representing consecutive logs of a stage with the same level, published together<br>
+ * <i>It is not a Kubernetes Resource. The format is similar for usability</i>
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@JsonPropertyOrder({ "apiVersion", "kind", "timestamp", "stage", "level", "messages", })
+@Accessors(prefix = { "_", "" })
+@ToString
+@Builder
+public class StageLogBatchEvent implements StageEvent {
+
+    public static final String API_VERSION = "v1";
+
+    public static final String STAGE_LOG_BATCH_EVENT_KIND = "StageLogBatchEvent";
+
+    private final String apiVersion = API_VERSION;
+
+    private final String kind = STAGE_LOG_BATCH_EVENT_KIND;
+
+    /**
+     * The timestamp of the first log
+     */
+    private Long timestamp;
+
+    /**
+     * The stage name
+     */
+    private String stage;
+
+    /**
+     * The log level
+     */
+    private Level level;
+
+    /**
+     * The messages to log, in order
+     */
+    private List<String> messages;
+
+}
@@ -8,6 +8,7 @@ import org.fennec.sdk.model.commons.TestReport;
 import org.fennec.sdk.model.events.*;
 import org.slf4j.event.Level;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -37,6 +38,16 @@ public class EventTestsUtils {
         assertThat(event.getMessage(), containsString(message));
     }
 
+    public static void testStageLogBatchEvent(TimestampedEvent timestampedEvent, String stageName, Level level,
+            String... messages) {
+        assertThat(timestampedEvent, instanceOf(StageLogBatchEvent.class));
+        StageLogBatchEvent event = (StageLogBatchEvent) timestampedEvent;
+        assertThat(event.getStage(), equalTo(stageName));
+        assertThat(event.getTimestamp(), notNullValue());
+        assertThat(event.getLevel(), equalTo(level));
+        assertThat(event.getMessages(), contains(messages));
+    }
+
     public static void testEndStageEvent(TimestampedEvent timestampedEvent, String stageName, String reason,
             TestReport report) {
         assertThat(timestampedEvent, instanceOf(EndStageEvent.class));
@@ -68,4 +79,26 @@ public class EventTestsUtils {
                 .map(event -> (T) event)
                 .collect(Collectors.toList());
     }
+
+    /**
+     * @param events the events
+     * @return the events with each {@link StageLogBatchEvent} replaced by a {@link StageLogEvent} per message
+     */
+    public static List<TimestampedEvent> expandLogBatches(List<TimestampedEvent> events) {
+        List<TimestampedEvent> expanded = new ArrayList<>();
+        for (TimestampedEvent event : events) {
+            if (event instanceof StageLogBatchEvent) {
+                StageLogBatchEvent batch = (StageLogBatchEvent) event;
+                batch
+                        .getMessages()
+                        .forEach(message -> expanded.add(new StageLogEvent(batch.getTimestamp(),
+                                batch.getStage(),
+                                batch.getLevel(),
+                                message)));
+            } else {
+                expanded.add(event);
+            }
+        }
+        return expanded;
+    }
 }
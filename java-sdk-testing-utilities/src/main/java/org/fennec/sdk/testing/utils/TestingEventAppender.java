@@ -48,6 +48,16 @@ public class TestingEventAppender extends AppenderBase<ILoggingEvent> {
         return isMatchingApiVersionAndKind(StageLogEvent.API_VERSION, StageLogEvent.STAGE_LOG_EVENT_KIND, line);
     }
 
+    /**
+     * @param line the line to analyze
+     * @return true if this looks like an {@link StageLogBatchEvent}
+     */
+    private static boolean isMatchingStageLogBatchEvent(String line) {
+        return isMatchingApiVersionAndKind(StageLogBatchEvent.API_VERSION,
+                StageLogBatchEvent.STAGE_LOG_BATCH_EVENT_KIND,
+                line);
+    }
+
     /**
      * @param line the line to analyze
      * @return true if this looks like an {@link UpdateJobEvent}
@@ -86,6 +96,8 @@ public class TestingEventAppender extends AppenderBase<ILoggingEvent> {
                 events.add(OBJECT_MAPPER.readValue(eventPayload, StartStageEvent.class));
             } else if (isMatchingStageLogEvent(eventPayload)) {
                 events.add(OBJECT_MAPPER.readValue(eventPayload, StageLogEvent.class));
+            } else if (isMatchingStageLogBatchEvent(eventPayload)) {
+                events.add(OBJECT_MAPPER.readValue(eventPayload, StageLogBatchEvent.class));
             } else if (isMatchingEndStageEvent(eventPayload)) {
                 events.add(OBJECT_MAPPER.readValue(eventPayload, EndStageEvent.class));
             } else if (isMatchingUpdateJobEvent(eventPayload)) {
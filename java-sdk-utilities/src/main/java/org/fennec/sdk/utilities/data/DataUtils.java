@@ -1,35 +1,226 @@
 package org.fennec.sdk.utilities.data;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.JsonPointerBasedFilter;
+import com.fasterxml.jackson.core.filter.TokenFilter;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.SneakyThrows;
+import org.fennec.sdk.utils.CachedMapper;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public final class DataUtils {
 
     @SneakyThrows
-    static <T> T read(ObjectMapper mapper, String jsonString, Class<T> type) {
-        return mapper.readValue(jsonString, type);
+    static <T> T read(CachedMapper mapper, String jsonString, Class<T> type) {
+        return mapper.reader(type).readValue(jsonString);
     }
 
     @SneakyThrows
-    static <T> T read(ObjectMapper mapper, File file, Class<T> type) {
-        return mapper.readValue(file, type);
+    static <T> T read(CachedMapper mapper, File file, Class<T> type) {
+        return mapper.reader(type).readValue(file);
     }
 
     @SneakyThrows
-    static JsonNode read(ObjectMapper mapper, String jsonString) {
-        return mapper.readTree(jsonString);
+    static <T> T read(CachedMapper mapper, InputStream inputStream, Class<T> type) {
+        try (InputStream in = inputStream) {
+            return mapper.reader(type).readValue(in);
+        }
     }
 
+    /**
+     * @return the elements of the top level array, read one by one. The stream must be closed
+     */
     @SneakyThrows
-    static JsonNode read(ObjectMapper mapper, File file) {
-        return mapper.readTree(file);
+    static <T> Stream<T> readElements(CachedMapper mapper, InputStream inputStream, Class<T> type) {
+        MappingIterator<T> iterator;
+        try {
+            iterator = mapper.reader(type).readValues(inputStream);
+        } catch (IOException | RuntimeException e) {
+            inputStream.close();
+            throw e;
+        }
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> close(iterator));
+    }
+
+    @SneakyThrows
+    private static void close(MappingIterator<?> iterator) {
+        iterator.close();
+    }
+
+    /**
+     * @param pointer the array, the top level one if empty
+     * @return the elements of the array, read one by one. The stream must be closed
+     */
+    @SneakyThrows
+    static <T> Stream<T> readElements(CachedMapper mapper, InputStream inputStream, JsonPointer pointer,
+            Class<T> type) {
+        JsonParser parser = createParser(mapper, inputStream);
+        if (!pointer.matches()) {
+            parser = new FilteringParserDelegate(parser,
+                    new JsonPointerBasedFilter(pointer),
+                    TokenFilter.Inclusion.ONLY_INCLUDE_ALL,
+                    false);
+        }
+        try {
+            JsonToken token = parser.nextToken();
+            if (token != JsonToken.START_ARRAY) {
+                throw new IOException("No array at '" + pointer + "' but " + token);
+            }
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+        return stream(parser, mapper.reader(type), p -> {
+            JsonToken token = p.nextToken();
+            return token == JsonToken.END_ARRAY ? null : token;
+        });
+    }
+
+    /**
+     * @return the documents (YAML) or the concatenated values (JSON), read one by one. The stream must be closed
+     */
+    @SneakyThrows
+    static <T> Stream<T> readDocuments(CachedMapper mapper, InputStream inputStream, Class<T> type) {
+        return stream(createParser(mapper, inputStream), mapper.reader(type), JsonParser::nextToken);
+    }
+
+    /**
+     * @return the child elements of the root element (XML), read one by one. The stream must be closed
+     */
+    @SneakyThrows
+    static <T> Stream<T> readChildren(CachedMapper mapper, InputStream inputStream, Class<T> type) {
+        JsonParser parser = createParser(mapper, inputStream);
+        try {
+            JsonToken token = parser.nextToken();
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("No root element but " + token);
+            }
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+        return stream(parser, mapper.reader(type), p -> {
+            // The name of the child element, then its content
+            return p.nextToken() == JsonToken.FIELD_NAME ? p.nextToken() : null;
+        });
+    }
+
+    private static JsonParser createParser(CachedMapper mapper, InputStream inputStream) throws IOException {
+        try {
+            return mapper.getMapper().getFactory().createParser(inputStream);
+        } catch (IOException | RuntimeException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    private static <T> Stream<T> stream(JsonParser parser, ObjectReader reader, NextValue nextValue) {
+        Iterator<T> iterator = new ValueIterator<>(parser, reader, nextValue);
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(() -> close(parser));
+    }
+
+    @SneakyThrows
+    private static void close(JsonParser parser) {
+        parser.close();
+    }
+
+    /**
+     * Move the parser to the next value
+     */
+    @FunctionalInterface
+    private interface NextValue {
+
+        /**
+         * @return the first token of the next value, null if none
+         */
+        JsonToken next(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Read the values one by one: only the current value is in memory
+     */
+    private static class ValueIterator<T> implements Iterator<T> {
+
+        private final JsonParser parser;
+
+        private final ObjectReader reader;
+
+        private final NextValue nextValue;
+
+        private JsonToken next;
+
+        private boolean done;
+
+        ValueIterator(JsonParser parser, ObjectReader reader, NextValue nextValue) {
+            this.parser = parser;
+            this.reader = reader;
+            this.nextValue = nextValue;
+        }
+
+        @Override
+        @SneakyThrows
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = nextValue.next(parser);
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        @SneakyThrows
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            next = null;
+            return reader.readValue(parser);
+        }
+    }
+
+    @SneakyThrows
+    static JsonNode read(CachedMapper mapper, String jsonString) {
+        return mapper.getMapper().readTree(jsonString);
+    }
+
+    @SneakyThrows
+    static JsonNode read(CachedMapper mapper, File file) {
+        return mapper.getMapper().readTree(file);
+    }
+
+    @SneakyThrows
+    static <T> T read(CachedMapper mapper, String jsonString, TypeReference<T> type) {
+        return mapper.reader(type).readValue(jsonString);
+    }
+
+    @SneakyThrows
+    static <T> T read(CachedMapper mapper, File file, TypeReference<T> type) {
+        return mapper.reader(type).readValue(file);
     }
 
     @SneakyThrows
@@ -43,13 +234,20 @@ public final class DataUtils {
     }
 
     @SneakyThrows
-    static String write(ObjectMapper mapper, Object o) {
-        return mapper.writeValueAsString(o);
+    static String write(CachedMapper mapper, Object o) {
+        return mapper.writer(o).writeValueAsString(o);
+    }
+
+    /**
+     * Write while serialized, the stream is flushed but not closed
+     */
+    @SneakyThrows
+    static void write(CachedMapper mapper, OutputStream outputStream, Object o) {
+        mapper.writer(o).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(outputStream, o);
     }
 
     @SneakyThrows
-    static void write(ObjectMapper mapper, File file, Object o) {
-        mapper.writeValue(file, o);
-        ;
+    static void write(CachedMapper mapper, File file, Object o) {
+        mapper.writer(o).writeValue(file, o);
     }
 }
@@ -1,19 +1,24 @@
 package org.fennec.sdk.utilities.data;
 
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.SneakyThrows;
+import org.fennec.sdk.utils.CachedMapper;
+import org.fennec.sdk.utils.ObjectMappers;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.stream.Stream;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class JsonUtils {
 
-    private static final ObjectMapper OBJECT_MAPPER_JSON = new ObjectMapper().setSerializationInclusion(Include.NON_NULL);
+    private static final CachedMapper OBJECT_MAPPER_JSON = ObjectMappers.json();
 
     @SneakyThrows
     public static String writeJSON(Object o) {
@@ -25,6 +30,15 @@ public final class JsonUtils {
         DataUtils.write(OBJECT_MAPPER_JSON, file, o);
     }
 
+    /**
+     * @param o            the value
+     * @param outputStream the JSON, written while serialized. Flushed but not closed
+     */
+    @SneakyThrows
+    public static void writeJSON(Object o, OutputStream outputStream) {
+        DataUtils.write(OBJECT_MAPPER_JSON, outputStream, o);
+    }
+
     @SneakyThrows
     public static JsonNode readJSON(File file) {
         return DataUtils.read(OBJECT_MAPPER_JSON, file);
@@ -45,6 +59,71 @@ public final class JsonUtils {
         return DataUtils.read(OBJECT_MAPPER_JSON, file, type);
     }
 
+    /**
+     * @param inputStream the JSON, closed once read
+     * @param type        the type
+     * @param <T>         the type
+     * @return the value, decoded without loading the whole JSON in memory
+     */
+    @SneakyThrows
+    public static <T> T readJSON(InputStream inputStream, Class<T> type) {
+        return DataUtils.read(OBJECT_MAPPER_JSON, inputStream, type);
+    }
+
+    /**
+     * @param inputStream a JSON array, closed with the stream
+     * @param type        the type of the elements
+     * @param <T>         the type of the elements
+     * @return the elements of the array, decoded one by one while the stream is consumed. The stream must be closed
+     */
+    @SneakyThrows
+    public static <T> Stream<T> readJSONElements(InputStream inputStream, Class<T> type) {
+        return DataUtils.readElements(OBJECT_MAPPER_JSON, inputStream, type);
+    }
+
+    /**
+     * @param file a JSON array
+     * @param type the type of the elements
+     * @param <T>  the type of the elements
+     * @return the elements of the array, decoded one by one while the stream is consumed. The stream must be closed
+     */
+    @SneakyThrows
+    public static <T> Stream<T> readJSONElements(File file, Class<T> type) {
+        return DataUtils.readElements(OBJECT_MAPPER_JSON, Files.newInputStream(file.toPath()), type);
+    }
+
+    /**
+     * <pre>
+     *
+     * try (Stream&lt;Component&gt; components = readJSONElements(sbom, "/components", Component.class)) {
+     *     components.filter(...).forEach(...);
+     * }
+     *
+     * </pre>
+     *
+     * @param inputStream the JSON, closed with the stream
+     * @param pointer     the JSON pointer of the array: "/components", "/data/items"...
+     * @param type        the type of the elements
+     * @param <T>         the type of the elements
+     * @return the elements of the array, decoded one by one while the stream is consumed. The stream must be closed
+     */
+    @SneakyThrows
+    public static <T> Stream<T> readJSONElements(InputStream inputStream, String pointer, Class<T> type) {
+        return DataUtils.readElements(OBJECT_MAPPER_JSON, inputStream, JsonPointer.compile(pointer), type);
+    }
+
+    /**
+     * @param file    the JSON
+     * @param pointer the JSON pointer of the array: "/components", "/data/items"...
+     * @param type    the type of the elements
+     * @param <T>     the type of the elements
+     * @return the elements of the array, decoded one by one while the stream is consumed. The stream must be closed
+     */
+    @SneakyThrows
+    public static <T> Stream<T> readJSONElements(File file, String pointer, Class<T> type) {
+        return readJSONElements(Files.newInputStream(file.toPath()), pointer, type);
+    }
+
     @SneakyThrows
     public static <T> T readJSON(String jsonString, TypeReference<T> type) {
         return DataUtils.read(OBJECT_MAPPER_JSON, jsonString, type);
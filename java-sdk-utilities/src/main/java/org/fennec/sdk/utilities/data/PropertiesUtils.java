@@ -8,14 +8,16 @@ import com.fasterxml.jackson.dataformat.javaprop.JavaPropsFactory;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.SneakyThrows;
+import org.fennec.sdk.utils.CachedMapper;
+import org.fennec.sdk.utils.ObjectMappers;
 
 import java.io.File;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class PropertiesUtils {
 
-    private static final ObjectMapper OBJECT_MAPPER_PROPERTIES = new ObjectMapper(new JavaPropsFactory()).setSerializationInclusion(
-            Include.NON_NULL);
+    private static final CachedMapper OBJECT_MAPPER_PROPERTIES = ObjectMappers.get("properties",
+            () -> new ObjectMapper(new JavaPropsFactory()).setSerializationInclusion(Include.NON_NULL));
 
     @SneakyThrows
     public static String writePROPERTIES(Object o) {
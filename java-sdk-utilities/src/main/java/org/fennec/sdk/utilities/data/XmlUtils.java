@@ -6,16 +6,21 @@ import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.SneakyThrows;
+import org.fennec.sdk.utils.CachedMapper;
+import org.fennec.sdk.utils.ObjectMappers;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.stream.Stream;
 
 import static org.fennec.sdk.utilities.data.DataUtils.read;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class XmlUtils {
 
-    private static final XmlMapper OBJECT_MAPPER_XML = new XmlMapper();
-    ;
+    private static final CachedMapper OBJECT_MAPPER_XML = ObjectMappers.get("xml", XmlMapper::new);
 
     @SneakyThrows
     public static String writeXML(Object o) {
@@ -27,6 +32,15 @@ public final class XmlUtils {
         DataUtils.write(OBJECT_MAPPER_XML, file, o);
     }
 
+    /**
+     * @param o            the value
+     * @param outputStream the XML, written while serialized. Flushed but not closed
+     */
+    @SneakyThrows
+    public static void writeXML(Object o, OutputStream outputStream) {
+        DataUtils.write(OBJECT_MAPPER_XML, outputStream, o);
+    }
+
     @SneakyThrows
     public static JsonNode readXML(File file) {
         return read(OBJECT_MAPPER_XML, file);
@@ -47,6 +61,49 @@ public final class XmlUtils {
         return read(OBJECT_MAPPER_XML, file, type);
     }
 
+    /**
+     * @param inputStream the XML, closed once read
+     * @param type        the type
+     * @param <T>         the type
+     * @return the value, decoded without loading the whole XML in memory
+     */
+    @SneakyThrows
+    public static <T> T readXML(InputStream inputStream, Class<T> type) {
+        return read(OBJECT_MAPPER_XML, inputStream, type);
+    }
+
+    /**
+     * <pre>
+     *
+     * try (Stream&lt;Dependency&gt; dependencies = readXMLElements(new File("bom.xml"), Dependency.class)) {
+     *     dependencies.filter(...).forEach(...);
+     * }
+     *
+     * </pre>
+     *
+     * @param file the XML
+     * @param type the type of the child elements of the root element
+     * @param <T>  the type of the child elements
+     * @return the child elements of the root element, decoded one by one while the stream is consumed. The stream
+     * must be closed
+     */
+    @SneakyThrows
+    public static <T> Stream<T> readXMLElements(File file, Class<T> type) {
+        return readXMLElements(Files.newInputStream(file.toPath()), type);
+    }
+
+    /**
+     * @param inputStream the XML, closed with the stream
+     * @param type        the type of the child elements of the root element
+     * @param <T>         the type of the child elements
+     * @return the child elements of the root element, decoded one by one while the stream is consumed. The stream
+     * must be closed
+     */
+    @SneakyThrows
+    public static <T> Stream<T> readXMLElements(InputStream inputStream, Class<T> type) {
+        return DataUtils.readChildren(OBJECT_MAPPER_XML, inputStream, type);
+    }
+
     @SneakyThrows
     public static <T> T readXML(String jsonString, TypeReference<T> type) {
         return read(OBJECT_MAPPER_XML, jsonString, type);
@@ -1,6 +1,7 @@
 package org.fennec.sdk.utilities.data;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -8,8 +9,13 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.SneakyThrows;
+import org.fennec.sdk.utils.CachedMapper;
+import org.fennec.sdk.utils.ObjectMappers;
 
 import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.stream.Stream;
 
 import static org.fennec.sdk.utilities.data.DataUtils.read;
 import static org.fennec.sdk.utilities.data.DataUtils.write;
@@ -17,8 +23,8 @@ import static org.fennec.sdk.utilities.data.DataUtils.write;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class YamlUtils {
 
-    private static final ObjectMapper OBJECT_MAPPER_YAML = new ObjectMapper(new YAMLFactory()).setSerializationInclusion(
-            Include.NON_NULL);
+    private static final CachedMapper OBJECT_MAPPER_YAML = ObjectMappers.get("yaml",
+            () -> new ObjectMapper(new YAMLFactory()).setSerializationInclusion(Include.NON_NULL));
 
     @SneakyThrows
     public static String writeYAML(Object o) {
@@ -50,6 +56,59 @@ public final class YamlUtils {
         return DataUtils.read(OBJECT_MAPPER_YAML, file, type);
     }
 
+    /**
+     * @param inputStream a YAML sequence, closed with the stream
+     * @param type        the type of the elements
+     * @param <T>         the type of the elements
+     * @return the elements of the sequence, decoded one by one while the stream is consumed. The stream must be closed
+     */
+    @SneakyThrows
+    public static <T> Stream<T> readYAMLElements(InputStream inputStream, Class<T> type) {
+        return readYAMLElements(inputStream, "", type);
+    }
+
+    /**
+     * @param inputStream the YAML, closed with the stream
+     * @param pointer     the JSON pointer of the sequence: "/spec/containers"..., the top level one if empty
+     * @param type        the type of the elements
+     * @param <T>         the type of the elements
+     * @return the elements of the sequence, decoded one by one while the stream is consumed. The stream must be closed
+     */
+    @SneakyThrows
+    public static <T> Stream<T> readYAMLElements(InputStream inputStream, String pointer, Class<T> type) {
+        return DataUtils.readElements(OBJECT_MAPPER_YAML, inputStream, JsonPointer.compile(pointer), type);
+    }
+
+    /**
+     * <pre>
+     *
+     * try (Stream&lt;JsonNode&gt; manifests = readYAMLDocuments(new File("manifests.yaml"), JsonNode.class)) {
+     *     manifests.filter(manifest -&gt; "Deployment".equals(manifest.path("kind").asText())).forEach(...);
+     * }
+     *
+     * </pre>
+     *
+     * @param file the YAML documents, separated by ---
+     * @param type the type of the documents
+     * @param <T>  the type of the documents
+     * @return the documents, decoded one by one while the stream is consumed. The stream must be closed
+     */
+    @SneakyThrows
+    public static <T> Stream<T> readYAMLDocuments(File file, Class<T> type) {
+        return readYAMLDocuments(Files.newInputStream(file.toPath()), type);
+    }
+
+    /**
+     * @param inputStream the YAML documents, separated by ---, closed with the stream
+     * @param type        the type of the documents
+     * @param <T>         the type of the documents
+     * @return the documents, decoded one by one while the stream is consumed. The stream must be closed
+     */
+    @SneakyThrows
+    public static <T> Stream<T> readYAMLDocuments(InputStream inputStream, Class<T> type) {
+        return DataUtils.readDocuments(OBJECT_MAPPER_YAML, inputStream, type);
+    }
+
     @SneakyThrows
     public static <T> T readYAML(String jsonString, TypeReference<T> type) {
         return DataUtils.read(OBJECT_MAPPER_YAML, jsonString, type);
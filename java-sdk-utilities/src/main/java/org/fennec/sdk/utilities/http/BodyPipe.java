@@ -0,0 +1,184 @@
+package org.fennec.sdk.utilities.http;
+
+import org.fennec.sdk.utils.ThreadUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A request body written by a thread while it is sent: the body is never fully in memory.<br>
+ * The written chunks are handed over to the reader through a bounded queue. A writer error is thrown to the reader,
+ * and closing the reader stops the writer.
+ */
+class BodyPipe extends InputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final int MAX_CHUNKS = 16;
+
+    private static final byte[] END = new byte[0];
+
+    private static final ThreadFactory THREAD_FACTORY = ThreadUtils.daemonThreadFactory("fennec-http-body");
+
+    private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(MAX_CHUNKS);
+
+    private volatile Throwable error;
+
+    private volatile boolean closed;
+
+    private byte[] current;
+
+    private int position;
+
+    private BodyPipe() {
+    }
+
+    /**
+     * The body writer
+     */
+    @FunctionalInterface
+    interface Writer {
+
+        /**
+         * @param out the body, it may be closed
+         */
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * @param writer write the body, on another thread
+     * @return the body, as written
+     */
+    static InputStream start(Writer writer) {
+        BodyPipe pipe = new BodyPipe();
+        THREAD_FACTORY.newThread(() -> {
+            try {
+                OutputStream out = pipe.new ChunkOutputStream();
+                writer.write(out);
+                out.flush();
+                // Only ended by this thread: the writer may close the stream on error
+                pipe.put(END);
+            } catch (Throwable t) {
+                pipe.error = t;
+                pipe.end();
+            }
+        }).start();
+        return pipe;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (current == null || position == current.length) {
+            if (current == END) {
+                return -1;
+            }
+            try {
+                current = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            position = 0;
+            if (current == END && error != null) {
+                throw new IOException("Cannot write the request body", error);
+            }
+        }
+        int read = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, read);
+        position += read;
+        return read;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        chunks.clear();
+    }
+
+    /**
+     * Always handed over, even if the reader is closed
+     */
+    private void end() {
+        while (!chunks.offer(END)) {
+            chunks.clear();
+        }
+    }
+
+    private void put(byte[] chunk) throws IOException {
+        try {
+            while (!chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                if (closed) {
+                    throw new IOException("Request body closed");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * Write by chunks
+     */
+    private class ChunkOutputStream extends OutputStream {
+
+        private byte[] buffer = new byte[CHUNK_SIZE];
+
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flush();
+                }
+                int written = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, written);
+                count += written;
+                off += written;
+                len -= written;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count == buffer.length) {
+                // Handed over as is
+                put(buffer);
+                buffer = new byte[CHUNK_SIZE];
+            } else if (count > 0) {
+                put(Arrays.copyOf(buffer, count));
+            }
+            count = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
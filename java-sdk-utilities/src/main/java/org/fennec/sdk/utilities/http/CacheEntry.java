@@ -0,0 +1,249 @@
+package org.fennec.sdk.utilities.http;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A response kept by a {@link HttpCache}. Its metadata are stored as JSON next to its body
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+class CacheEntry {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private String uri;
+
+    private int status;
+
+    private Map<String, List<String>> headers;
+
+    /**
+     * The time until which the response is used without revalidation, in epoch milliseconds
+     */
+    private long expiresAt;
+
+    @JsonIgnore
+    private byte[] body;
+
+    /**
+     * True if the request had an Authorization header
+     */
+    @JsonIgnore
+    private boolean authorized;
+
+    /**
+     * @param uri      the request uri
+     * @param response a successful response
+     * @return the entry of the response
+     */
+    static CacheEntry of(String uri, HttpResponse<byte[]> response) {
+        CacheEntry entry = new CacheEntry();
+        entry.uri = uri;
+        entry.status = response.statusCode();
+        entry.headers = new TreeMap<>(response.headers().map());
+        // The body is kept decoded
+        entry.headers
+                .keySet()
+                .removeIf(name -> "content-encoding".equalsIgnoreCase(name) || "content-length".equalsIgnoreCase(name));
+        entry.expiresAt = expiresAt(cacheControl(response.headers()));
+        entry.body = response.body();
+        entry.authorized = response.request().headers().firstValue("Authorization").isPresent();
+        return entry;
+    }
+
+    /**
+     * @return true if the response can be kept: shared, not forbidden and either validated or fresh for some time. The
+     * cache can be shared by several pipelines: private responses, and responses to authorized requests unless
+     * public, are not kept
+     */
+    @JsonIgnore
+    boolean isCacheable() {
+        HttpHeaders responseHeaders = responseHeaders();
+        String cacheControl = cacheControl(responseHeaders);
+        if (status != 200 || cacheControl.contains("no-store") || cacheControl.contains("private")) {
+            return false;
+        }
+        if (authorized && !cacheControl.contains("public")) {
+            return false;
+        }
+        return expiresAt > 0 || responseHeaders.firstValue("ETag").isPresent() || responseHeaders
+                .firstValue("Last-Modified")
+                .isPresent();
+    }
+
+    /**
+     * @return true if the response can be used without revalidation
+     */
+    @JsonIgnore
+    boolean isFresh() {
+        return System.currentTimeMillis() < expiresAt;
+    }
+
+    /**
+     * @return the headers of a request revalidating the response
+     */
+    @JsonIgnore
+    Map<String, String> getConditionalHeaders() {
+        Map<String, String> conditional = new HashMap<>();
+        HttpHeaders responseHeaders = responseHeaders();
+        responseHeaders.firstValue("ETag").ifPresent(etag -> conditional.put("If-None-Match", etag));
+        responseHeaders.firstValue("Last-Modified").ifPresent(date -> conditional.put("If-Modified-Since", date));
+        return conditional;
+    }
+
+    /**
+     * @param notModified the headers of the 304 response
+     * @return the same response, valid for the new max age
+     */
+    CacheEntry revalidated(HttpHeaders notModified) {
+        CacheEntry entry = new CacheEntry();
+        entry.uri = uri;
+        entry.status = status;
+        entry.headers = headers;
+        entry.body = body;
+        entry.expiresAt = expiresAt(cacheControl(notModified));
+        return entry;
+    }
+
+    /**
+     * @param bodyHandler the body handler of the call
+     * @param request     the request of the call
+     * @return the response, its body decoded by the handler
+     */
+    <B> HttpResponse<B> toResponse(HttpResponse.BodyHandler<B> bodyHandler, HttpRequest request) throws IOException, InterruptedException {
+        HttpHeaders responseHeaders = responseHeaders();
+        HttpResponse.BodySubscriber<B> subscriber = bodyHandler.apply(new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return status;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return responseHeaders;
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        });
+        // Replay the body as if received
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                // Everything is sent at once
+            }
+
+            @Override
+            public void cancel() {
+                // DO NOTHING
+            }
+        });
+        subscriber.onNext(List.of(ByteBuffer.wrap(body)));
+        subscriber.onComplete();
+        B decoded;
+        try {
+            decoded = subscriber.getBody().toCompletableFuture().get();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        return new CachedResponse<>(request, responseHeaders, decoded);
+    }
+
+    private HttpHeaders responseHeaders() {
+        return HttpHeaders.of(headers, (name, value) -> true);
+    }
+
+    private static String cacheControl(HttpHeaders responseHeaders) {
+        return String.join(",", responseHeaders.allValues("Cache-Control")).toLowerCase(Locale.ROOT);
+    }
+
+    private static long expiresAt(String cacheControl) {
+        if (cacheControl.contains("no-cache")) {
+            return 0;
+        }
+        Matcher maxAge = MAX_AGE.matcher(cacheControl);
+        if (!maxAge.find()) {
+            return 0;
+        }
+        return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Long.parseLong(maxAge.group(1)));
+    }
+
+    /**
+     * A response served by the cache
+     */
+    private class CachedResponse<B> implements HttpResponse<B> {
+
+        private final HttpRequest request;
+
+        private final HttpHeaders responseHeaders;
+
+        private final B decoded;
+
+        CachedResponse(HttpRequest request, HttpHeaders responseHeaders, B decoded) {
+            this.request = request;
+            this.responseHeaders = responseHeaders;
+            this.decoded = decoded;
+        }
+
+        @Override
+        public int statusCode() {
+            return status;
+        }
+
+        @Override
+        public HttpRequest request() {
+            return request;
+        }
+
+        @Override
+        public Optional<HttpResponse<B>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return responseHeaders;
+        }
+
+        @Override
+        public B body() {
+            return decoded;
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return request.uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+}
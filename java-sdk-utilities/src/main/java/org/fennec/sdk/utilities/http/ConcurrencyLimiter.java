@@ -0,0 +1,89 @@
+package org.fennec.sdk.utilities.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Start asynchronous calls with a maximum number of calls in flight: a call is started when another one completes,
+ * without any thread waiting
+ *
+ * @param <I> the type of input
+ * @param <O> the type of output
+ */
+class ConcurrencyLimiter<I, O> {
+
+    private final List<I> inputs;
+
+    private final Function<I, CompletableFuture<O>> call;
+
+    private final List<CompletableFuture<O>> results;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * The number of calls to start. Only the thread incrementing it from 0 starts them: calls completing immediately
+     * do not start the next ones recursively
+     */
+    private final AtomicInteger toStart = new AtomicInteger();
+
+    private ConcurrencyLimiter(List<I> inputs, Function<I, CompletableFuture<O>> call) {
+        this.inputs = inputs;
+        this.call = call;
+        this.results = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            results.add(new CompletableFuture<>());
+        }
+    }
+
+    /**
+     * @param inputs         the inputs of the calls
+     * @param maxConcurrency the maximum number of calls in flight
+     * @param call           the asynchronous call
+     * @param <I>            the type of input
+     * @param <O>            the type of output
+     * @return the result of each call, in the inputs order
+     */
+    static <I, O> List<CompletableFuture<O>> run(List<I> inputs, int maxConcurrency,
+            Function<I, CompletableFuture<O>> call) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be positive");
+        }
+        ConcurrencyLimiter<I, O> limiter = new ConcurrencyLimiter<>(new ArrayList<>(inputs), call);
+        for (int i = 0; i < Math.min(maxConcurrency, inputs.size()); i++) {
+            limiter.startNext();
+        }
+        return limiter.results;
+    }
+
+    private void startNext() {
+        if (toStart.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            int index = next.getAndIncrement();
+            if (index < inputs.size()) {
+                start(index);
+            }
+        } while (toStart.decrementAndGet() > 0);
+    }
+
+    private void start(int index) {
+        CompletableFuture<O> future;
+        try {
+            future = call.apply(inputs.get(index));
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                results.get(index).completeExceptionally(error);
+            } else {
+                results.get(index).complete(result);
+            }
+            startNext();
+        });
+    }
+}
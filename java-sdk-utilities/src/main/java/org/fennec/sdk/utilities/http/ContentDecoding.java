@@ -0,0 +1,296 @@
+package org.fennec.sdk.utilities.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decode the gzip and deflate response bodies while they are received, whatever the body handler
+ */
+class ContentDecoding {
+
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final int GZIP_TRAILER_SIZE = 8;
+
+    private static final int FHCRC = 2;
+
+    private static final int FEXTRA = 4;
+
+    private static final int FNAME = 8;
+
+    private static final int FCOMMENT = 16;
+
+    private ContentDecoding() {
+    }
+
+    /**
+     * @param bodyHandler the handler of the decoded body
+     * @return a handler decoding the body if encoded. The decoded response has no Content-Encoding and
+     * Content-Length headers
+     */
+    static <B> BodyHandler<B> decoding(BodyHandler<B> bodyHandler) {
+        return responseInfo -> {
+            String encoding = responseInfo
+                    .headers()
+                    .firstValue("Content-Encoding")
+                    .map(value -> value.trim().toLowerCase(Locale.ROOT))
+                    .orElse("identity");
+            if (!"gzip".equals(encoding) && !"x-gzip".equals(encoding) && !"deflate".equals(encoding)) {
+                return bodyHandler.apply(responseInfo);
+            }
+            return new InflatingSubscriber<>(bodyHandler.apply(decoded(responseInfo)), !"deflate".equals(encoding));
+        };
+    }
+
+    private static ResponseInfo decoded(ResponseInfo responseInfo) {
+        HttpHeaders headers = HttpHeaders.of(responseInfo.headers().map(),
+                (name, value) -> !"content-encoding".equalsIgnoreCase(name) && !"content-length".equalsIgnoreCase(
+                        name));
+        return new ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return responseInfo.statusCode();
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return headers;
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return responseInfo.version();
+            }
+        };
+    }
+
+    /**
+     * Inflate each received buffers list into a decoded buffers list: the demand is unchanged
+     */
+    private static class InflatingSubscriber<B> implements BodySubscriber<B> {
+
+        private final BodySubscriber<B> downstream;
+
+        private final boolean gzip;
+
+        /**
+         * The bytes received before the compressed data: the gzip header, the zlib header
+         */
+        private final ByteArrayOutputStream header = new ByteArrayOutputStream();
+
+        /**
+         * The bytes received after the compressed data: the gzip trailer
+         */
+        private final ByteArrayOutputStream trailer = new ByteArrayOutputStream();
+
+        private final CRC32 crc = new CRC32();
+
+        private Inflater inflater;
+
+        private long size;
+
+        private boolean failed;
+
+        InflatingSubscriber(BodySubscriber<B> downstream, boolean gzip) {
+            this.downstream = downstream;
+            this.gzip = gzip;
+        }
+
+        @Override
+        public CompletionStage<B> getBody() {
+            return downstream.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            downstream.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (failed) {
+                return;
+            }
+            List<ByteBuffer> decoded = new ArrayList<>();
+            try {
+                for (ByteBuffer item : items) {
+                    byte[] bytes = new byte[item.remaining()];
+                    item.get(bytes);
+                    decode(bytes, 0, bytes.length, decoded);
+                }
+            } catch (IOException | DataFormatException e) {
+                fail(e);
+                return;
+            }
+            downstream.onNext(decoded);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            end();
+            downstream.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (failed) {
+                return;
+            }
+            try {
+                if (inflater == null && header.size() == 0) {
+                    // No body: HEAD, 204...
+                    downstream.onComplete();
+                    return;
+                }
+                if (inflater == null || !inflater.finished()) {
+                    throw new EOFException("Unexpected end of the compressed body");
+                }
+                if (gzip) {
+                    checkTrailer();
+                }
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+            end();
+            downstream.onComplete();
+        }
+
+        private void decode(byte[] bytes, int offset, int length, List<ByteBuffer> decoded)
+                throws IOException, DataFormatException {
+            if (inflater == null) {
+                header.write(bytes, offset, length);
+                byte[] received = header.toByteArray();
+                // The zlib header of the deflate data is read by the inflater
+                int headerLength = gzip ? gzipHeaderLength(received) : Math.min(0, received.length - 2);
+                if (headerLength < 0) {
+                    // More bytes needed
+                    return;
+                }
+                // Raw deflate data after the gzip header. Some servers also send raw deflate data
+                inflater = new Inflater(gzip || !isZlib(received));
+                bytes = received;
+                offset = headerLength;
+                length = received.length - headerLength;
+            }
+            if (inflater.finished()) {
+                trailer.write(bytes, offset, length);
+                return;
+            }
+            inflater.setInput(bytes, offset, length);
+            while (!inflater.finished() && !inflater.needsInput()) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && inflater.needsDictionary()) {
+                    throw new IOException("Compressed body with a preset dictionary not supported");
+                }
+                if (inflated > 0) {
+                    crc.update(buffer, 0, inflated);
+                    size += inflated;
+                    decoded.add(ByteBuffer.wrap(buffer, 0, inflated));
+                }
+            }
+            if (inflater.finished() && inflater.getRemaining() > 0) {
+                trailer.write(bytes, offset + length - inflater.getRemaining(), inflater.getRemaining());
+            }
+        }
+
+        private void checkTrailer() throws IOException {
+            byte[] bytes = trailer.toByteArray();
+            if (bytes.length < GZIP_TRAILER_SIZE) {
+                throw new EOFException("Unexpected end of the gzip body");
+            }
+            if (readInt(bytes, 0) != (int) crc.getValue() || readInt(bytes, 4) != (int) size) {
+                throw new IOException("Corrupted gzip body");
+            }
+        }
+
+        private void fail(Exception e) {
+            failed = true;
+            end();
+            downstream.onError(e);
+        }
+
+        private void end() {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+
+        /**
+         * @return the length of the gzip header, -1 if incomplete
+         */
+        private static int gzipHeaderLength(byte[] bytes) throws IOException {
+            if (bytes.length < 10) {
+                return -1;
+            }
+            if (readShort(bytes, 0) != GZIP_MAGIC || bytes[2] != 8) {
+                throw new IOException("Not in gzip format");
+            }
+            int flags = bytes[3] & 0xFF;
+            int position = 10;
+            if ((flags & FEXTRA) != 0) {
+                if (bytes.length < position + 2) {
+                    return -1;
+                }
+                position += 2 + readShort(bytes, position);
+            }
+            if ((flags & FNAME) != 0) {
+                position = skipZeroTerminated(bytes, position);
+            }
+            if ((flags & FCOMMENT) != 0) {
+                position = skipZeroTerminated(bytes, position);
+            }
+            if ((flags & FHCRC) != 0) {
+                position = position < 0 ? position : position + 2;
+            }
+            return position < 0 || position > bytes.length ? -1 : position;
+        }
+
+        /**
+         * @return true if the deflate data starts with a zlib header: deflate method and valid check bits
+         */
+        private static boolean isZlib(byte[] bytes) {
+            return (bytes[0] & 0x0F) == 8 && (((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF)) % 31 == 0;
+        }
+
+        private static int skipZeroTerminated(byte[] bytes, int position) {
+            if (position < 0) {
+                return position;
+            }
+            for (int i = position; i < bytes.length; i++) {
+                if (bytes[i] == 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        private static int readShort(byte[] bytes, int position) {
+            return (bytes[position] & 0xFF) | ((bytes[position + 1] & 0xFF) << 8);
+        }
+
+        private static int readInt(byte[] bytes, int position) {
+            return readShort(bytes, position) | (readShort(bytes, position + 2) << 16);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.fennec.sdk.utilities.http;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of a {@link FileDownload}
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class DownloadResult {
+
+    private final Path file;
+
+    /**
+     * The file size in bytes
+     */
+    private final long size;
+
+    /**
+     * The number of bytes downloaded by this download
+     */
+    private final long downloadedBytes;
+
+    /**
+     * The number of bytes downloaded by a previous interrupted download
+     */
+    private final long resumedBytes;
+
+    private final long durationNanos;
+
+    /**
+     * @return the number of bytes downloaded per second
+     */
+    public double getBytesPerSecond() {
+        return durationNanos == 0 ? 0 : downloadedBytes * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos;
+    }
+}
@@ -0,0 +1,633 @@
+package org.fennec.sdk.utilities.http;
+
+import org.fennec.sdk.utils.ThreadUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Download a file.<br>
+ * When the server accepts range requests, the file is downloaded by chunks, in parallel, into a preallocated
+ * <code>.part</code> file. The downloaded chunks are recorded in a <code>.part.state</code> file: an interrupted
+ * download is resumed by the next one, as long as the file did not change (same ETag or Last-Modified).<br>
+ * The checksum is computed while the chunks are received, and verified before the file is moved to its destination.<br>
+ * A chunk whose body stalls longer than the read timeout is downloaded again. The chunks are requested with HTTP/1.1
+ * unless a client is set: HTTP/2 would multiplex them over a single connection sharing its bandwidth, one connection
+ * per chunk is usually faster.
+ */
+public class FileDownload {
+
+    public static final long DEFAULT_CHUNK_SIZE = 8L * 1024 * 1024;
+
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String PART = ".part";
+
+    private static final String STATE = ".part.state";
+
+    private static final ScheduledThreadPoolExecutor READ_TIMEOUTS = newReadTimeouts();
+
+    /**
+     * The HTTP/1.1 copy of the default client and the default client it was made from. Guarded by the class
+     */
+    private static HttpClient chunkClient;
+
+    private static HttpClient chunkClientBase;
+
+    private final String url;
+
+    private final Map<String, List<String>> headers = new LinkedHashMap<>();
+
+    private HttpClient client;
+
+    private Duration timeout = Duration.ofSeconds(60);
+
+    private Duration readTimeout = Duration.ofSeconds(30);
+
+    private int chunkRetries = 3;
+
+    private long chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    private String checksumAlgorithm;
+
+    private String expectedChecksum;
+
+    FileDownload(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Add an header
+     *
+     * @param key
+     * @param value
+     * @return the download
+     */
+    public FileDownload header(String key, String value) {
+        headers.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        return this;
+    }
+
+    /**
+     * @param client the client of every request. By default the shared one, and an HTTP/1.1 copy of it for the chunks
+     * @return the download
+     */
+    public FileDownload client(HttpClient client) {
+        this.client = client;
+        return this;
+    }
+
+    /**
+     * @param timeout the maximum time to wait for the response headers of each request, 60 seconds by default
+     * @return the download
+     */
+    public FileDownload timeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * @param readTimeout the maximum time to wait for the next bytes of a response body, 30 seconds by default
+     * @return the download
+     */
+    public FileDownload readTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    /**
+     * @param chunkRetries the number of times a chunk is downloaded again after a network error or a read timeout, 3
+     *                     by default
+     * @return the download
+     */
+    public FileDownload chunkRetries(int chunkRetries) {
+        if (chunkRetries < 0) {
+            throw new IllegalArgumentException("Chunk retries must not be negative");
+        }
+        this.chunkRetries = chunkRetries;
+        return this;
+    }
+
+    /**
+     * @param chunkSize the number of bytes per range request, 8 MB by default
+     * @return the download
+     */
+    public FileDownload chunkSize(long chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * @param parallelism the maximum number of chunks downloaded at once, 4 by default
+     * @return the download
+     */
+    public FileDownload parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param algorithm the {@link MessageDigest} algorithm (SHA-256, MD5...)
+     * @param checksum  the expected checksum, hexadecimal
+     * @return the download
+     */
+    public FileDownload checksum(String algorithm, String checksum) {
+        this.checksumAlgorithm = algorithm;
+        this.expectedChecksum = checksum.toLowerCase(Locale.ROOT);
+        return this;
+    }
+
+    /**
+     * @param checksum the expected SHA-256 checksum, hexadecimal
+     * @return the download
+     */
+    public FileDownload sha256(String checksum) {
+        return checksum("SHA-256", checksum);
+    }
+
+    /**
+     * @param checksum the expected MD5 checksum, hexadecimal
+     * @return the download
+     */
+    public FileDownload md5(String checksum) {
+        return checksum("MD5", checksum);
+    }
+
+    /**
+     * Download the file, replaced if it exists
+     *
+     * @param destination the destination file
+     * @return the download result
+     * @throws StatusCodeException on error status
+     * @throws IOException         on error, or if the checksum does not match
+     */
+    public DownloadResult to(Path destination) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+        long start = System.nanoTime();
+        Path part = sibling(destination, PART);
+        Path state = sibling(destination, STATE);
+        MessageDigest digest = newDigest();
+
+        HttpHeaders headHeaders;
+        try {
+            headHeaders = send(httpClient(), request("HEAD", null, null), BodyHandlers.discarding()).headers();
+        } catch (StatusCodeException e) {
+            // HEAD not supported: single stream download
+            headHeaders = HttpHeaders.of(Map.of(), (name, value) -> true);
+        }
+        long length = headHeaders.firstValueAsLong("Content-Length").orElse(-1);
+        boolean ranges = headHeaders.allValues("Accept-Ranges").contains("bytes");
+        String validator = validator(headHeaders);
+
+        long downloaded;
+        long resumed = 0;
+        if (length > 0 && ranges) {
+            ChunkedDownload chunked = new ChunkedDownload(part, state, length, validator, digest);
+            resumed = chunked.resumedBytes();
+            chunked.run();
+            downloaded = length - resumed;
+        } else {
+            downloaded = downloadAtOnce(part, digest);
+            Files.deleteIfExists(state);
+        }
+
+        if (digest != null) {
+            String checksum = toHex(digest.digest());
+            if (!checksum.equals(expectedChecksum)) {
+                Files.deleteIfExists(part);
+                Files.deleteIfExists(state);
+                throw new IOException("Checksum mismatch for " + url + ": expected " + expectedChecksum + " but was " + checksum);
+            }
+        }
+        move(part, destination);
+        Files.deleteIfExists(state);
+        return new DownloadResult(destination, Files.size(destination), downloaded, resumed, System.nanoTime() - start);
+    }
+
+    /**
+     * Single stream download, when the size is unknown or the server does not accept range requests
+     *
+     * @return the number of bytes downloaded
+     */
+    private long downloadAtOnce(Path part, MessageDigest digest) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+        HttpResponse<InputStream> response = send(httpClient(), request("GET", null, null), BodyHandlers.ofInputStream());
+        long total = 0;
+        try (InputStream body = response.body(); FileChannel channel = FileChannel.open(part,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = read(body, buffer, buffer.length)) >= 0) {
+                if (digest != null) {
+                    digest.update(buffer, 0, read);
+                }
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    private HttpRequest request(String method, String range, String ifRange) throws URISyntaxException {
+        HttpRequest.Builder builder = HttpRequest
+                .newBuilder()
+                .uri(new URI(url))
+                .timeout(timeout)
+                .method(method, HttpRequest.BodyPublishers.noBody());
+        headers.forEach((key, values) -> values.forEach(value -> builder.header(key, value)));
+        if (range != null) {
+            builder.header("Range", range);
+        }
+        if (ifRange != null) {
+            // The whole file is sent if it changed
+            builder.header("If-Range", ifRange);
+        }
+        return builder.build();
+    }
+
+    private static <T> HttpResponse<T> send(HttpClient httpClient, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws StatusCodeException, IOException, InterruptedException {
+        return Http.checkStatus(httpClient.send(request, Http.withErrorBody(bodyHandler)));
+    }
+
+    private HttpClient httpClient() {
+        return client == null ? Http.getDefaultClient() : client;
+    }
+
+    /**
+     * @return the client of the chunks: an HTTP/1.1 copy of the default client, else the client set
+     */
+    private HttpClient chunkClient() {
+        if (client != null) {
+            return client;
+        }
+        HttpClient base = Http.getDefaultClient();
+        if (base.version() == HttpClient.Version.HTTP_1_1) {
+            return base;
+        }
+        synchronized (FileDownload.class) {
+            if (chunkClientBase != base) {
+                HttpClient.Builder builder = HttpClient
+                        .newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .followRedirects(base.followRedirects())
+                        .sslContext(base.sslContext())
+                        .sslParameters(base.sslParameters());
+                base.connectTimeout().ifPresent(builder::connectTimeout);
+                base.proxy().ifPresent(builder::proxy);
+                base.authenticator().ifPresent(builder::authenticator);
+                base.cookieHandler().ifPresent(builder::cookieHandler);
+                base.executor().ifPresent(builder::executor);
+                chunkClient = builder.build();
+                chunkClientBase = base;
+            }
+            return chunkClient;
+        }
+    }
+
+    /**
+     * Read the next bytes of a body, failing with an {@link HttpTimeoutException} after the read timeout: the body is
+     * closed to unblock the read
+     */
+    private int read(InputStream body, byte[] buffer, int length) throws IOException {
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> timeoutTask = READ_TIMEOUTS.schedule(() -> {
+            timedOut.set(true);
+            try {
+                body.close();
+            } catch (IOException e) {
+                // DO NOTHING
+            }
+        }, readTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            int read = body.read(buffer, 0, length);
+            if (timedOut.get()) {
+                throw readTimedOut();
+            }
+            return read;
+        } catch (IOException e) {
+            if (timedOut.get()) {
+                throw readTimedOut();
+            }
+            throw e;
+        } finally {
+            timeoutTask.cancel(false);
+        }
+    }
+
+    private HttpTimeoutException readTimedOut() {
+        return new HttpTimeoutException("No data received from " + url + " for " + readTimeout.toMillis() + "ms");
+    }
+
+    private static ScheduledThreadPoolExecutor newReadTimeouts() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                ThreadUtils.daemonThreadFactory("fennec-download-timeout"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    private MessageDigest newDigest() throws IOException {
+        if (checksumAlgorithm == null) {
+            return null;
+        }
+        try {
+            return MessageDigest.getInstance(checksumAlgorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Unsupported checksum algorithm " + checksumAlgorithm, e);
+        }
+    }
+
+    private static String validator(HttpHeaders headers) {
+        return headers
+                .firstValue("ETag")
+                .filter(etag -> !etag.startsWith("W/"))
+                .or(() -> headers.firstValue("Last-Modified"))
+                .orElse(null);
+    }
+
+    private static Path sibling(Path destination, String suffix) {
+        return destination.resolveSibling(destination.getFileName() + suffix);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * The download of the chunks of a file
+     */
+    private class ChunkedDownload {
+
+        private final Path part;
+
+        private final Path state;
+
+        private final long length;
+
+        private final String validator;
+
+        private final MessageDigest digest;
+
+        private final int chunkCount;
+
+        /**
+         * The chunks written to the part file. Guarded by this
+         */
+        private final BitSet done = new BitSet();
+
+        /**
+         * The number of leading chunks added to the digest. Guarded by this
+         */
+        private int hashedChunks;
+
+        private FileChannel channel;
+
+        ChunkedDownload(Path part, Path state, long length, String validator, MessageDigest digest) throws IOException {
+            this.part = part;
+            this.state = state;
+            this.length = length;
+            this.validator = validator;
+            this.digest = digest;
+            this.chunkCount = (int) ((length + chunkSize - 1) / chunkSize);
+            loadState();
+        }
+
+        long resumedBytes() {
+            long bytes = 0;
+            for (int chunk = done.nextSetBit(0); chunk >= 0; chunk = done.nextSetBit(chunk + 1)) {
+                bytes += chunkEnd(chunk) - chunk * chunkSize;
+            }
+            return bytes;
+        }
+
+        void run() throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+            List<Integer> pending = new ArrayList<>();
+            for (int chunk = done.nextClearBit(0); chunk < chunkCount; chunk = done.nextClearBit(chunk + 1)) {
+                pending.add(chunk);
+            }
+            try (FileChannel fileChannel = FileChannel.open(part,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                channel = fileChannel;
+                if (fileChannel.size() != length) {
+                    // Preallocated: the chunks are written at their position
+                    fileChannel.truncate(length);
+                    fileChannel.write(ByteBuffer.allocate(1), length - 1);
+                }
+                hashDoneChunks();
+                downloadChunks(pending);
+                hashDoneChunks();
+            }
+        }
+
+        private void downloadChunks(List<Integer> pending) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            int workers = Math.min(parallelism, pending.size());
+            AtomicInteger next = new AtomicInteger();
+            AtomicBoolean failed = new AtomicBoolean();
+            ExecutorService executor = ThreadUtils.newBoundedExecutor("fennec-download", workers);
+            try {
+                List<Future<Void>> futures = new ArrayList<>();
+                for (int i = 0; i < workers; i++) {
+                    futures.add(executor.submit(() -> {
+                        int index;
+                        while (!failed.get() && (index = next.getAndIncrement()) < pending.size()) {
+                            try {
+                                downloadChunk(pending.get(index));
+                            } catch (Exception e) {
+                                failed.set(true);
+                                throw e;
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<Void> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        rethrow(e.getCause());
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        /**
+         * Download a chunk, again after a network error or a read timeout
+         */
+        private void downloadChunk(int chunk) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    downloadChunkOnce(chunk);
+                    return;
+                } catch (ProtocolException e) {
+                    throw e;
+                } catch (IOException e) {
+                    if (attempt >= chunkRetries) {
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        private void downloadChunkOnce(int chunk) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+            long position = chunk * chunkSize;
+            long end = chunkEnd(chunk);
+            HttpResponse<InputStream> response = send(chunkClient(),
+                    request("GET", "bytes=" + position + "-" + (end - 1), validator),
+                    BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 206) {
+                    throw new ProtocolException("Range request not honored for " + url + ", the file may have changed: status " + response.statusCode());
+                }
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while (position < end && (read = read(body, buffer, (int) Math.min(buffer.length, end - position))) >= 0) {
+                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                    while (byteBuffer.hasRemaining()) {
+                        position += channel.write(byteBuffer, position);
+                    }
+                }
+            }
+            if (position != end) {
+                throw new IOException("Incomplete chunk received for " + url + ": " + (end - position) + " bytes missing");
+            }
+            chunkDone(chunk);
+        }
+
+        private synchronized void chunkDone(int chunk) throws IOException {
+            done.set(chunk);
+            Files.writeString(state, chunk + "\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            hashDoneChunks();
+        }
+
+        /**
+         * Add the leading chunks written to the digest, read back from the part file
+         */
+        private synchronized void hashDoneChunks() throws IOException {
+            if (digest == null) {
+                return;
+            }
+            ByteBuffer buffer = null;
+            while (hashedChunks < chunkCount && done.get(hashedChunks)) {
+                if (buffer == null) {
+                    buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                }
+                long position = hashedChunks * chunkSize;
+                long end = chunkEnd(hashedChunks);
+                while (position < end) {
+                    buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of " + part);
+                    }
+                    buffer.flip();
+                    digest.update(buffer);
+                    position += read;
+                }
+                hashedChunks++;
+            }
+        }
+
+        private long chunkEnd(int chunk) {
+            return Math.min(length, (chunk + 1) * chunkSize);
+        }
+
+        /**
+         * Keep the chunks of a previous download of the same file, else start a new state
+         */
+        private void loadState() throws IOException {
+            List<String> header = List.of(url, String.valueOf(validator), String.valueOf(length), String.valueOf(
+                    chunkSize));
+            if (validator != null && Files.exists(state) && Files.exists(part)) {
+                List<String> lines = Files.readAllLines(state, StandardCharsets.UTF_8);
+                if (lines.size() >= header.size() && lines.subList(0, header.size()).equals(header)) {
+                    for (String line : lines.subList(header.size(), lines.size())) {
+                        if (line.matches("\\d+") && Integer.parseInt(line) < chunkCount) {
+                            done.set(Integer.parseInt(line));
+                        }
+                    }
+                    return;
+                }
+            }
+            Files.deleteIfExists(part);
+            Files.write(state, header, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void rethrow(Throwable t) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+        if (t instanceof StatusCodeException) {
+            throw (StatusCodeException) t;
+        }
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        if (t instanceof InterruptedException) {
+            throw (InterruptedException) t;
+        }
+        if (t instanceof URISyntaxException) {
+            throw (URISyntaxException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IOException(t);
+    }
+}
@@ -5,37 +5,119 @@ import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.fennec.sdk.utilities.data.JsonUtils;
 import org.fennec.sdk.utilities.data.XmlUtils;
+import org.fennec.sdk.utils.Utils;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.HttpURLConnection;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URL;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Make HTTP Request
+ * Make HTTP Request.<br>
+ * The requests share a single {@link HttpClient}, keeping the connections (and TLS sessions) of each host alive
+ * between calls and multiplexing HTTP/2 requests. It connects within FENNEC_HTTP_CONNECT_TIMEOUT_SECONDS (30) and can
+ * be replaced by a custom client, globally or per request.<br>
+ * The gzip and deflate responses are decoded while received, <code>Accept-Encoding: gzip, deflate</code> is sent
+ * unless another Accept-Encoding header is set.
  */
 public class Http {
 
+    private static volatile HttpClient defaultClient;
+
+    private static volatile HttpCache defaultCache = Utils
+            .env("FENNEC_HTTP_CACHE_DIR")
+            .map(directory -> HttpCache.onDisk(Path.of(directory)))
+            .orElse(null);
+
     private String method;
     private String uri;
     private Map<String, List<String>> headers = new HashMap<>();
     private HttpRequest.BodyPublisher bodyPublisher;
+    /**
+     * Write the body again, to compress it
+     */
+    private BodyPipe.Writer bodyWriter;
+    private boolean gzip;
+    /**
+     * The body can only be sent once: the request is not retried
+     */
+    private boolean oneShotBody;
+    private HttpClient client;
+    private RetryPolicy retryPolicy;
+    private HttpCache cache;
 
     private Http(String method, String uri) {
         this.method = method;
         this.uri = uri;
     }
 
+    /**
+     * @return a client builder with the default configuration (HTTP/2 when supported, connect timeout), to customize
+     * the version, executor, proxy... of a client
+     */
+    public static HttpClient.Builder clientBuilder() {
+        return HttpClient
+                .newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(Long.parseLong(Utils.env("FENNEC_HTTP_CONNECT_TIMEOUT_SECONDS",
+                        "30"))));
+    }
+
+    /**
+     * @return the client shared by the requests, created on first use
+     */
+    public static HttpClient getDefaultClient() {
+        HttpClient client = defaultClient;
+        if (client == null) {
+            synchronized (Http.class) {
+                client = defaultClient;
+                if (client == null) {
+                    client = clientBuilder().build();
+                    defaultClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * @param client the client to be shared by the requests from now, null to restore the default one
+     */
+    public static void setDefaultClient(HttpClient client) {
+        defaultClient = client;
+    }
+
+    /**
+     * @return the cache of the GET calls, none by default unless the FENNEC_HTTP_CACHE_DIR env is set
+     */
+    public static HttpCache getDefaultCache() {
+        return defaultCache;
+    }
+
+    /**
+     * @param cache the cache of the GET calls from now, null for none
+     */
+    public static void setDefaultCache(HttpCache cache) {
+        defaultCache = cache;
+    }
+
     public static Http request(String method, String uri) {
         return new Http(method, uri);
     }
@@ -77,12 +159,58 @@ public class Http {
      */
     @SneakyThrows
     public static void downloadFile(String url, Map<String, String> headers, File destination) {
-        URL downloadUrl = new URL(url);
-        HttpURLConnection myURLConnection = (HttpURLConnection) downloadUrl.openConnection();
-        headers.forEach((k, v) -> {
-            myURLConnection.setRequestProperty(k, v);
-        });
-        Files.copy(myURLConnection.getInputStream(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        FileDownload download = download(url);
+        headers.forEach(download::header);
+        download.to(destination.toPath());
+    }
+
+    /**
+     * Download a file by chunks in parallel, resuming an interrupted download and verifying its checksum
+     *
+     * <pre>
+     *
+     * download("https://example.com/jdk.tar.gz").sha256(checksum).to(Path.of("jdk.tar.gz"));
+     *
+     * </pre>
+     *
+     * @param url the file url
+     * @return the download, started by {@link FileDownload#to(Path)}
+     */
+    public static FileDownload download(String url) {
+        return new FileDownload(url);
+    }
+
+    /**
+     * Send this request with another client than the shared one
+     *
+     * @param client the client
+     * @return the HTTP instance
+     */
+    public Http client(HttpClient client) {
+        this.client = client;
+        return this;
+    }
+
+    /**
+     * Retry this request on failure, and hedge it if idempotent, following a policy
+     *
+     * @param retryPolicy the policy
+     * @return the HTTP instance
+     */
+    public Http retry(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Keep the response of this GET call in another cache than the default one
+     *
+     * @param cache the cache
+     * @return the HTTP instance
+     */
+    public Http cache(HttpCache cache) {
+        this.cache = cache;
+        return this;
     }
 
     /**
@@ -117,18 +245,90 @@ public class Http {
      */
     public Http entity(Object entity, String contentType) {
         header("Content-Type", contentType);
+        String body;
         if (ContentTypes.APPLICATION_JSON.equals(contentType)) {
-            this.bodyPublisher = BodyPublishers.ofString(JsonUtils.writeJSON(entity));
-            return this;
-        } else if (ContentTypes.APPLICATION_XML.equals(contentType) || ContentTypes.TEXT_HTML.equals(contentType) || ContentTypes.APPLICATION_XHTML.equals(
-                contentType)) {
-            this.bodyPublisher = BodyPublishers.ofString(XmlUtils.writeXML(entity));
-            return this;
+            body = JsonUtils.writeJSON(entity);
+        } else if (isXml(contentType)) {
+            body = XmlUtils.writeXML(entity);
         } else if (ContentTypes.TEXT_PLAIN.equals(contentType)) {
-            this.bodyPublisher = BodyPublishers.ofString(entity.toString());
-            return this;
+            body = entity.toString();
+        } else {
+            throw new IllegalStateException("Unsupported media type is supported. Contributions are welcome");
         }
-        throw new IllegalStateException("Unsupported media type is supported. Contributions are welcome");
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        this.bodyPublisher = BodyPublishers.ofByteArray(bytes);
+        this.bodyWriter = out -> out.write(bytes);
+        this.oneShotBody = false;
+        return this;
+    }
+
+    /**
+     * Add entity file, sent while read: the file is never loaded in memory
+     *
+     * @param file        the file
+     * @param contentType the content type
+     * @return the http
+     */
+    public Http entity(Path file, String contentType) throws IOException {
+        header("Content-Type", contentType);
+        this.bodyPublisher = BodyPublishers.ofFile(file);
+        this.bodyWriter = out -> Files.copy(file, out);
+        this.oneShotBody = false;
+        return this;
+    }
+
+    /**
+     * Add entity stream, sent while read. The stream can only be sent once: the request is neither retried nor hedged
+     *
+     * @param inputStream the entity, closed once sent
+     * @param contentType the content type
+     * @return the http
+     */
+    public Http entity(InputStream inputStream, String contentType) {
+        header("Content-Type", contentType);
+        this.bodyPublisher = BodyPublishers.ofInputStream(() -> inputStream);
+        this.bodyWriter = out -> {
+            try (InputStream in = inputStream) {
+                in.transferTo(out);
+            }
+        };
+        this.oneShotBody = true;
+        return this;
+    }
+
+    /**
+     * Add entity serialized while sent, for large entities: the serialized entity is never fully in memory. It is
+     * serialized again on retry
+     *
+     * @param entity      the entity
+     * @param contentType the content type, JSON or XML
+     * @return the http
+     */
+    public Http streamEntity(Object entity, String contentType) {
+        header("Content-Type", contentType);
+        if (ContentTypes.APPLICATION_JSON.equals(contentType)) {
+            this.bodyWriter = out -> JsonUtils.writeJSON(entity, out);
+        } else if (isXml(contentType)) {
+            this.bodyWriter = out -> XmlUtils.writeXML(entity, out);
+        } else {
+            throw new IllegalStateException("Unsupported media type is supported. Contributions are welcome");
+        }
+        BodyPipe.Writer writer = bodyWriter;
+        // A new pipe per request: the entity is serialized again for each attempt
+        this.bodyPublisher = BodyPublishers.ofInputStream(() -> BodyPipe.start(writer));
+        this.oneShotBody = false;
+        return this;
+    }
+
+    /**
+     * Compress the entity with gzip while sent (<code>Content-Encoding: gzip</code>), for large entities sent to a
+     * server supporting it
+     *
+     * @return the http
+     */
+    public Http gzip() {
+        this.gzip = true;
+        return this;
     }
 
     /**
@@ -148,40 +348,351 @@ public class Http {
      * @return the http response
      */
     public <T> Response<T> andReturn(Class<T> responseBodType, String contentType) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
-        HttpResponse<String> response = makeCall();
+        // Decoded while received
+        HttpResponse<InputStream> response = makeCall(BodyHandlers.ofInputStream());
+        return new Response<>(readBody(response.body(), responseBodType, contentType), response.statusCode());
+    }
+
+    /**
+     * Send request and decode the elements of the JSON array received one by one, for large arrays
+     *
+     * <pre>
+     *
+     * try (Stream&lt;Image&gt; images = get(uri).andReturnElements(Image.class).getBody()) {
+     *     images.filter(...).forEach(...);
+     * }
+     *
+     * </pre>
+     *
+     * @param elementType the elements type
+     * @param <T>         the elements type
+     * @return the http response, its body must be closed. Never cached
+     */
+    public <T> Response<Stream<T>> andReturnElements(Class<T> elementType) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+        HttpResponse<InputStream> response = makeStreamedCall(BodyHandlers.ofInputStream(), true);
+        return new Response<>(JsonUtils.readJSONElements(response.body(), elementType), response.statusCode());
+    }
+
+    /**
+     * Send request and return the response body as received. Never cached
+     *
+     * @return the http response, its body must be closed
+     */
+    public Response<InputStream> andReturnInputStream() throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+        HttpResponse<InputStream> response = makeStreamedCall(BodyHandlers.ofInputStream(), true);
+        return new Response<>(response.body(), response.statusCode());
+    }
+
+    /**
+     * Send request and write the response body to a file, replaced if it exists. Never cached
+     *
+     * @param file the file
+     * @return the http response
+     */
+    public Response<Path> andReturnFile(Path file) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+        HttpResponse<Path> response = makeStreamedCall(BodyHandlers.ofFile(file), false);
+        return new Response<>(response.body(), response.statusCode());
+    }
+
+    /**
+     * Send request without waiting for the response
+     *
+     * @return the http response, completed exceptionally with a {@link StatusCodeException} on error status
+     */
+    public CompletableFuture<Response<String>> andReturnAsync() {
+        return makeAsyncCall().thenApply(response -> new Response<>(response.body(), response.statusCode()));
+    }
+
+    /**
+     * Send request without waiting for the response
+     *
+     * @param responseBodType the response body type
+     * @param contentType     the content type expected
+     * @param <T>             the type of response
+     * @return the http response, completed exceptionally with a {@link StatusCodeException} on error status
+     */
+    public <T> CompletableFuture<Response<T>> andReturnAsync(Class<T> responseBodType, String contentType) {
+        return makeAsyncCall().thenApply(response -> new Response<>(readBody(response.body(),
+                responseBodType,
+                contentType), response.statusCode()));
+    }
+
+    /**
+     * Send requests asynchronously, at most maxConcurrency at a time. No thread is blocked while waiting for the
+     * responses
+     *
+     * <pre>
+     *
+     * List&lt;CompletableFuture&lt;Response&lt;String&gt;&gt;&gt; responses = Http.sendAll(healthChecks, 20);
+     * CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+     *
+     * </pre>
+     *
+     * @param requests       the requests
+     * @param maxConcurrency the maximum number of requests in flight
+     * @return the response of each request, in the same order. A failed request does not fail the others
+     */
+    public static List<CompletableFuture<Response<String>>> sendAll(List<Http> requests, int maxConcurrency) {
+        return ConcurrencyLimiter.run(requests, maxConcurrency, Http::andReturnAsync);
+    }
+
+    /**
+     * Send requests asynchronously, at most maxConcurrency at a time. No thread is blocked while waiting for the
+     * responses
+     *
+     * @param requests        the requests
+     * @param maxConcurrency  the maximum number of requests in flight
+     * @param responseBodType the response body type
+     * @param contentType     the content type expected
+     * @param <T>             the type of response
+     * @return the response of each request, in the same order. A failed request does not fail the others
+     */
+    public static <T> List<CompletableFuture<Response<T>>> sendAll(List<Http> requests, int maxConcurrency,
+            Class<T> responseBodType, String contentType) {
+        return ConcurrencyLimiter.run(requests,
+                maxConcurrency,
+                request -> request.andReturnAsync(responseBodType, contentType));
+    }
+
+    private static <T> T readBody(InputStream body, Class<T> responseBodType, String contentType) throws IOException {
         if (ContentTypes.APPLICATION_JSON.equals(contentType)) {
-            return new Response<>(JsonUtils.readJSON(response.body(), responseBodType), response.statusCode());
+            return JsonUtils.readJSON(body, responseBodType);
         }
-        if (ContentTypes.APPLICATION_XML.equals(contentType) || ContentTypes.TEXT_HTML.equals(contentType) || ContentTypes.APPLICATION_XHTML.equals(
-                contentType)) {
-            return new Response<>(XmlUtils.readXML(response.body(), responseBodType), response.statusCode());
+        if (isXml(contentType)) {
+            return XmlUtils.readXML(body, responseBodType);
         }
+        body.close();
         throw new IllegalStateException("Unsupported media type is supported. Contributions are welcome");
     }
 
+    private static <T> T readBody(String body, Class<T> responseBodType, String contentType) {
+        if (ContentTypes.APPLICATION_JSON.equals(contentType)) {
+            return JsonUtils.readJSON(body, responseBodType);
+        }
+        if (isXml(contentType)) {
+            return XmlUtils.readXML(body, responseBodType);
+        }
+        throw new IllegalStateException("Unsupported media type is supported. Contributions are welcome");
+    }
+
+    private static boolean isXml(String contentType) {
+        return ContentTypes.APPLICATION_XML.equals(contentType) || ContentTypes.TEXT_HTML.equals(contentType) || ContentTypes.APPLICATION_XHTML.equals(
+                contentType);
+    }
+
     /**
      * Perform call and return the {@link HttpResponse}
      *
      * @return
      */
     private HttpResponse<String> makeCall() throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
-        HttpClient client = HttpClient.newHttpClient();
+        return makeCall(BodyHandlers.ofString());
+    }
 
+    /**
+     * Perform call and return the {@link HttpResponse}, the body of error responses is read as string
+     */
+    private <B> HttpResponse<B> makeCall(BodyHandler<B> bodyHandler) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+        return makeCall(bodyHandler, true);
+    }
+
+    /**
+     * @param hedgeable false if the body cannot be received twice
+     */
+    private <B> HttpResponse<B> makeCall(BodyHandler<B> bodyHandler, boolean hedgeable) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+        HttpCache httpCache = cache == null ? defaultCache : cache;
+        if (httpCache != null && "GET".equals(method)) {
+            return makeCachedCall(httpCache, bodyHandler, hedgeable);
+        }
+        return makeUncachedCall(bodyHandler, hedgeable);
+    }
+
+    /**
+     * Bypass the cache: it would keep the whole body in memory
+     *
+     * @param hedgeable false if the body cannot be received twice
+     */
+    private <B> HttpResponse<B> makeStreamedCall(BodyHandler<B> bodyHandler, boolean hedgeable) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+        return makeUncachedCall(bodyHandler, hedgeable);
+    }
+
+    private <B> HttpResponse<B> makeUncachedCall(BodyHandler<B> bodyHandler, boolean hedgeable) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+        if (retryPolicy == null) {
+            return checkStatus(httpClient().send(buildRequest(null), responseHandler(bodyHandler)));
+        }
+        // Fails now on invalid uri
+        buildRequest(null);
+        CompletableFuture<HttpResponse<B>> call = retryingCall(bodyHandler, hedgeable).start();
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            call.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof StatusCodeException) {
+                throw (StatusCodeException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Serve a fresh cached response, else revalidate the cached response, else call
+     */
+    private <B> HttpResponse<B> makeCachedCall(HttpCache httpCache, BodyHandler<B> bodyHandler, boolean hedgeable) throws StatusCodeException, IOException, InterruptedException, URISyntaxException {
+        String key = HttpCache.key(uri, headers);
+        CacheEntry cached = httpCache.get(key);
+        if (cached != null && cached.isFresh()) {
+            return cached.toResponse(bodyHandler, buildRequest(null));
+        }
+        Http call = new Http(method, uri);
+        headers.forEach((name, values) -> values.forEach(value -> call.header(name, value)));
+        call.client = client;
+        call.retryPolicy = retryPolicy;
+        if (cached != null) {
+            cached.getConditionalHeaders().forEach(call::header);
+        }
+        HttpResponse<byte[]> response = call.makeUncachedCall(BodyHandlers.ofByteArray(), hedgeable);
+        if (response.statusCode() == 304 && cached != null) {
+            CacheEntry revalidated = cached.revalidated(response.headers());
+            httpCache.put(key, revalidated);
+            return revalidated.toResponse(bodyHandler, response.request());
+        }
+        CacheEntry received = CacheEntry.of(uri, response);
+        if (received.isCacheable()) {
+            httpCache.put(key, received);
+        }
+        return received.toResponse(bodyHandler, response.request());
+    }
+
+    private <B> RetryingCall<B> retryingCall(BodyHandler<B> bodyHandler, boolean hedgeable) {
+        boolean safe = "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+        boolean idempotent = safe || "PUT".equals(method) || "DELETE".equals(method);
+        return new RetryingCall<>(httpClient(),
+                retryPolicy,
+                this::buildRequestUnchecked,
+                bodyHandler,
+                idempotent,
+                hedgeable && safe,
+                !oneShotBody);
+    }
+
+    /**
+     * @return a body handler reading the body of error responses as string
+     */
+    @SuppressWarnings("unchecked")
+    static <B> BodyHandler<B> withErrorBody(BodyHandler<B> bodyHandler) {
+        return responseInfo -> {
+            if (responseInfo.statusCode() >= 400) {
+                return (BodySubscriber<B>) (BodySubscriber<?>) BodyHandlers.ofString().apply(responseInfo);
+            }
+            return bodyHandler.apply(responseInfo);
+        };
+    }
+
+    /**
+     * @return a body handler decoding the compressed responses and reading the body of error responses as string
+     */
+    static <B> BodyHandler<B> responseHandler(BodyHandler<B> bodyHandler) {
+        return ContentDecoding.decoding(withErrorBody(bodyHandler));
+    }
+
+    /**
+     * @param response a response received with {@link #withErrorBody(BodyHandler)}
+     * @return the response
+     * @throws StatusCodeException on error status
+     */
+    static <B> HttpResponse<B> checkStatus(HttpResponse<B> response) throws StatusCodeException {
+        if (response.statusCode() >= 400) {
+            throw new StatusCodeException(response.statusCode(), (String) response.body(), response.headers());
+        }
+        return response;
+    }
+
+    /**
+     * Perform call asynchronously and return the {@link HttpResponse}
+     */
+    private CompletableFuture<HttpResponse<String>> makeAsyncCall() {
+        HttpRequest request;
+        try {
+            request = buildRequest(null);
+        } catch (URISyntaxException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (retryPolicy != null) {
+            return retryingCall(BodyHandlers.ofString(), true).start();
+        }
+        return httpClient().sendAsync(request, ContentDecoding.decoding(BodyHandlers.ofString())).thenCompose(response -> {
+            if (response.statusCode() >= 400) {
+                return CompletableFuture.failedFuture(new StatusCodeException(response.statusCode(),
+                        response.body(),
+                        response.headers()));
+            }
+            return CompletableFuture.completedFuture(response);
+        });
+    }
+
+    private HttpClient httpClient() {
+        return client == null ? getDefaultClient() : client;
+    }
+
+    /**
+     * @param timeout the request timeout, none if null
+     */
+    private HttpRequest buildRequest(Duration timeout) throws URISyntaxException {
         HttpRequest.Builder builder = HttpRequest
                 .newBuilder()
                 .uri(new URI(uri))
-                .method(method, Optional.ofNullable(bodyPublisher).orElse(BodyPublishers.noBody()));
+                .method(method, Optional.ofNullable(bodyPublisher()).orElse(BodyPublishers.noBody()));
+        if (timeout != null) {
+            builder.timeout(timeout);
+        }
+        if (gzip && bodyWriter != null) {
+            builder.header("Content-Encoding", "gzip");
+        }
+        if (headers.keySet().stream().noneMatch("Accept-Encoding"::equalsIgnoreCase)) {
+            builder.header("Accept-Encoding", ContentDecoding.ACCEPT_ENCODING);
+        }
 
         for (Map.Entry<String, List<String>> multiValueHeaders : headers.entrySet()) {
             for (String header : multiValueHeaders.getValue()) {
                 builder = builder.header(multiValueHeaders.getKey(), header);
             }
         }
-        HttpResponse<String> response = client.send(builder.build(), BodyHandlers.ofString());
-        if (response.statusCode() >= 400) {
-            throw new StatusCodeException(response.statusCode(), response.body());
+        return builder.build();
+    }
+
+    /**
+     * @return the body, compressed while sent if gzip. Written again for each request
+     */
+    private HttpRequest.BodyPublisher bodyPublisher() {
+        if (!gzip || bodyWriter == null) {
+            return bodyPublisher;
         }
-        return response;
+        BodyPipe.Writer writer = bodyWriter;
+        return BodyPublishers.ofInputStream(() -> BodyPipe.start(out -> {
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+            writer.write(compressed);
+            compressed.finish();
+        }));
+    }
+
+    /**
+     * Only called once the uri is known to be valid
+     */
+    @SneakyThrows
+    private HttpRequest buildRequestUnchecked(Duration timeout) {
+        return buildRequest(timeout);
     }
 
     @Getter
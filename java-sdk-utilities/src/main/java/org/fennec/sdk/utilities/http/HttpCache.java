@@ -0,0 +1,249 @@
+package org.fennec.sdk.utilities.http;
+
+import lombok.Getter;
+import org.fennec.sdk.utilities.data.JsonUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A cache of the responses of GET calls, revalidated with <code>If-None-Match</code> and
+ * <code>If-Modified-Since</code> once stale (<code>Cache-Control: max-age</code>, revalidated on each call by default).
+ * <br>
+ * The responses are kept in memory and, if a directory is set, on disk: the directory can be shared by the pipelines
+ * running on the same node. Both are bounded in size, the least recently used responses are evicted first.<br>
+ * Private responses, responses to requests with an Authorization header (unless public) and streamed responses are
+ * not cached.
+ */
+public class HttpCache {
+
+    public static final long DEFAULT_MAX_MEMORY_BYTES = 16L * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_DISK_BYTES = 512L * 1024 * 1024;
+
+    private static final String META = ".json";
+
+    private static final String BODY = ".body";
+
+    /**
+     * The on disk cache, null if in memory only
+     */
+    @Getter
+    private final Path directory;
+
+    private final long maxMemoryBytes;
+
+    private final long maxDiskBytes;
+
+    /**
+     * Access ordered. Guarded by itself
+     */
+    private final LinkedHashMap<String, CacheEntry> memory = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long memoryBytes;
+
+    /**
+     * @param directory      the directory of the on disk cache, in memory only if null
+     * @param maxMemoryBytes the maximum size of the bodies kept in memory
+     * @param maxDiskBytes   the maximum size of the bodies kept on disk
+     */
+    public HttpCache(Path directory, long maxMemoryBytes, long maxDiskBytes) {
+        this.directory = directory;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    /**
+     * @return a cache in memory only, with the default size
+     */
+    public static HttpCache inMemory() {
+        return new HttpCache(null, DEFAULT_MAX_MEMORY_BYTES, 0);
+    }
+
+    /**
+     * @param directory the directory of the on disk cache
+     * @return a cache in memory and on disk, with the default sizes
+     */
+    public static HttpCache onDisk(Path directory) {
+        return new HttpCache(directory, DEFAULT_MAX_MEMORY_BYTES, DEFAULT_MAX_DISK_BYTES);
+    }
+
+    /**
+     * Remove every response
+     */
+    public void clear() throws IOException {
+        synchronized (memory) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+        if (directory != null && Files.isDirectory(directory)) {
+            for (Path file : list()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * @param uri     the request uri
+     * @param headers the request headers
+     * @return the key of the request: the responses depend on the request headers (Accept, Authorization...)
+     */
+    static String key(String uri, Map<String, List<String>> headers) {
+        StringBuilder request = new StringBuilder(uri);
+        new TreeMap<>(headers).forEach((name, values) -> request
+                .append('\n')
+                .append(name.toLowerCase(Locale.ROOT))
+                .append(':')
+                .append(values));
+        try {
+            byte[] hash = MessageDigest
+                    .getInstance("SHA-256")
+                    .digest(request.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the response, from memory or else from disk, null if none
+     */
+    CacheEntry get(String key) {
+        synchronized (memory) {
+            CacheEntry entry = memory.get(key);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        if (directory == null) {
+            return null;
+        }
+        try {
+            Path meta = directory.resolve(key + META);
+            Path body = directory.resolve(key + BODY);
+            if (!Files.exists(meta) || !Files.exists(body)) {
+                return null;
+            }
+            CacheEntry entry = JsonUtils.readJSON(meta.toFile(), CacheEntry.class);
+            entry.setBody(Files.readAllBytes(body));
+            // The modification time is the last access for the eviction
+            Files.setLastModifiedTime(meta, FileTime.fromMillis(System.currentTimeMillis()));
+            putInMemory(key, entry);
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            // Written by another pipeline meanwhile, or corrupted: a miss
+            return null;
+        }
+    }
+
+    /**
+     * Keep a response, replacing the previous one
+     */
+    void put(String key, CacheEntry entry) {
+        putInMemory(key, entry);
+        if (directory == null || entry.getBody().length > maxDiskBytes) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            // Written then moved: the other pipelines never read a partial file
+            writeAtomically(directory.resolve(key + BODY), entry.getBody());
+            writeAtomically(directory.resolve(key + META), JsonUtils.writeJSON(entry).getBytes(StandardCharsets.UTF_8));
+            evictFromDisk();
+        } catch (IOException e) {
+            // The cache is only an optimization
+        }
+    }
+
+    private void putInMemory(String key, CacheEntry entry) {
+        if (entry.getBody().length > maxMemoryBytes) {
+            return;
+        }
+        synchronized (memory) {
+            CacheEntry previous = memory.put(key, entry);
+            memoryBytes += entry.getBody().length - (previous == null ? 0 : previous.getBody().length);
+            Iterator<CacheEntry> eldest = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+                memoryBytes -= eldest.next().getBody().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    private void writeAtomically(Path file, byte[] content) throws IOException {
+        Path temporary = Files.createTempFile(directory, "tmp-", ".tmp");
+        try {
+            Files.write(temporary, content);
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Remove the least recently used responses until the bodies fit on disk
+     */
+    private void evictFromDisk() throws IOException {
+        List<Path> metas = new ArrayList<>();
+        long total = 0;
+        for (Path file : list()) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(META)) {
+                metas.add(file);
+            } else if (name.endsWith(BODY)) {
+                total += sizeOf(file);
+            }
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+        metas.sort(Comparator.comparingLong(HttpCache::lastModified));
+        for (Path meta : metas) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            String name = meta.getFileName().toString();
+            Path body = meta.resolveSibling(name.substring(0, name.length() - META.length()) + BODY);
+            total -= sizeOf(body);
+            Files.deleteIfExists(meta);
+            Files.deleteIfExists(body);
+        }
+    }
+
+    private List<Path> list() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
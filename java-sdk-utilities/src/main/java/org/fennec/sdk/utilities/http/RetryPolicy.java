@@ -0,0 +1,196 @@
+package org.fennec.sdk.utilities.http;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How a {@link Http} call is retried: the retried status codes and exceptions, the exponential backoff with jitter
+ * between attempts and the overall deadline. The exceptions of non idempotent calls (POST, PATCH) are only retried on
+ * demand: the server may have processed the request. A call whose body can only be sent once is never retried.<br>
+ * Idempotent calls (GET, HEAD, OPTIONS) can be hedged: a second identical request is sent if the first one did not
+ * complete after a fixed delay, or after a percentile of the latencies observed with this policy, and the first
+ * response is kept.
+ *
+ * <pre>
+ *
+ * RetryPolicy policy = RetryPolicy.builder().maxAttempts(5).deadline(Duration.ofMinutes(1)).build();
+ * get(uri).retry(policy).andReturn();
+ *
+ * </pre>
+ */
+@Getter
+@Builder(toBuilder = true)
+public class RetryPolicy {
+
+    /**
+     * The number of latencies kept to compute the hedging percentile
+     */
+    private static final int LATENCY_SAMPLES = 128;
+
+    /**
+     * The number of latencies needed before hedging by percentile
+     */
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    /**
+     * The maximum number of attempts, the first one included
+     */
+    @Builder.Default
+    private final int maxAttempts = 3;
+
+    /**
+     * The delay before the first retry
+     */
+    @Builder.Default
+    private final Duration initialBackoff = Duration.ofMillis(200);
+
+    /**
+     * The maximum delay between two attempts
+     */
+    @Builder.Default
+    private final Duration maxBackoff = Duration.ofSeconds(10);
+
+    /**
+     * The factor applied to the delay after each attempt
+     */
+    @Builder.Default
+    private final double multiplier = 2;
+
+    /**
+     * The random part of each delay, between 0 (none) and 1 (anywhere between 0 and the delay)
+     */
+    @Builder.Default
+    private final double jitter = 0.5;
+
+    /**
+     * The status codes retried
+     */
+    @Builder.Default
+    private final Set<Integer> retryStatusCodes = Set.of(408, 429, 500, 502, 503, 504);
+
+    /**
+     * The exceptions retried, their subclasses included. Status codes are only retried by {@link #retryStatusCodes}
+     */
+    @Builder.Default
+    private final Set<Class<? extends Exception>> retryExceptions = Set.of(IOException.class);
+
+    /**
+     * True to retry the exceptions of non idempotent calls (POST, PATCH) too
+     */
+    private final boolean retryNonIdempotent;
+
+    /**
+     * The maximum duration of the call, all attempts included. None if null
+     */
+    private final Duration deadline;
+
+    /**
+     * The delay after which an idempotent call is hedged, when no percentile is set or not enough latencies are
+     * known yet. Not hedged if null
+     */
+    private final Duration hedgeDelay;
+
+    /**
+     * The percentile of the observed latencies after which an idempotent call is hedged (0.95...). Disabled if 0
+     */
+    private final double hedgePercentile;
+
+    /**
+     * The latencies observed with this policy
+     */
+    @Getter(AccessLevel.NONE)
+    private final Latencies latencies = new Latencies();
+
+    /**
+     * @return a policy with the default values: 3 attempts, from 200 ms to 10 s between attempts
+     */
+    public static RetryPolicy defaults() {
+        return builder().build();
+    }
+
+    /**
+     * @param error      the error of an attempt
+     * @param idempotent true if the call is idempotent (GET, HEAD, OPTIONS, PUT, DELETE)
+     * @return true if it can be retried
+     */
+    public boolean isRetryable(Throwable error, boolean idempotent) {
+        if (error instanceof StatusCodeException) {
+            return retryStatusCodes.contains(((StatusCodeException) error).getStatusCode());
+        }
+        return (idempotent || retryNonIdempotent) && retryExceptions.stream().anyMatch(type -> type.isInstance(error));
+    }
+
+    /**
+     * @param failedAttempts the number of attempts failed so far
+     * @param error          the error of the last attempt
+     * @return the delay before the next attempt in milliseconds, at least the Retry-After of the response
+     */
+    public long backoffMillis(int failedAttempts, Throwable error) {
+        double delay = Math.min(maxBackoff.toMillis(),
+                initialBackoff.toMillis() * Math.pow(multiplier, failedAttempts - 1));
+        long backoff = (long) (delay * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+        return Math.max(backoff, retryAfterMillis(error));
+    }
+
+    /**
+     * @return the delay after which a call is hedged, if hedged
+     */
+    public Optional<Duration> currentHedgeDelay() {
+        if (hedgePercentile > 0) {
+            long[] samples = latencies.samples();
+            if (samples.length >= MIN_LATENCY_SAMPLES) {
+                Arrays.sort(samples);
+                int index = Math.min(samples.length - 1, (int) Math.ceil(hedgePercentile * samples.length) - 1);
+                return Optional.of(Duration.ofNanos(samples[Math.max(0, index)]));
+            }
+        }
+        return Optional.ofNullable(hedgeDelay);
+    }
+
+    /**
+     * @param nanos the latency of a successful request
+     */
+    void recordLatency(long nanos) {
+        latencies.add(nanos);
+    }
+
+    /**
+     * The last latencies in nanoseconds, a ring
+     */
+    private static class Latencies {
+
+        private final long[] ring = new long[LATENCY_SAMPLES];
+
+        private long count;
+
+        synchronized void add(long nanos) {
+            ring[(int) (count++ % LATENCY_SAMPLES)] = nanos;
+        }
+
+        synchronized long[] samples() {
+            return Arrays.copyOf(ring, (int) Math.min(count, LATENCY_SAMPLES));
+        }
+    }
+
+    private static long retryAfterMillis(Throwable error) {
+        if (!(error instanceof StatusCodeException) || ((StatusCodeException) error).getHeaders() == null) {
+            return 0;
+        }
+        // Only the delay in seconds form, the date form is rarely used by APIs
+        return ((StatusCodeException) error)
+                .getHeaders()
+                .firstValue("Retry-After")
+                .filter(value -> value.matches("\\d+"))
+                .map(value -> TimeUnit.SECONDS.toMillis(Long.parseLong(value)))
+                .orElse(0L);
+    }
+}
@@ -0,0 +1,189 @@
+package org.fennec.sdk.utilities.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A call made of attempts following a {@link RetryPolicy}, each attempt possibly hedged. No thread waits between
+ * attempts
+ *
+ * @param <B> the type of body
+ */
+class RetryingCall<B> {
+
+    private final HttpClient client;
+
+    private final RetryPolicy policy;
+
+    /**
+     * Build the request of an attempt from its timeout, null if none
+     */
+    private final Function<Duration, HttpRequest> requestFactory;
+
+    private final BodyHandler<B> bodyHandler;
+
+    private final boolean idempotent;
+
+    private final boolean hedgeable;
+
+    private final boolean repeatable;
+
+    private final CompletableFuture<HttpResponse<B>> result = new CompletableFuture<>();
+
+    private long deadlineNanos;
+
+    /**
+     * @param client         the client
+     * @param policy         the policy
+     * @param requestFactory build the request of an attempt from its timeout, null if none
+     * @param bodyHandler    the body handler of the successful responses
+     * @param idempotent     true if the call is idempotent: its exceptions can be retried
+     * @param hedgeable      true if the call can be hedged: idempotent, and its body can be received twice
+     * @param repeatable     false if the request body can only be sent once: the call is neither retried nor hedged
+     */
+    RetryingCall(HttpClient client, RetryPolicy policy, Function<Duration, HttpRequest> requestFactory,
+            BodyHandler<B> bodyHandler, boolean idempotent, boolean hedgeable, boolean repeatable) {
+        this.client = client;
+        this.policy = policy;
+        this.requestFactory = requestFactory;
+        this.bodyHandler = bodyHandler;
+        this.idempotent = idempotent;
+        this.hedgeable = hedgeable && repeatable;
+        this.repeatable = repeatable;
+    }
+
+    /**
+     * @return the response, completed exceptionally by the error of the last attempt. Cancelling it stops the
+     * attempts
+     */
+    CompletableFuture<HttpResponse<B>> start() {
+        Duration deadline = policy.getDeadline();
+        deadlineNanos = deadline == null ? Long.MAX_VALUE : System.nanoTime() + deadline.toNanos();
+        attempt(1);
+        return result;
+    }
+
+    private void attempt(int number) {
+        if (result.isDone()) {
+            // Cancelled
+            return;
+        }
+        Duration timeout = null;
+        if (deadlineNanos != Long.MAX_VALUE) {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) {
+                result.completeExceptionally(new HttpTimeoutException("Deadline exceeded"));
+                return;
+            }
+            timeout = Duration.ofNanos(remaining);
+        }
+        HttpRequest request;
+        try {
+            request = requestFactory.apply(timeout);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        sendHedged(request).whenComplete((response, error) -> {
+            if (error == null) {
+                result.complete(response);
+                return;
+            }
+            Throwable failure = unwrap(error);
+            if (!repeatable || number >= policy.getMaxAttempts() || !policy.isRetryable(failure, idempotent)) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            long delay = policy.backoffMillis(number, failure);
+            if (deadlineNanos != Long.MAX_VALUE
+                    && deadlineNanos - System.nanoTime() <= TimeUnit.MILLISECONDS.toNanos(delay)) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> attempt(number + 1));
+        });
+    }
+
+    private CompletableFuture<HttpResponse<B>> sendHedged(HttpRequest request) {
+        Optional<Duration> hedgeDelay = hedgeable ? policy.currentHedgeDelay() : Optional.empty();
+        if (hedgeDelay.isEmpty()) {
+            return send(request);
+        }
+        Hedge hedge = new Hedge();
+        hedge.add(send(request));
+        CompletableFuture.delayedExecutor(hedgeDelay.get().toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (!hedge.attempt.isDone() && !result.isDone()) {
+                hedge.add(send(request));
+            }
+        });
+        return hedge.attempt;
+    }
+
+    private CompletableFuture<HttpResponse<B>> send(HttpRequest request) {
+        long start = System.nanoTime();
+        return client.sendAsync(request, Http.responseHandler(bodyHandler)).thenCompose(response -> {
+            try {
+                HttpResponse<B> checked = Http.checkStatus(response);
+                policy.recordLatency(System.nanoTime() - start);
+                return CompletableFuture.completedFuture(checked);
+            } catch (StatusCodeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * The requests of an attempt: the first response is kept, the attempt fails when every request failed
+     */
+    private class Hedge {
+
+        private final CompletableFuture<HttpResponse<B>> attempt = new CompletableFuture<>();
+
+        private int pending;
+
+        void add(CompletableFuture<HttpResponse<B>> request) {
+            synchronized (this) {
+                pending++;
+            }
+            request.whenComplete((response, error) -> {
+                boolean last;
+                synchronized (this) {
+                    last = --pending == 0;
+                }
+                if (error == null) {
+                    if (!attempt.complete(response)) {
+                        // The other request won: release its connection
+                        close(response.body());
+                    }
+                } else if (last) {
+                    attempt.completeExceptionally(unwrap(error));
+                }
+            });
+        }
+    }
+
+    private static void close(Object body) {
+        if (body instanceof Closeable) {
+            try {
+                ((Closeable) body).close();
+            } catch (IOException e) {
+                // DO NOTHING
+            }
+        }
+    }
+}
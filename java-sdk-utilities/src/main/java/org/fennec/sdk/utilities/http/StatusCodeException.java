@@ -2,6 +2,8 @@ package org.fennec.sdk.utilities.http;
 
 import lombok.Getter;
 
+import java.net.http.HttpHeaders;
+
 @Getter
 public class StatusCodeException extends Exception {
 
@@ -11,10 +13,20 @@ public class StatusCodeException extends Exception {
 
     private String payload;
 
+    /**
+     * The response headers, null if unknown
+     */
+    private transient HttpHeaders headers;
+
     public StatusCodeException(int statusCode, String payload) {
+        this(statusCode, payload, null);
+    }
+
+    public StatusCodeException(int statusCode, String payload, HttpHeaders headers) {
         super("Bad status code received: " + statusCode);
         this.statusCode = statusCode;
         this.payload = payload;
+        this.headers = headers;
     }
 
 }
@@ -4,13 +4,23 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.SneakyThrows;
 import org.fennec.sdk.utilities.data.JsonUtils;
 import org.fennec.sdk.utilities.data.PropertiesUtils;
 import org.fennec.sdk.utilities.data.XmlUtils;
 import org.fennec.sdk.utilities.data.YamlUtils;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
@@ -26,6 +36,41 @@ public class TestDataUtils {
         assertThat(JsonUtils.writeJSON(translate), equalTo("{\"hello\":{\"french\":\"bonjour\",\"italian\":\"buongiorno\",\"spanish\":\"buenos dias\"},\"goodbye\":{\"french\":\"au revoir\",\"italian\":\"arrivederci\",\"spanish\":\"adios\"}}"));
     }
 
+    @Test
+    @SneakyThrows
+    void testJsonInputStream() {
+        validate(JsonUtils.readJSON(new FileInputStream("src/test/resources/data/test.json"), Translate.class));
+
+        String array = "[{\"hello\":{\"french\":\"bonjour\"}},{\"hello\":{\"french\":\"salut\"}}]";
+        try (Stream<Translate> elements = JsonUtils.readJSONElements(new ByteArrayInputStream(array.getBytes(
+                StandardCharsets.UTF_8)), Translate.class)) {
+            assertThat(elements.map(t -> t.hello.french).collect(Collectors.toList()),
+                    equalTo(List.of("bonjour", "salut")));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testJsonPointerElements() {
+        String sbom = "{\"bomFormat\":\"CycloneDX\",\"metadata\":{\"components\":[{\"hello\":{}}]},"
+                + "\"components\":[{\"hello\":{\"french\":\"bonjour\"}},{\"hello\":{\"french\":\"salut\"}}]}";
+        try (Stream<Translate> elements = JsonUtils.readJSONElements(inputStream(sbom),
+                "/components",
+                Translate.class)) {
+            assertThat(elements.map(t -> t.hello.french).collect(Collectors.toList()),
+                    equalTo(List.of("bonjour", "salut")));
+        }
+
+        // Read lazily: the rest of the document is not parsed
+        try (Stream<Translate> elements = JsonUtils.readJSONElements(inputStream(
+                "[{\"hello\":{\"french\":\"bonjour\"}},{\"hello\":"), "", Translate.class)) {
+            assertThat(elements.findFirst().get().hello.french, equalTo("bonjour"));
+        }
+
+        Assertions.assertThrows(IOException.class,
+                () -> JsonUtils.readJSONElements(inputStream(sbom), "/bomFormat", Translate.class));
+    }
+
     @Test
     void testYaml() {
         Translate translate = YamlUtils.readYAML(new File("src/test/resources/data/test.yaml"), Translate.class);
@@ -34,6 +79,26 @@ public class TestDataUtils {
         assertThat(YamlUtils.writeYAML(translate), equalTo("---\nhello:\n  french: \"bonjour\"\n  italian: \"buongiorno\"\n  spanish: \"buenos dias\"\ngoodbye:\n  french: \"au revoir\"\n  italian: \"arrivederci\"\n  spanish: \"adios\"\n"));
     }
 
+    @Test
+    @SneakyThrows
+    void testYamlDocuments() {
+        String manifests = "hello:\n  french: bonjour\n---\nhello:\n  french: salut\n"
+                + "---\n- hello:\n    french: coucou\n";
+        try (Stream<JsonNode> documents = YamlUtils.readYAMLDocuments(inputStream(manifests), JsonNode.class)) {
+            List<JsonNode> read = documents.collect(Collectors.toList());
+            assertThat(read.size(), equalTo(3));
+            assertThat(read.get(1).get("hello").get("french").asText(), equalTo("salut"));
+            // A sequence document is a single document
+            assertThat(read.get(2).get(0).get("hello").get("french").asText(), equalTo("coucou"));
+        }
+
+        String list = "kind: List\nitems:\n- hello:\n    french: bonjour\n- hello:\n    french: salut\n";
+        try (Stream<Translate> elements = YamlUtils.readYAMLElements(inputStream(list), "/items", Translate.class)) {
+            assertThat(elements.map(t -> t.hello.french).collect(Collectors.toList()),
+                    equalTo(List.of("bonjour", "salut")));
+        }
+    }
+
     @Test
     void testProperties() {
         Translate translate = PropertiesUtils.readPROPERTIES(new File("src/test/resources/data/test.properties"),
@@ -51,6 +116,21 @@ public class TestDataUtils {
         assertThat(XmlUtils.writeXML(translate), equalTo("<Translate><hello><french>bonjour</french><italian>buongiorno</italian><spanish>buenos dias</spanish><japanese/></hello><goodbye><french>au revoir</french><italian>arrivederci</italian><spanish>adios</spanish><japanese/></goodbye><thankYou/></Translate>"));
     }
 
+    @Test
+    @SneakyThrows
+    void testXmlElements() {
+        String xml = "<Translations><Translate><hello><french>bonjour</french></hello></Translate>"
+                + "<Translate><hello><french>salut</french></hello></Translate></Translations>";
+        try (Stream<Translate> elements = XmlUtils.readXMLElements(inputStream(xml), Translate.class)) {
+            assertThat(elements.map(t -> t.hello.french).collect(Collectors.toList()),
+                    equalTo(List.of("bonjour", "salut")));
+        }
+    }
+
+    private static InputStream inputStream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
     private void validate(JsonNode translate) {
         assertThat(translate.get("hello").get("french").asText(), equalTo("bonjour"));
         assertThat(translate.get("hello").get("italian").asText(), equalTo("buongiorno"));
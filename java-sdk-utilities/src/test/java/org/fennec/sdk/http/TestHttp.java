@@ -4,9 +4,15 @@ import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.sun.net.httpserver.HttpServer;
 import lombok.*;
 import org.apache.commons.io.FileUtils;
 import org.fennec.sdk.utilities.http.ContentTypes;
+import org.fennec.sdk.utilities.http.DownloadResult;
+import org.fennec.sdk.utilities.http.HttpCache;
+import org.fennec.sdk.utilities.http.RetryPolicy;
 import org.fennec.sdk.utilities.http.Http;
 import org.fennec.sdk.utilities.http.StatusCodeException;
 import org.junit.jupiter.api.Assertions;
@@ -14,17 +20,42 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.fennec.sdk.utilities.http.Http.*;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 class TestHttp {
 
-    private static WireMockServer wireMockServer = new WireMockServer(new WireMockConfiguration().notifier(new ConsoleNotifier(
-            true)));
+    // The compressed responses are stubbed: the server does not compress them itself
+    private static WireMockServer wireMockServer = new WireMockServer(new WireMockConfiguration()
+            .gzipDisabled(true)
+            .notifier(new ConsoleNotifier(true)));
 
     @BeforeAll
     static void startWiremockServer() {
@@ -174,6 +205,660 @@ class TestHttp {
         assertThat(FileUtils.readFileToString(destination), equalTo("Hello John"));
     }
 
+    @Test
+    @SneakyThrows
+    void testSharedClient() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/test")).willReturn(WireMock.aResponse().withStatus(200)));
+
+        HttpClient client = Http.getDefaultClient();
+        get("http://localhost:8080/test").andReturn();
+        get("http://localhost:8080/test").andReturn();
+        assertThat(Http.getDefaultClient() == client, equalTo(true));
+
+        HttpClient custom = Http.clientBuilder().build();
+        try {
+            Http.setDefaultClient(custom);
+            assertThat(Http.getDefaultClient() == custom, equalTo(true));
+        } finally {
+            Http.setDefaultClient(null);
+        }
+        assertThat(Http.getDefaultClient() == custom, equalTo(false));
+    }
+
+    @Test
+    @SneakyThrows
+    void testCustomClient() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/redirect"))
+                .willReturn(WireMock.aResponse().withStatus(302).withHeader("Location", "/test")));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/test"))
+                .willReturn(WireMock.aResponse().withStatus(200).withBody("Hello John")));
+
+        assertThat(get("http://localhost:8080/redirect").andReturn().getStatus(), equalTo(302));
+
+        HttpClient client = Http.clientBuilder().followRedirects(HttpClient.Redirect.NORMAL).build();
+        Response<String> response = get("http://localhost:8080/redirect").client(client).andReturn();
+        assertThat(response.getStatus(), equalTo(200));
+        assertThat(response.getBody(), equalTo("Hello John"));
+    }
+
+    @Test
+    @SneakyThrows
+    void testAsync() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/test"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", ContentTypes.APPLICATION_JSON)
+                        .withBody("{\"hello\":\"John\"}")));
+
+        CompletableFuture<Response<Hello>> future = get("http://localhost:8080/test").andReturnAsync(Hello.class,
+                ContentTypes.APPLICATION_JSON);
+
+        assertThat(future.get().getStatus(), equalTo(200));
+        assertThat(future.get().getBody(), equalTo(new Hello("John")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testAsyncStatus404() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/test")).willReturn(WireMock.aResponse().withBody("Not found").withStatus(404)));
+
+        try {
+            get("http://localhost:8080/test").andReturnAsync().get();
+            Assertions.fail("Exception must have been raised");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(StatusCodeException.class));
+            assertThat(((StatusCodeException) e.getCause()).getStatusCode(), equalTo(404));
+            assertThat(((StatusCodeException) e.getCause()).getPayload(), equalTo("Not found"));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testSendAll() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/pod/.*"))
+                .willReturn(WireMock.aResponse().withStatus(200).withBody("UP").withFixedDelay(100)));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/pod/3"))
+                .willReturn(WireMock.aResponse().withStatus(503).withBody("DOWN").withFixedDelay(100)));
+
+        List<Http> requests = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            requests.add(get("http://localhost:8080/pod/" + i));
+        }
+        long start = System.currentTimeMillis();
+        List<CompletableFuture<Response<String>>> responses = Http.sendAll(requests, 2);
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+
+        // 3 rounds of 2 requests
+        assertThat(System.currentTimeMillis() - start >= 300, equalTo(true));
+        WireMock.verify(6, WireMock.getRequestedFor(WireMock.urlPathMatching("/pod/.*")));
+        for (int i = 0; i < 6; i++) {
+            if (i == 3) {
+                assertThat(responses.get(i).isCompletedExceptionally(), equalTo(true));
+            } else {
+                assertThat(responses.get(i).get().getBody(), equalTo("UP"));
+            }
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testPostFile() {
+
+        WireMock.stubFor(WireMock.post("/upload")
+                .withHeader("Content-Type", WireMock.equalTo(ContentTypes.TEXT_PLAIN))
+                .withRequestBody(WireMock.equalTo("Name: John"))
+                .willReturn(WireMock.aResponse().withStatus(201)));
+
+        Path file = Files.createTempFile("fennec-upload", ".txt");
+        Files.writeString(file, "Name: John");
+        assertThat(post("http://localhost:8080/upload").entity(file, ContentTypes.TEXT_PLAIN).andReturn().getStatus(),
+                equalTo(201));
+        Files.delete(file);
+
+        InputStream inputStream = new ByteArrayInputStream("Name: John".getBytes(StandardCharsets.UTF_8));
+        assertThat(post("http://localhost:8080/upload")
+                .entity(inputStream, ContentTypes.TEXT_PLAIN)
+                .andReturn()
+                .getStatus(), equalTo(201));
+    }
+
+    @Test
+    @SneakyThrows
+    void testPostStreamedJson() {
+
+        WireMock.stubFor(WireMock.post("/test")
+                .withHeader("Content-Type", WireMock.equalTo(ContentTypes.APPLICATION_JSON))
+                .withRequestBody(WireMock.equalToJson("{\"name\":\"John\"}"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(201)
+                        .withHeader("Content-Type", ContentTypes.APPLICATION_JSON)
+                        .withBody("{\"hello\":\"John\"}")));
+
+        Response<Hello> response = post("http://localhost:8080/test")
+                .streamEntity(new Name("John"), ContentTypes.APPLICATION_JSON)
+                .andReturn(Hello.class, ContentTypes.APPLICATION_JSON);
+
+        assertThat(response.getStatus(), equalTo(201));
+        assertThat(response.getBody(), equalTo(new Hello("John")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testPostGzip() {
+
+        // The request body is decompressed by the server
+        WireMock.stubFor(WireMock.post("/test")
+                .withHeader("Content-Encoding", WireMock.equalTo("gzip"))
+                .withRequestBody(WireMock.equalToJson("{\"name\":\"John\"}"))
+                .willReturn(WireMock.aResponse().withStatus(201)));
+
+        Response<String> response = post("http://localhost:8080/test")
+                .streamEntity(new Name("John"), ContentTypes.APPLICATION_JSON)
+                .gzip()
+                .andReturn();
+
+        assertThat(response.getStatus(), equalTo(201));
+    }
+
+    @Test
+    @SneakyThrows
+    void testCompressedResponses() {
+
+        byte[] json = "[{\"hello\":\"John\"},{\"hello\":\"Jane\"}]".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(json);
+        }
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(deflated)) {
+            out.write(json);
+        }
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/gzip"))
+                .withHeader("Accept-Encoding", WireMock.containing("gzip"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Encoding", "gzip")
+                        .withBody(gzipped.toByteArray())));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/deflate"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Encoding", "deflate")
+                        .withBody(deflated.toByteArray())));
+
+        assertThat(get("http://localhost:8080/gzip").andReturn().getBody(),
+                equalTo(new String(json, StandardCharsets.UTF_8)));
+        try (Stream<Hello> elements = get("http://localhost:8080/deflate").andReturnElements(Hello.class).getBody()) {
+            assertThat(elements.collect(Collectors.toList()), equalTo(List.of(new Hello("John"), new Hello("Jane"))));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testReturnElements() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/test"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", ContentTypes.APPLICATION_JSON)
+                        .withBody("[{\"hello\":\"John\"},{\"hello\":\"Jane\"}]")));
+
+        Response<Stream<Hello>> response = get("http://localhost:8080/test").andReturnElements(Hello.class);
+
+        assertThat(response.getStatus(), equalTo(200));
+        try (Stream<Hello> elements = response.getBody()) {
+            assertThat(elements.collect(Collectors.toList()), equalTo(List.of(new Hello("John"), new Hello("Jane"))));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testReturnInputStream() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/test"))
+                .willReturn(WireMock.aResponse().withStatus(200).withBody("Hello John")));
+
+        Response<InputStream> response = get("http://localhost:8080/test").andReturnInputStream();
+
+        try (InputStream body = response.getBody()) {
+            assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8), equalTo("Hello John"));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testReturnFile() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/test"))
+                .willReturn(WireMock.aResponse().withStatus(200).withBody("Hello John")));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/missing"))
+                .willReturn(WireMock.aResponse().withStatus(404).withBody("Not found")));
+
+        Path destination = Files.createTempFile("fennec", ".txt");
+        try {
+            Response<Path> response = get("http://localhost:8080/test").andReturnFile(destination);
+            assertThat(response.getBody(), equalTo(destination));
+            assertThat(Files.readString(destination), equalTo("Hello John"));
+
+            // The error body is not written to the file
+            Files.delete(destination);
+            try {
+                get("http://localhost:8080/missing").andReturnFile(destination);
+                Assertions.fail("Exception must have been raised");
+            } catch (StatusCodeException e) {
+                assertThat(e.getPayload(), equalTo("Not found"));
+                assertThat(Files.exists(destination), equalTo(false));
+            }
+        } finally {
+            Files.deleteIfExists(destination);
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testDownloadChunks() {
+
+        stubRangeFile();
+
+        Path destination = Files.createTempDirectory("fennec").resolve("download.txt");
+        DownloadResult result = download("http://localhost:8080/file")
+                .chunkSize(4)
+                .parallelism(2)
+                .sha256("84d89877f0d4041efb6bf91a16f0248f2fd573e6af05c19f96bedb9f882f7882")
+                .to(destination);
+
+        assertThat(Files.readString(destination), equalTo("0123456789"));
+        assertThat(result.getSize(), equalTo(10L));
+        assertThat(result.getDownloadedBytes(), equalTo(10L));
+        assertThat(result.getResumedBytes(), equalTo(0L));
+        assertThat(Files.exists(destination.resolveSibling("download.txt.part")), equalTo(false));
+        assertThat(Files.exists(destination.resolveSibling("download.txt.part.state")), equalTo(false));
+    }
+
+    @Test
+    @SneakyThrows
+    void testDownloadResume() {
+
+        stubRangeFile();
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/file"))
+                .withHeader("Range", WireMock.equalTo("bytes=8-9"))
+                .willReturn(WireMock.aResponse().withStatus(503)));
+
+        Path destination = Files.createTempDirectory("fennec").resolve("download.txt");
+        try {
+            download("http://localhost:8080/file").chunkSize(4).parallelism(1).to(destination);
+            Assertions.fail("Exception must have been raised");
+        } catch (StatusCodeException e) {
+            assertThat(e.getStatusCode(), equalTo(503));
+        }
+
+        stubRangeFile();
+        DownloadResult result = download("http://localhost:8080/file")
+                .chunkSize(4)
+                .md5("781e5e245d69b566979b86e28d23f2c7")
+                .to(destination);
+
+        assertThat(Files.readString(destination), equalTo("0123456789"));
+        assertThat(result.getResumedBytes(), equalTo(8L));
+        assertThat(result.getDownloadedBytes(), equalTo(2L));
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathMatching("/file")).withHeader("Range",
+                WireMock.equalTo("bytes=0-3")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testDownloadStalledChunk() {
+
+        // The body of the first request of the second chunk stalls after its first bytes
+        String content = "0123456789";
+        AtomicInteger stalledChunkRequests = new AtomicInteger();
+        CountDownLatch testOver = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/file", exchange -> {
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range == null) {
+                exchange.getResponseHeaders().add("Content-Length", "10");
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                return;
+            }
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            byte[] chunk = content
+                    .substring(Integer.parseInt(bounds[0]), Integer.parseInt(bounds[1]) + 1)
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(206, chunk.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                if (range.equals("bytes=4-7") && stalledChunkRequests.getAndIncrement() == 0) {
+                    body.write(chunk, 0, 2);
+                    body.flush();
+                    testOver.await();
+                }
+                body.write(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        try {
+            Path destination = Files.createTempDirectory("fennec").resolve("download.txt");
+            download("http://localhost:" + server.getAddress().getPort() + "/file")
+                    .chunkSize(4)
+                    .readTimeout(Duration.ofMillis(300))
+                    .sha256("84d89877f0d4041efb6bf91a16f0248f2fd573e6af05c19f96bedb9f882f7882")
+                    .to(destination);
+
+            assertThat(Files.readString(destination), equalTo("0123456789"));
+            assertThat(stalledChunkRequests.get(), equalTo(2));
+        } finally {
+            testOver.countDown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testDownloadChecksumMismatch() {
+
+        stubRangeFile();
+
+        Path destination = Files.createTempDirectory("fennec").resolve("download.txt");
+        try {
+            download("http://localhost:8080/file").chunkSize(4).sha256("0000").to(destination);
+            Assertions.fail("Exception must have been raised");
+        } catch (IOException e) {
+            assertThat(Files.exists(destination), equalTo(false));
+            assertThat(Files.exists(destination.resolveSibling("download.txt.part")), equalTo(false));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testRetry() {
+
+        stubFailures("/test", 2, 503);
+
+        Response<String> response = get("http://localhost:8080/test").retry(fastRetries().build()).andReturn();
+
+        assertThat(response.getBody(), equalTo("Hello John"));
+        WireMock.verify(3, WireMock.getRequestedFor(WireMock.urlPathMatching("/test")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testRetryAsync() {
+
+        stubFailures("/test", 1, 502);
+
+        Response<String> response = get("http://localhost:8080/test")
+                .retry(fastRetries().build())
+                .andReturnAsync()
+                .get();
+
+        assertThat(response.getBody(), equalTo("Hello John"));
+        WireMock.verify(2, WireMock.getRequestedFor(WireMock.urlPathMatching("/test")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testRetryExhausted() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/test")).willReturn(WireMock.aResponse().withStatus(503)));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/missing")).willReturn(WireMock.aResponse().withStatus(404)));
+
+        try {
+            get("http://localhost:8080/test").retry(fastRetries().maxAttempts(2).build()).andReturn();
+            Assertions.fail("Exception must have been raised");
+        } catch (StatusCodeException e) {
+            assertThat(e.getStatusCode(), equalTo(503));
+        }
+        WireMock.verify(2, WireMock.getRequestedFor(WireMock.urlPathMatching("/test")));
+
+        // Not retried
+        try {
+            get("http://localhost:8080/missing").retry(fastRetries().build()).andReturn();
+            Assertions.fail("Exception must have been raised");
+        } catch (StatusCodeException e) {
+            assertThat(e.getStatusCode(), equalTo(404));
+        }
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathMatching("/missing")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testRetryResendsBody() {
+
+        WireMock.stubFor(WireMock.post("/test")
+                .inScenario("retry")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.aResponse().withStatus(503))
+                .willSetStateTo("failed"));
+        WireMock.stubFor(WireMock.post("/test")
+                .inScenario("retry")
+                .whenScenarioStateIs("failed")
+                .willReturn(WireMock.aResponse().withStatus(201)));
+
+        Response<String> response = post("http://localhost:8080/test")
+                .streamEntity(new Name("John"), ContentTypes.APPLICATION_JSON)
+                .retry(fastRetries().build())
+                .andReturn();
+
+        assertThat(response.getStatus(), equalTo(201));
+        // The entity is serialized again for the second attempt
+        List<String> bodies = WireMock
+                .findAll(WireMock.postRequestedFor(WireMock.urlPathMatching("/test")))
+                .stream()
+                .map(request -> request.getBodyAsString())
+                .collect(Collectors.toList());
+        assertThat(bodies, equalTo(List.of("{\"name\":\"John\"}", "{\"name\":\"John\"}")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testRetryOneShotBody() {
+
+        WireMock.stubFor(WireMock.post("/test").willReturn(WireMock.aResponse().withStatus(503)));
+
+        try {
+            post("http://localhost:8080/test")
+                    .entity(new ByteArrayInputStream("Hello".getBytes(StandardCharsets.UTF_8)), ContentTypes.TEXT_PLAIN)
+                    .retry(fastRetries().build())
+                    .andReturn();
+            Assertions.fail("Exception must have been raised");
+        } catch (StatusCodeException e) {
+            assertThat(e.getStatusCode(), equalTo(503));
+        }
+        // The stream is already read: not sent again
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathMatching("/test")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testRetryNonIdempotent() {
+
+        WireMock.stubFor(WireMock.any(WireMock.urlPathMatching("/test"))
+                .willReturn(WireMock.aResponse().withFault(Fault.EMPTY_RESPONSE)));
+
+        Assertions.assertThrows(IOException.class,
+                () -> post("http://localhost:8080/test").entity("Hello").retry(fastRetries().build()).andReturn());
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathMatching("/test")));
+
+        Assertions.assertThrows(IOException.class,
+                () -> put("http://localhost:8080/test").entity("Hello").retry(fastRetries().build()).andReturn());
+        WireMock.verify(3, WireMock.putRequestedFor(WireMock.urlPathMatching("/test")));
+
+        Assertions.assertThrows(IOException.class, () -> post("http://localhost:8080/test")
+                .entity("Hello")
+                .retry(fastRetries().retryNonIdempotent(true).build())
+                .andReturn());
+        WireMock.verify(4, WireMock.postRequestedFor(WireMock.urlPathMatching("/test")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testRetryDeadline() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/test")).willReturn(WireMock.aResponse().withStatus(503)));
+
+        long start = System.currentTimeMillis();
+        // The last error: the 503 status, or the timeout of the attempt running at the deadline
+        Assertions.assertThrows(Exception.class,
+                () -> get("http://localhost:8080/test")
+                        .retry(fastRetries().maxAttempts(1000).deadline(Duration.ofMillis(300)).build())
+                        .andReturn());
+        assertThat(System.currentTimeMillis() - start < 2000, equalTo(true));
+    }
+
+    @Test
+    @SneakyThrows
+    void testHedge() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/test"))
+                .inScenario("hedge")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.aResponse().withStatus(200).withBody("Slow").withFixedDelay(3000))
+                .willSetStateTo("hedged"));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/test"))
+                .inScenario("hedge")
+                .whenScenarioStateIs("hedged")
+                .willReturn(WireMock.aResponse().withStatus(200).withBody("Fast")));
+
+        long start = System.currentTimeMillis();
+        Response<String> response = get("http://localhost:8080/test")
+                .retry(RetryPolicy.builder().hedgeDelay(Duration.ofMillis(100)).build())
+                .andReturn();
+
+        assertThat(response.getBody(), equalTo("Fast"));
+        assertThat(System.currentTimeMillis() - start < 2000, equalTo(true));
+    }
+
+    @Test
+    @SneakyThrows
+    void testCacheRevalidation() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/metadata"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("ETag", "\"v1\"")
+                        .withHeader("Content-Type", ContentTypes.APPLICATION_JSON)
+                        .withBody("{\"hello\":\"John\"}")));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/metadata"))
+                .withHeader("If-None-Match", WireMock.equalTo("\"v1\""))
+                .willReturn(WireMock.aResponse().withStatus(304)));
+
+        HttpCache cache = HttpCache.inMemory();
+        for (int i = 0; i < 2; i++) {
+            Response<Hello> response = get("http://localhost:8080/metadata")
+                    .cache(cache)
+                    .andReturn(Hello.class, ContentTypes.APPLICATION_JSON);
+            assertThat(response.getStatus(), equalTo(200));
+            assertThat(response.getBody(), equalTo(new Hello("John")));
+        }
+        WireMock.verify(2, WireMock.getRequestedFor(WireMock.urlPathMatching("/metadata")));
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathMatching("/metadata")).withHeader("If-None-Match",
+                WireMock.equalTo("\"v1\"")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testCacheOnDisk() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/index/.*"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Cache-Control", "max-age=600")
+                        .withBody("12345678")));
+
+        Path directory = Files.createTempDirectory("fennec-cache");
+        get("http://localhost:8080/index/a").cache(HttpCache.onDisk(directory)).andReturn();
+
+        // Another pipeline sharing the directory
+        Response<String> response = get("http://localhost:8080/index/a").cache(HttpCache.onDisk(directory)).andReturn();
+        assertThat(response.getBody(), equalTo("12345678"));
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathMatching("/index/a")));
+
+        // The least recently used response is evicted
+        HttpCache small = new HttpCache(directory, 0, 10);
+        get("http://localhost:8080/index/b").cache(small).andReturn();
+        get("http://localhost:8080/index/a").cache(small).andReturn();
+        WireMock.verify(2, WireMock.getRequestedFor(WireMock.urlPathMatching("/index/a")));
+        small.clear();
+    }
+
+    @Test
+    @SneakyThrows
+    void testNotCached() {
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/shared"))
+                .willReturn(WireMock.aResponse().withStatus(200).withHeader("Cache-Control", "max-age=600")));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/private"))
+                .willReturn(WireMock.aResponse().withStatus(200).withHeader("Cache-Control", "private, max-age=600")));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/public"))
+                .willReturn(WireMock.aResponse().withStatus(200).withHeader("Cache-Control", "public, max-age=600")));
+
+        HttpCache cache = HttpCache.inMemory();
+        for (int i = 0; i < 2; i++) {
+            // Streamed: never buffered in the cache
+            get("http://localhost:8080/shared").cache(cache).andReturnInputStream().getBody().close();
+            get("http://localhost:8080/private").cache(cache).andReturn();
+            get("http://localhost:8080/shared").header("Authorization", "Bearer token").cache(cache).andReturn();
+            get("http://localhost:8080/public").header("Authorization", "Bearer token").cache(cache).andReturn();
+        }
+        WireMock.verify(2, WireMock.getRequestedFor(WireMock.urlPathMatching("/private")));
+        WireMock.verify(2, WireMock.getRequestedFor(WireMock.urlPathMatching("/shared")).withHeader("Authorization",
+                WireMock.absent()));
+        WireMock.verify(2, WireMock.getRequestedFor(WireMock.urlPathMatching("/shared")).withHeader("Authorization",
+                WireMock.equalTo("Bearer token")));
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathMatching("/public")));
+    }
+
+    private RetryPolicy.RetryPolicyBuilder fastRetries() {
+        return RetryPolicy.builder().initialBackoff(Duration.ofMillis(10)).maxBackoff(Duration.ofMillis(50));
+    }
+
+    /**
+     * Fail a number of times with a status, then succeed
+     */
+    private void stubFailures(String path, int failures, int status) {
+        for (int i = 0; i <= failures; i++) {
+            String state = i == 0 ? Scenario.STARTED : "failure " + i;
+            WireMock.stubFor(WireMock.get(WireMock.urlPathMatching(path))
+                    .inScenario("retry")
+                    .whenScenarioStateIs(state)
+                    .willReturn(i < failures ? WireMock.aResponse().withStatus(status) : WireMock
+                            .aResponse()
+                            .withStatus(200)
+                            .withBody("Hello John"))
+                    .willSetStateTo("failure " + (i + 1)));
+        }
+    }
+
+    /**
+     * A 10 bytes file accepting range requests by chunks of 4 bytes
+     */
+    private void stubRangeFile() {
+        WireMock.stubFor(WireMock.head(WireMock.urlPathMatching("/file"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Length", "10")
+                        .withHeader("Accept-Ranges", "bytes")
+                        .withHeader("ETag", "\"v1\"")));
+        String content = "0123456789";
+        for (int start = 0; start < content.length(); start += 4) {
+            int end = Math.min(content.length(), start + 4);
+            WireMock.stubFor(WireMock.get(WireMock.urlPathMatching("/file"))
+                    .withHeader("Range", WireMock.equalTo("bytes=" + start + "-" + (end - 1)))
+                    .withHeader("If-Range", WireMock.equalTo("\"v1\""))
+                    .willReturn(WireMock.aResponse().withStatus(206).withBody(content.substring(start, end))));
+        }
+    }
+
     @Getter
     @Setter
     @NoArgsConstructor